@@ -0,0 +1,132 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package uk.me.berndporr.iirj.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import uk.me.berndporr.iirj.Butterworth;
+import uk.me.berndporr.iirj.DenormalProtection;
+
+/**
+ * Filters silence while the states of the filter have decayed into
+ * subnormal numbers, with and without denormal protection, and the
+ * ECG recording to show the cost of the protection on the normal path.
+ * The subnormal states are restored from a snapshot before every block
+ * of silence so that every block starts in the slow range.
+ */
+@State(Scope.Thread)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DenormalBenchmark {
+
+	static final int BLOCK = 1024;
+
+	@Param({"NONE", "NOISE", "FLUSH"})
+	public String protection;
+
+	@Param({"DIRECT_FORM_I", "DIRECT_FORM_II"})
+	public String directForm;
+
+	private Butterworth filter;
+	private double[] subnormal;
+	private final double[] silence = new double[BLOCK];
+	private final double[] out = new double[BLOCK];
+
+	private Butterworth ecgFilter;
+	private double[] ecg;
+	private double[] ecgOut;
+
+	@Setup(Level.Trial)
+	public void setup() {
+		filter = new Butterworth();
+		// slowly decaying poles keep the states subnormal for long
+		filter.lowPass(8, Signals.ECG_FS, 1, Filters.directForm(directForm));
+		// decay after an impulse until all states are subnormal
+		filter.filter(1);
+		double[] s;
+		do {
+			filter.filter(0);
+			s = filter.snapshotState();
+		} while (!allSubnormal(s));
+		subnormal = s;
+		filter.setDenormalProtection(mode(protection));
+
+		ecgFilter = new Butterworth();
+		Filters.design(ecgFilter, "lowPass", 8, Filters.directForm(directForm));
+		ecgFilter.setDenormalProtection(mode(protection));
+		ecg = Signals.ecg();
+		ecgOut = new double[ecg.length];
+	}
+
+	private static boolean allSubnormal(double[] snapshot) {
+		// the first two values are the header
+		for (int i = 2; i < snapshot.length; i++) {
+			if (Math.abs(snapshot[i]) >= Double.MIN_NORMAL) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	static int mode(String name) {
+		switch (name) {
+		case "NONE":
+			return DenormalProtection.NONE;
+		case "NOISE":
+			return DenormalProtection.NOISE;
+		case "FLUSH":
+			return DenormalProtection.FLUSH;
+		default:
+			throw new IllegalArgumentException("Unknown protection: " + name);
+		}
+	}
+
+	@Benchmark
+	@BenchmarkMode(Mode.Throughput)
+	@OutputTimeUnit(TimeUnit.SECONDS)
+	@OperationsPerInvocation(BLOCK)
+	public double[] silence() {
+		filter.restoreState(subnormal);
+		filter.filter(silence, 0, out, 0, BLOCK);
+		return out;
+	}
+
+	@Benchmark
+	@BenchmarkMode(Mode.Throughput)
+	@OutputTimeUnit(TimeUnit.SECONDS)
+	@OperationsPerInvocation(FilterBenchmark.ECG_LENGTH)
+	public double[] ecg() {
+		ecgFilter.filter(ecg, 0, ecgOut, 0, ecg.length);
+		return ecgOut;
+	}
+}
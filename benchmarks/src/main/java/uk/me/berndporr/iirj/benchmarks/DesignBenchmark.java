@@ -0,0 +1,81 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package uk.me.berndporr.iirj.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import uk.me.berndporr.iirj.Cascade;
+import uk.me.berndporr.iirj.DirectFormAbstract;
+
+/**
+ * Cost of designing a filter: redesigning an existing filter of the
+ * same order (which doesn't allocate) and creating a new one. Run with
+ * -prof gc to see the allocation rate.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DesignBenchmark {
+
+	@Param({"Butterworth", "ChebyshevI", "ChebyshevII", "Bessel"})
+	public String family;
+
+	@Param({"lowPass", "bandPass", "bandStop"})
+	public String type;
+
+	@Param({"2", "4", "8", "12"})
+	public int order;
+
+	private Cascade filter;
+
+	@Setup(Level.Trial)
+	public void setup() {
+		filter = Filters.create(family);
+		Filters.design(filter, type, order, DirectFormAbstract.DIRECT_FORM_II);
+	}
+
+	@Benchmark
+	public Cascade redesign() {
+		Filters.design(filter, type, order, DirectFormAbstract.DIRECT_FORM_II);
+		return filter;
+	}
+
+	@Benchmark
+	public Cascade newFilter() {
+		Cascade f = Filters.create(family);
+		Filters.design(f, type, order, DirectFormAbstract.DIRECT_FORM_II);
+		return f;
+	}
+}
@@ -0,0 +1,114 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package uk.me.berndporr.iirj.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import uk.me.berndporr.iirj.Cascade;
+
+/**
+ * Filters the ECG recording with every family, order and topology.
+ * The throughput benchmarks report samples per second and the latency
+ * benchmark the distribution of the time of a single filter() call.
+ * All orders from 1 to 24 can be run with -p order=1,2,3,...,24.
+ */
+@State(Scope.Thread)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class FilterBenchmark {
+
+	// Samples of the ECG recording, filtered as one block
+	static final int ECG_LENGTH = 50490;
+
+	@Param({"Butterworth", "ChebyshevI", "ChebyshevII", "Bessel"})
+	public String family;
+
+	@Param({"1", "2", "4", "8", "12", "16", "20", "24"})
+	public int order;
+
+	@Param({"DIRECT_FORM_I", "DIRECT_FORM_II"})
+	public String directForm;
+
+	@Param({"lowPass"})
+	public String type;
+
+	private Cascade filter;
+	private double[] ecg;
+	private double[] out;
+	private int index;
+
+	@Setup(Level.Trial)
+	public void setup() {
+		filter = Filters.create(family);
+		Filters.design(filter, type, order, Filters.directForm(directForm));
+		ecg = Signals.ecg();
+		if (ecg.length != ECG_LENGTH) {
+			throw new IllegalStateException("Unexpected length of ecg.dat: " + ecg.length);
+		}
+		out = new double[ecg.length];
+	}
+
+	@Benchmark
+	@BenchmarkMode(Mode.Throughput)
+	@OutputTimeUnit(TimeUnit.SECONDS)
+	@OperationsPerInvocation(ECG_LENGTH)
+	public void sampleBySample(Blackhole bh) {
+		final Cascade f = filter;
+		final double[] x = ecg;
+		for (int i = 0; i < x.length; i++) {
+			bh.consume(f.filter(x[i]));
+		}
+	}
+
+	@Benchmark
+	@BenchmarkMode(Mode.Throughput)
+	@OutputTimeUnit(TimeUnit.SECONDS)
+	@OperationsPerInvocation(ECG_LENGTH)
+	public double[] block() {
+		filter.filter(ecg, 0, out, 0, ecg.length);
+		return out;
+	}
+
+	@Benchmark
+	@BenchmarkMode(Mode.SampleTime)
+	@OutputTimeUnit(TimeUnit.NANOSECONDS)
+	public double latency() {
+		double y = filter.filter(ecg[index]);
+		if (++index == ecg.length) {
+			index = 0;
+		}
+		return y;
+	}
+}
@@ -0,0 +1,147 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+
+package uk.me.berndporr.iirj.benchmarks;
+
+import uk.me.berndporr.iirj.Bessel;
+import uk.me.berndporr.iirj.Butterworth;
+import uk.me.berndporr.iirj.Cascade;
+import uk.me.berndporr.iirj.ChebyshevI;
+import uk.me.berndporr.iirj.ChebyshevII;
+import uk.me.berndporr.iirj.DirectFormAbstract;
+
+/**
+ * Creates and designs the filters of the benchmarks by the names
+ * used in the JMH parameters.
+ */
+public class Filters {
+
+	static final double RIPPLE_DB = 1;
+	static final double STOPBAND_DB = 40;
+
+	// frequencies for the ECG at 250 Hz
+	static final double CUTOFF = 30;
+	static final double CENTER = 20;
+	static final double WIDTH = 15;
+	static final double NOTCH = 50;
+	static final double NOTCH_WIDTH = 5;
+
+	/**
+	 * Creates an empty filter of a family.
+	 *
+	 * @param family Butterworth, ChebyshevI, ChebyshevII or Bessel
+	 * @return The filter
+	 */
+	public static Cascade create(String family) {
+		if ("Butterworth".equals(family)) {
+			return new Butterworth();
+		} else if ("ChebyshevI".equals(family)) {
+			return new ChebyshevI();
+		} else if ("ChebyshevII".equals(family)) {
+			return new ChebyshevII();
+		} else if ("Bessel".equals(family)) {
+			return new Bessel();
+		}
+		throw new IllegalArgumentException("Unknown family: " + family);
+	}
+
+	/**
+	 * Translates the name of a topology.
+	 *
+	 * @param name DIRECT_FORM_I, DIRECT_FORM_II or DIRECT_FORM_II_TRANSPOSED
+	 * @return The constant in DirectFormAbstract
+	 */
+	public static int directForm(String name) {
+		if ("DIRECT_FORM_I".equals(name)) {
+			return DirectFormAbstract.DIRECT_FORM_I;
+		} else if ("DIRECT_FORM_II".equals(name)) {
+			return DirectFormAbstract.DIRECT_FORM_II;
+		} else if ("DIRECT_FORM_II_TRANSPOSED".equals(name)) {
+			return DirectFormAbstract.DIRECT_FORM_II_TRANSPOSED;
+		}
+		throw new IllegalArgumentException("Unknown topology: " + name);
+	}
+
+	/**
+	 * Designs a filter of the ECG benchmarks.
+	 *
+	 * @param filter     Filter created with create()
+	 * @param type       lowPass, highPass, bandPass or bandStop
+	 * @param order      Order of the filter
+	 * @param directForm Constant of DirectFormAbstract
+	 */
+	public static void design(Cascade filter, String type, int order, int directForm) {
+		final double fs = Signals.ECG_FS;
+		if (filter instanceof Butterworth) {
+			Butterworth f = (Butterworth) filter;
+			if ("lowPass".equals(type)) {
+				f.lowPass(order, fs, CUTOFF, directForm);
+			} else if ("highPass".equals(type)) {
+				f.highPass(order, fs, CUTOFF, directForm);
+			} else if ("bandPass".equals(type)) {
+				f.bandPass(order, fs, CENTER, WIDTH, directForm);
+			} else if ("bandStop".equals(type)) {
+				f.bandStop(order, fs, NOTCH, NOTCH_WIDTH, directForm);
+			} else {
+				throw new IllegalArgumentException("Unknown type: " + type);
+			}
+		} else if (filter instanceof ChebyshevI) {
+			ChebyshevI f = (ChebyshevI) filter;
+			if ("lowPass".equals(type)) {
+				f.lowPass(order, fs, CUTOFF, RIPPLE_DB, directForm);
+			} else if ("highPass".equals(type)) {
+				f.highPass(order, fs, CUTOFF, RIPPLE_DB, directForm);
+			} else if ("bandPass".equals(type)) {
+				f.bandPass(order, fs, CENTER, WIDTH, RIPPLE_DB, directForm);
+			} else if ("bandStop".equals(type)) {
+				f.bandStop(order, fs, NOTCH, NOTCH_WIDTH, RIPPLE_DB, directForm);
+			} else {
+				throw new IllegalArgumentException("Unknown type: " + type);
+			}
+		} else if (filter instanceof ChebyshevII) {
+			ChebyshevII f = (ChebyshevII) filter;
+			if ("lowPass".equals(type)) {
+				f.lowPass(order, fs, CUTOFF, STOPBAND_DB, directForm);
+			} else if ("highPass".equals(type)) {
+				f.highPass(order, fs, CUTOFF, STOPBAND_DB, directForm);
+			} else if ("bandPass".equals(type)) {
+				f.bandPass(order, fs, CENTER, WIDTH, STOPBAND_DB, directForm);
+			} else if ("bandStop".equals(type)) {
+				f.bandStop(order, fs, NOTCH, NOTCH_WIDTH, STOPBAND_DB, directForm);
+			} else {
+				throw new IllegalArgumentException("Unknown type: " + type);
+			}
+		} else if (filter instanceof Bessel) {
+			Bessel f = (Bessel) filter;
+			if ("lowPass".equals(type)) {
+				f.lowPass(order, fs, CUTOFF, directForm);
+			} else if ("highPass".equals(type)) {
+				f.highPass(order, fs, CUTOFF, directForm);
+			} else if ("bandPass".equals(type)) {
+				f.bandPass(order, fs, CENTER, WIDTH, directForm);
+			} else if ("bandStop".equals(type)) {
+				f.bandStop(order, fs, NOTCH, NOTCH_WIDTH, directForm);
+			} else {
+				throw new IllegalArgumentException("Unknown type: " + type);
+			}
+		} else {
+			throw new IllegalArgumentException("Unknown family: " + filter.getClass());
+		}
+	}
+}
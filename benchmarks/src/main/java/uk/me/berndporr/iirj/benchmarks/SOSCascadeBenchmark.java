@@ -0,0 +1,113 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package uk.me.berndporr.iirj.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import uk.me.berndporr.iirj.SOSCascade;
+
+/**
+ * Filters the ECG recording with the elliptic filter which has been
+ * designed with scipy in the python-design directory.
+ */
+@State(Scope.Thread)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SOSCascadeBenchmark {
+
+	/**
+	 * signal.ellip(4, 5, 40, 100/1000*2, 'low', output='sos'),
+	 * see python-design/elliptic_design.py
+	 */
+	static final double[][] ELLIPTIC = {
+		{1.665778210826693306e-02,
+		 -3.926235536821644570e-03,
+		 1.665778210826693653e-02,
+		 1.000000000000000000e+00,
+		 -1.715406458784182631e+00,
+		 8.100524568939508896e-01},
+		{1.000000000000000000e+00,
+		 -1.369802526921778174e+00,
+		 9.999999999999997780e-01,
+		 1.000000000000000000e+00,
+		 -1.605880898184007588e+00,
+		 9.538687377533192624e-01}
+	};
+
+	@Param({"DIRECT_FORM_I", "DIRECT_FORM_II", "DIRECT_FORM_II_TRANSPOSED"})
+	public String directForm;
+
+	private SOSCascade filter;
+	private double[] ecg;
+	private double[] out;
+
+	@Setup(Level.Trial)
+	public void setup() {
+		filter = new SOSCascade();
+		filter.setup(ELLIPTIC, Filters.directForm(directForm));
+		ecg = Signals.ecg();
+		out = new double[ecg.length];
+	}
+
+	@Benchmark
+	@BenchmarkMode(Mode.Throughput)
+	@OutputTimeUnit(TimeUnit.SECONDS)
+	@OperationsPerInvocation(FilterBenchmark.ECG_LENGTH)
+	public void sampleBySample(Blackhole bh) {
+		final SOSCascade f = filter;
+		final double[] x = ecg;
+		for (int i = 0; i < x.length; i++) {
+			bh.consume(f.filter(x[i]));
+		}
+	}
+
+	@Benchmark
+	@BenchmarkMode(Mode.Throughput)
+	@OutputTimeUnit(TimeUnit.SECONDS)
+	@OperationsPerInvocation(FilterBenchmark.ECG_LENGTH)
+	public double[] block() {
+		filter.filter(ecg, 0, out, 0, ecg.length);
+		return out;
+	}
+
+	@Benchmark
+	@BenchmarkMode(Mode.AverageTime)
+	@OutputTimeUnit(TimeUnit.NANOSECONDS)
+	public SOSCascade setupCost() {
+		SOSCascade f = new SOSCascade();
+		f.setup(ELLIPTIC, Filters.directForm(directForm));
+		return f;
+	}
+}
@@ -0,0 +1,73 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+
+package uk.me.berndporr.iirj.benchmarks;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Input signals of the benchmarks.
+ */
+public class Signals {
+
+	/**
+	 * Sampling rate of the ECG recording.
+	 */
+	public static final double ECG_FS = 250;
+
+	private static double[] ecg;
+
+	/**
+	 * The ECG recording of the unit tests which is packed into
+	 * the benchmark jar.
+	 *
+	 * @return A copy of the samples
+	 */
+	public static synchronized double[] ecg() {
+		if (ecg == null) {
+			InputStream is = Signals.class.getResourceAsStream("/ecg.dat");
+			if (is == null) {
+				throw new IllegalStateException("ecg.dat is missing in the jar.");
+			}
+			List<Double> values = new ArrayList<Double>();
+			try {
+				BufferedReader reader = new BufferedReader(new InputStreamReader(is, "UTF-8"));
+				String line;
+				while ((line = reader.readLine()) != null) {
+					if (line.trim().length() > 0) {
+						values.add(Double.parseDouble(line.trim()));
+					}
+				}
+				reader.close();
+			} catch (IOException e) {
+				throw new IllegalStateException("Could not read ecg.dat: " + e.getMessage());
+			}
+			ecg = new double[values.size()];
+			for (int i = 0; i < ecg.length; i++) {
+				ecg[i] = values.get(i);
+			}
+		}
+		return ecg.clone();
+	}
+}
@@ -0,0 +1,260 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * 
+ *  Copyright (c) 2016 by Bernd Porr
+ */
+
+package uk.me.berndporr.iirj.flow;
+
+import java.util.Objects;
+import java.util.concurrent.Flow;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * The Flow protocol of FilterProcessor and FloatFilterProcessor. Every
+ * block requested downstream is requested upstream so that the
+ * publisher never runs ahead of the slowest subscriber. Blocks are
+ * filtered in the order in which they arrive into blocks from a pool
+ * and a volatile counter is written after every block so that the
+ * states of the filter are seen by the next block even if it's
+ * delivered by another thread.
+ *
+ * The subscriber is signalled by only one thread at a time: a terminal
+ * signal which is raised by the subscriber itself, for example by
+ * requesting zero blocks, is delivered by whichever thread gets hold
+ * of the signals first, and never while a block is being delivered.
+ */
+abstract class AbstractFilterProcessor<T> implements Flow.Processor<T, T> {
+
+	// terminal signal of a publisher which has completed
+	private static final Object COMPLETE = new Object();
+
+	private final BlockPool<T> m_pool;
+
+	private final AtomicReference<Flow.Subscription> m_upstream =
+			new AtomicReference<Flow.Subscription>();
+	private final AtomicReference<Flow.Subscriber<? super T>> m_downstream =
+			new AtomicReference<Flow.Subscriber<? super T>>();
+
+	// demand of the subscriber before the publisher has subscribed
+	private final AtomicLong m_pending = new AtomicLong();
+
+	private volatile boolean m_ready;
+	private volatile boolean m_cancelled;
+
+	// COMPLETE or the error once the stream has ended
+	private final AtomicReference<Object> m_terminal = new AtomicReference<Object>();
+
+	// the thread which has incremented it from zero signals the subscriber
+	private final AtomicInteger m_signalling = new AtomicInteger();
+	private boolean m_terminated;
+
+	private volatile long m_numBlocks;
+
+	AbstractFilterProcessor(BlockPool<T> pool) {
+		m_pool = pool;
+	}
+
+	/**
+	 * Filters a block into another one of the same length.
+	 */
+	abstract void filter(T in, T out);
+
+	abstract int length(T block);
+
+	/**
+	 * Hands a block which has been received from this processor back
+	 * so that it can be reused for one of the next blocks. The block
+	 * must not be used afterwards. Blocks which aren't recycled are
+	 * simply garbage collected.
+	 *
+	 * @param block A block received by onNext of the subscriber
+	 */
+	public void recycle(T block) {
+		m_pool.release(block);
+	}
+
+	/**
+	 * @return The number of blocks filtered so far
+	 */
+	public long getNumBlocks() {
+		return m_numBlocks;
+	}
+
+	@Override
+	public void subscribe(Flow.Subscriber<? super T> subscriber) {
+		Objects.requireNonNull(subscriber);
+		if (!m_downstream.compareAndSet(null, subscriber)) {
+			subscriber.onSubscribe(new Flow.Subscription() {
+				public void request(long n) {
+				}
+
+				public void cancel() {
+				}
+			});
+			subscriber.onError(new IllegalStateException(
+					"A filter can only have one subscriber."));
+			return;
+		}
+		subscriber.onSubscribe(new Flow.Subscription() {
+			public void request(long n) {
+				if (m_cancelled) {
+					return;
+				}
+				if (n <= 0) {
+					cancelUpstream();
+					terminate(new IllegalArgumentException(
+							"The number of requested blocks must be positive."));
+					return;
+				}
+				Flow.Subscription upstream = m_upstream.get();
+				if (upstream != null) {
+					upstream.request(n);
+					return;
+				}
+				addPending(n);
+				// the publisher may have subscribed in the meantime
+				upstream = m_upstream.get();
+				if (upstream != null) {
+					requestPending(upstream);
+				}
+			}
+
+			public void cancel() {
+				cancelUpstream();
+			}
+		});
+		m_ready = true;
+		drain();
+	}
+
+	@Override
+	public void onSubscribe(Flow.Subscription subscription) {
+		Objects.requireNonNull(subscription);
+		if (!m_upstream.compareAndSet(null, subscription)) {
+			subscription.cancel();
+			return;
+		}
+		if (m_cancelled) {
+			subscription.cancel();
+			return;
+		}
+		requestPending(subscription);
+	}
+
+	@Override
+	public void onNext(T block) {
+		Objects.requireNonNull(block);
+		if (m_cancelled || (m_terminal.get() != null)) {
+			return;
+		}
+		final long numBlocks = m_numBlocks;
+		T out = m_pool.acquire(length(block));
+		try {
+			filter(block, out);
+		} catch (RuntimeException e) {
+			m_pool.release(out);
+			cancelUpstream();
+			terminate(e);
+			return;
+		}
+		m_numBlocks = numBlocks + 1;
+		if (!m_signalling.compareAndSet(0, 1)) {
+			// the stream is being terminated by the subscriber
+			m_pool.release(out);
+			return;
+		}
+		if (m_terminal.get() == null) {
+			m_downstream.get().onNext(out);
+		} else {
+			// terminated by the subscriber while filtering
+			m_pool.release(out);
+		}
+		final int missed = m_signalling.decrementAndGet();
+		if (missed != 0) {
+			drainLoop(missed);
+		}
+	}
+
+	@Override
+	public void onError(Throwable throwable) {
+		Objects.requireNonNull(throwable);
+		terminate(throwable);
+	}
+
+	@Override
+	public void onComplete() {
+		terminate(COMPLETE);
+	}
+
+	private void addPending(long n) {
+		long p;
+		long sum;
+		do {
+			p = m_pending.get();
+			sum = p + n;
+			if (sum < 0) {
+				sum = Long.MAX_VALUE;
+			}
+		} while (!m_pending.compareAndSet(p, sum));
+	}
+
+	private void requestPending(Flow.Subscription upstream) {
+		long n = m_pending.getAndSet(0);
+		if (n > 0) {
+			upstream.request(n);
+		}
+	}
+
+	private void cancelUpstream() {
+		m_cancelled = true;
+		Flow.Subscription upstream = m_upstream.get();
+		if (upstream != null) {
+			upstream.cancel();
+		}
+	}
+
+	private void terminate(Object signal) {
+		if (m_terminal.compareAndSet(null, signal)) {
+			drain();
+		}
+	}
+
+	private void drain() {
+		if (m_signalling.getAndIncrement() == 0) {
+			drainLoop(1);
+		}
+	}
+
+	// the terminal signal is held back until the subscriber is ready
+	private void drainLoop(int missed) {
+		do {
+			final Object signal = m_terminal.get();
+			if (m_ready && (signal != null) && !m_terminated) {
+				m_terminated = true;
+				Flow.Subscriber<? super T> subscriber = m_downstream.get();
+				if (signal == COMPLETE) {
+					subscriber.onComplete();
+				} else {
+					subscriber.onError((Throwable) signal);
+				}
+			}
+			missed = m_signalling.addAndGet(-missed);
+		} while (missed != 0);
+	}
+}
@@ -0,0 +1,64 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * 
+ *  Copyright (c) 2016 by Bernd Porr
+ */
+
+package uk.me.berndporr.iirj.flow;
+
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * A small lock-free pool of sample blocks so that streaming filters
+ * don't need to allocate a new array for every block. Blocks of any
+ * length can be mixed. A block is only allocated if there is no free
+ * one of the requested length and released blocks are dropped if the
+ * pool is full. Neither acquiring nor releasing allocates memory.
+ */
+abstract class BlockPool<T> {
+
+	private final AtomicReferenceArray<T> m_blocks;
+
+	BlockPool(int capacity) {
+		if (capacity < 0) {
+			throw new IllegalArgumentException("The capacity cannot be negative.");
+		}
+		m_blocks = new AtomicReferenceArray<T>(capacity);
+	}
+
+	abstract T allocate(int length);
+
+	abstract int length(T block);
+
+	T acquire(int length) {
+		for (int i = 0; i < m_blocks.length(); i++) {
+			T block = m_blocks.get(i);
+			if ((block != null) && (length(block) == length)
+					&& m_blocks.compareAndSet(i, block, null)) {
+				return block;
+			}
+		}
+		return allocate(length);
+	}
+
+	void release(T block) {
+		for (int i = 0; i < m_blocks.length(); i++) {
+			if ((m_blocks.get(i) == null) && m_blocks.compareAndSet(i, null, block)) {
+				return;
+			}
+		}
+	}
+}
@@ -0,0 +1,131 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * 
+ *  Copyright (c) 2016 by Bernd Porr
+ */
+
+package uk.me.berndporr.iirj.flow;
+
+import java.util.Objects;
+
+import uk.me.berndporr.iirj.Cascade;
+import uk.me.berndporr.iirj.MultiChannelCascade;
+
+/**
+ * A java.util.concurrent.Flow processor which filters blocks of samples
+ * so that a filter can be placed into a reactive pipeline. For example:
+ *
+ * <pre>
+ * FilterProcessor processor = new FilterProcessor(butterworth);
+ * publisher.subscribe(processor);
+ * processor.subscribe(subscriber);
+ * </pre>
+ *
+ * Blocks are only requested from the publisher when the subscriber
+ * requests them. The filtered blocks come from a pool and can be
+ * handed back with recycle() once the subscriber is done with them
+ * so that no memory is allocated while streaming. The input blocks
+ * are not changed. The filter keeps its states from block to block
+ * and new coefficients can be published to it while it's running.
+ * It must not be used by anything else while it's subscribed.
+ */
+public class FilterProcessor extends AbstractFilterProcessor<double[]> {
+
+	/**
+	 * Number of filtered blocks kept for reuse by default
+	 */
+	public static final int DEFAULT_POOL_SIZE = 16;
+
+	private final Cascade m_cascade;
+	private final MultiChannelCascade m_multi;
+
+	/**
+	 * Filters every block with a filter.
+	 *
+	 * @param filter The filter which is used for all blocks
+	 */
+	public FilterProcessor(Cascade filter) {
+		this(filter, DEFAULT_POOL_SIZE);
+	}
+
+	/**
+	 * Filters every block with a filter.
+	 *
+	 * @param filter   The filter which is used for all blocks
+	 * @param poolSize Number of filtered blocks kept for reuse
+	 */
+	public FilterProcessor(Cascade filter, int poolSize) {
+		super(pool(poolSize));
+		m_cascade = Objects.requireNonNull(filter);
+		m_multi = null;
+	}
+
+	/**
+	 * Filters blocks of interleaved frames of many channels.
+	 *
+	 * @param filter The filter bank which is used for all blocks.
+	 *               The length of the blocks must be a multiple of
+	 *               its number of channels.
+	 */
+	public FilterProcessor(MultiChannelCascade filter) {
+		this(filter, DEFAULT_POOL_SIZE);
+	}
+
+	/**
+	 * Filters blocks of interleaved frames of many channels.
+	 *
+	 * @param filter   The filter bank which is used for all blocks.
+	 *                 The length of the blocks must be a multiple of
+	 *                 its number of channels.
+	 * @param poolSize Number of filtered blocks kept for reuse
+	 */
+	public FilterProcessor(MultiChannelCascade filter, int poolSize) {
+		super(pool(poolSize));
+		m_cascade = null;
+		m_multi = Objects.requireNonNull(filter);
+	}
+
+	private static BlockPool<double[]> pool(int poolSize) {
+		return new BlockPool<double[]>(poolSize) {
+			double[] allocate(int length) {
+				return new double[length];
+			}
+
+			int length(double[] block) {
+				return block.length;
+			}
+		};
+	}
+
+	@Override
+	void filter(double[] in, double[] out) {
+		if (m_cascade != null) {
+			m_cascade.filter(in, 0, out, 0, in.length);
+			return;
+		}
+		final int nc = m_multi.getNumChannels();
+		if (in.length % nc != 0) {
+			throw new IllegalArgumentException("A block of " + in.length
+					+ " samples doesn't contain whole frames of " + nc + " channels.");
+		}
+		m_multi.filter(in, 0, out, 0, in.length / nc);
+	}
+
+	@Override
+	int length(double[] block) {
+		return block.length;
+	}
+}
@@ -0,0 +1,71 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * 
+ *  Copyright (c) 2016 by Bernd Porr
+ */
+
+package uk.me.berndporr.iirj.flow;
+
+import java.util.Objects;
+
+import uk.me.berndporr.iirj.FloatCascade;
+
+/**
+ * The single precision version of FilterProcessor which filters
+ * blocks of floats with a FloatCascade.
+ */
+public class FloatFilterProcessor extends AbstractFilterProcessor<float[]> {
+
+	private final FloatCascade m_cascade;
+
+	/**
+	 * Filters every block with a filter.
+	 *
+	 * @param filter The filter which is used for all blocks
+	 */
+	public FloatFilterProcessor(FloatCascade filter) {
+		this(filter, FilterProcessor.DEFAULT_POOL_SIZE);
+	}
+
+	/**
+	 * Filters every block with a filter.
+	 *
+	 * @param filter   The filter which is used for all blocks
+	 * @param poolSize Number of filtered blocks kept for reuse
+	 */
+	public FloatFilterProcessor(FloatCascade filter, int poolSize) {
+		super(new BlockPool<float[]>(poolSize) {
+			float[] allocate(int length) {
+				return new float[length];
+			}
+
+			int length(float[] block) {
+				return block.length;
+			}
+		});
+		m_cascade = Objects.requireNonNull(filter);
+	}
+
+	@Override
+	void filter(float[] in, float[] out) {
+		m_cascade.filter(in, 0, out, 0, in.length);
+	}
+
+	@Override
+	int length(float[] block) {
+		return block.length;
+	}
+}
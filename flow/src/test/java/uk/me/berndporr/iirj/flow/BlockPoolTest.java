@@ -0,0 +1,73 @@
+package uk.me.berndporr.iirj.flow;
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+import org.junit.Assert;
+import org.junit.Test;
+
+// Reuses released blocks of the same length
+public class BlockPoolTest {
+
+	BlockPool<double[]> pool(int capacity) {
+		return new BlockPool<double[]>(capacity) {
+			double[] allocate(int length) {
+				return new double[length];
+			}
+
+			int length(double[] block) {
+				return block.length;
+			}
+		};
+	}
+
+	@Test
+	public void reusesBlocks() {
+		BlockPool<double[]> pool = pool(2);
+		double[] a = pool.acquire(16);
+		double[] b = pool.acquire(16);
+		Assert.assertNotSame(a, b);
+		pool.release(a);
+		Assert.assertSame(a, pool.acquire(16));
+		// a block is only handed out once
+		Assert.assertNotSame(a, pool.acquire(16));
+	}
+
+	@Test
+	public void matchesLength() {
+		BlockPool<double[]> pool = pool(4);
+		double[] small = pool.acquire(8);
+		double[] large = pool.acquire(32);
+		pool.release(small);
+		pool.release(large);
+		Assert.assertSame(large, pool.acquire(32));
+		Assert.assertEquals(16, pool.acquire(16).length);
+		Assert.assertSame(small, pool.acquire(8));
+	}
+
+	@Test
+	public void dropsBlocksWhenFull() {
+		BlockPool<double[]> pool = pool(1);
+		double[] a = pool.acquire(4);
+		double[] b = pool.acquire(4);
+		pool.release(a);
+		pool.release(b);
+		Assert.assertSame(a, pool.acquire(4));
+		Assert.assertNotSame(b, pool.acquire(4));
+	}
+
+}
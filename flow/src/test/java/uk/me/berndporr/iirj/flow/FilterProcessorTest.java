@@ -0,0 +1,390 @@
+package uk.me.berndporr.iirj.flow;
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Flow;
+import java.util.concurrent.SubmissionPublisher;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Test;
+
+import uk.me.berndporr.iirj.Butterworth;
+import uk.me.berndporr.iirj.FloatCascade;
+import uk.me.berndporr.iirj.MultiChannelCascade;
+
+// Streams blocks from a SubmissionPublisher through the processors
+public class FilterProcessorTest {
+
+	static final double fs = 1000;
+	static final int blockSize = 64;
+
+	final ExecutorService executor = Executors.newFixedThreadPool(4);
+
+	@After
+	public void shutdown() {
+		executor.shutdownNow();
+	}
+
+	// records the signals and checks that they are never concurrent
+	static class Recorder implements Flow.Subscriber<double[]> {
+		final FilterProcessor processor;
+		final long initialDemand;
+		final List<double[]> blocks = new ArrayList<double[]>();
+		final AtomicInteger inside = new AtomicInteger();
+		final CountDownLatch terminated = new CountDownLatch(1);
+		volatile Flow.Subscription subscription;
+		volatile Throwable error;
+		volatile boolean completed;
+		volatile boolean overlapped;
+		volatile boolean afterTerminal;
+		volatile int numTerminal;
+
+		Recorder(FilterProcessor processor, long initialDemand) {
+			this.processor = processor;
+			this.initialDemand = initialDemand;
+		}
+
+		void enter() {
+			if (inside.getAndIncrement() != 0) {
+				overlapped = true;
+			}
+		}
+
+		void leave() {
+			inside.decrementAndGet();
+		}
+
+		public void onSubscribe(Flow.Subscription s) {
+			subscription = s;
+			if (initialDemand > 0) {
+				s.request(initialDemand);
+			}
+		}
+
+		public void onNext(double[] block) {
+			enter();
+			if (numTerminal > 0) {
+				afterTerminal = true;
+			}
+			synchronized (blocks) {
+				blocks.add(block.clone());
+			}
+			processor.recycle(block);
+			next();
+			leave();
+		}
+
+		void next() {
+		}
+
+		public void onError(Throwable t) {
+			enter();
+			error = t;
+			numTerminal++;
+			terminated.countDown();
+			leave();
+		}
+
+		public void onComplete() {
+			enter();
+			completed = true;
+			numTerminal++;
+			terminated.countDown();
+			leave();
+		}
+
+		int size() {
+			synchronized (blocks) {
+				return blocks.size();
+			}
+		}
+
+		double[] samples() {
+			synchronized (blocks) {
+				double[] all = new double[blocks.size() * blockSize];
+				for (int i = 0; i < blocks.size(); i++) {
+					System.arraycopy(blocks.get(i), 0, all, i * blockSize, blockSize);
+				}
+				return all;
+			}
+		}
+	}
+
+	static double[] block(int n) {
+		double[] b = new double[blockSize];
+		for (int i = 0; i < blockSize; i++) {
+			b[i] = Math.sin((n * blockSize + i) * 0.05) + Math.cos((n * blockSize + i) * 1.3);
+		}
+		return b;
+	}
+
+	static Butterworth lowPass() {
+		Butterworth butterworth = new Butterworth();
+		butterworth.lowPass(4, fs, 50);
+		return butterworth;
+	}
+
+	static void awaitSize(Recorder recorder, int n) throws InterruptedException {
+		for (int i = 0; (i < 500) && (recorder.size() < n); i++) {
+			Thread.sleep(10);
+		}
+	}
+
+	@Test
+	public void backpressure() throws InterruptedException {
+		SubmissionPublisher<double[]> publisher = new SubmissionPublisher<double[]>(executor, 256);
+		FilterProcessor processor = new FilterProcessor(lowPass());
+		Recorder recorder = new Recorder(processor, 3);
+		publisher.subscribe(processor);
+		processor.subscribe(recorder);
+		for (int i = 0; i < 10; i++) {
+			publisher.submit(block(i));
+		}
+		awaitSize(recorder, 3);
+		Thread.sleep(100);
+		// the publisher has more but only three have been requested
+		Assert.assertEquals(3, recorder.size());
+		Assert.assertEquals(3, processor.getNumBlocks());
+		Assert.assertEquals(7, publisher.estimateMaximumLag());
+		recorder.subscription.request(7);
+		awaitSize(recorder, 10);
+		Assert.assertEquals(10, recorder.size());
+		publisher.close();
+		Assert.assertTrue(recorder.terminated.await(5, TimeUnit.SECONDS));
+		Assert.assertTrue(recorder.completed);
+		Assert.assertNull(recorder.error);
+		Assert.assertFalse(recorder.overlapped);
+	}
+
+	@Test
+	public void blocksAreFilteredInOrder() throws InterruptedException {
+		final int n = 500;
+		SubmissionPublisher<double[]> publisher = new SubmissionPublisher<double[]>(executor, 16);
+		FilterProcessor processor = new FilterProcessor(lowPass());
+		// one block at a time so that the delivering thread changes
+		Recorder recorder = new Recorder(processor, 1) {
+			void next() {
+				subscription.request(1);
+			}
+		};
+		publisher.subscribe(processor);
+		processor.subscribe(recorder);
+		Butterworth reference = lowPass();
+		double[] expected = new double[n * blockSize];
+		for (int i = 0; i < n; i++) {
+			double[] b = block(i);
+			System.arraycopy(b, 0, expected, i * blockSize, blockSize);
+			publisher.submit(b);
+		}
+		reference.filter(expected);
+		publisher.close();
+		Assert.assertTrue(recorder.terminated.await(10, TimeUnit.SECONDS));
+		Assert.assertTrue(recorder.completed);
+		Assert.assertArrayEquals(expected, recorder.samples(), 0);
+		Assert.assertFalse(recorder.overlapped);
+	}
+
+	@Test
+	public void multiChannel() throws InterruptedException {
+		final int nc = 4;
+		SubmissionPublisher<double[]> publisher = new SubmissionPublisher<double[]>(executor, 16);
+		FilterProcessor processor = new FilterProcessor(new MultiChannelCascade(lowPass(), nc));
+		Recorder recorder = new Recorder(processor, Long.MAX_VALUE);
+		publisher.subscribe(processor);
+		processor.subscribe(recorder);
+		Butterworth[] reference = new Butterworth[nc];
+		for (int c = 0; c < nc; c++) {
+			reference[c] = lowPass();
+		}
+		List<Double> expected = new ArrayList<Double>();
+		for (int i = 0; i < 20; i++) {
+			double[] b = block(i);
+			for (int j = 0; j < blockSize; j++) {
+				expected.add(reference[j % nc].filter(b[j]));
+			}
+			publisher.submit(b);
+		}
+		publisher.close();
+		Assert.assertTrue(recorder.terminated.await(5, TimeUnit.SECONDS));
+		double[] samples = recorder.samples();
+		Assert.assertEquals(expected.size(), samples.length);
+		for (int i = 0; i < samples.length; i++) {
+			Assert.assertEquals(expected.get(i), samples[i], 0);
+		}
+	}
+
+	@Test
+	public void cancellation() throws InterruptedException {
+		SubmissionPublisher<double[]> publisher = new SubmissionPublisher<double[]>(executor, 256);
+		FilterProcessor processor = new FilterProcessor(lowPass());
+		Recorder recorder = new Recorder(processor, Long.MAX_VALUE) {
+			void next() {
+				if (size() == 5) {
+					subscription.cancel();
+				}
+			}
+		};
+		publisher.subscribe(processor);
+		processor.subscribe(recorder);
+		for (int i = 0; i < 5; i++) {
+			publisher.submit(block(i));
+		}
+		awaitSize(recorder, 5);
+		for (int i = 5; i < 100; i++) {
+			publisher.submit(block(i));
+		}
+		Thread.sleep(100);
+		Assert.assertEquals(5, recorder.size());
+		Assert.assertEquals(0, publisher.getNumberOfSubscribers());
+		publisher.close();
+		Thread.sleep(100);
+		// no terminal signal after a cancellation
+		Assert.assertEquals(0, recorder.numTerminal);
+		// requests after a cancellation are ignored
+		recorder.subscription.request(0);
+		Assert.assertEquals(0, recorder.numTerminal);
+	}
+
+	// rule 3.9: request(n <= 0) signals an IllegalArgumentException
+	@Test
+	public void nonPositiveRequest() throws InterruptedException {
+		SubmissionPublisher<double[]> publisher = new SubmissionPublisher<double[]>(executor, 256);
+		FilterProcessor processor = new FilterProcessor(lowPass());
+		Recorder recorder = new Recorder(processor, 2);
+		publisher.subscribe(processor);
+		processor.subscribe(recorder);
+		publisher.submit(block(0));
+		awaitSize(recorder, 1);
+		recorder.subscription.request(0);
+		Assert.assertTrue(recorder.terminated.await(5, TimeUnit.SECONDS));
+		Assert.assertTrue(recorder.error instanceof IllegalArgumentException);
+		for (int i = 1; i < 10; i++) {
+			publisher.submit(block(i));
+		}
+		Thread.sleep(100);
+		Assert.assertEquals(1, recorder.size());
+		Assert.assertEquals(1, recorder.numTerminal);
+		Assert.assertEquals(0, publisher.getNumberOfSubscribers());
+		publisher.close();
+	}
+
+	// the error of request(-1) from another thread while blocks are delivered
+	@Test
+	public void nonPositiveRequestWhileStreaming() throws InterruptedException {
+		for (int run = 0; run < 50; run++) {
+			final SubmissionPublisher<double[]> publisher =
+					new SubmissionPublisher<double[]>(executor, 256);
+			FilterProcessor processor = new FilterProcessor(lowPass());
+			// onNext takes a while so that the request arrives during it
+			final Recorder recorder = new Recorder(processor, Long.MAX_VALUE) {
+				void next() {
+					final long end = System.nanoTime() + 20000;
+					while (System.nanoTime() < end) {
+						Thread.onSpinWait();
+					}
+				}
+			};
+			publisher.subscribe(processor);
+			processor.subscribe(recorder);
+			Thread producer = new Thread(new Runnable() {
+				public void run() {
+					for (int i = 0; (i < 2000) && !publisher.isClosed(); i++) {
+						if (publisher.getNumberOfSubscribers() == 0) {
+							break;
+						}
+						publisher.offer(block(i), null);
+					}
+				}
+			});
+			producer.start();
+			awaitSize(recorder, 1 + run % 10);
+			recorder.subscription.request(-1);
+			Assert.assertTrue(recorder.terminated.await(5, TimeUnit.SECONDS));
+			producer.join();
+			publisher.close();
+			Thread.sleep(5);
+			Assert.assertTrue(recorder.error instanceof IllegalArgumentException);
+			Assert.assertEquals(1, recorder.numTerminal);
+			Assert.assertFalse(recorder.overlapped);
+			Assert.assertFalse(recorder.afterTerminal);
+		}
+	}
+
+	@Test
+	public void onlyOneSubscriber() {
+		FilterProcessor processor = new FilterProcessor(lowPass());
+		Recorder first = new Recorder(processor, 1);
+		Recorder second = new Recorder(processor, 1);
+		processor.subscribe(first);
+		processor.subscribe(second);
+		Assert.assertNull(first.error);
+		Assert.assertTrue(second.error instanceof IllegalStateException);
+	}
+
+	@Test
+	public void singlePrecision() throws InterruptedException {
+		SubmissionPublisher<float[]> publisher = new SubmissionPublisher<float[]>(executor, 16);
+		final FloatFilterProcessor processor = new FloatFilterProcessor(new FloatCascade(lowPass()));
+		final List<float[]> received = new ArrayList<float[]>();
+		final CountDownLatch done = new CountDownLatch(1);
+		publisher.subscribe(processor);
+		processor.subscribe(new Flow.Subscriber<float[]>() {
+			public void onSubscribe(Flow.Subscription s) {
+				s.request(Long.MAX_VALUE);
+			}
+
+			public void onNext(float[] block) {
+				received.add(block.clone());
+				processor.recycle(block);
+			}
+
+			public void onError(Throwable t) {
+			}
+
+			public void onComplete() {
+				done.countDown();
+			}
+		});
+		FloatCascade reference = new FloatCascade(lowPass());
+		float[][] expected = new float[20][blockSize];
+		for (int i = 0; i < expected.length; i++) {
+			double[] b = block(i);
+			float[] f = new float[blockSize];
+			for (int j = 0; j < blockSize; j++) {
+				f[j] = (float) b[j];
+				expected[i][j] = reference.filter(f[j]);
+			}
+			publisher.submit(f);
+		}
+		publisher.close();
+		Assert.assertTrue(done.await(5, TimeUnit.SECONDS));
+		Assert.assertEquals(expected.length, received.size());
+		for (int i = 0; i < expected.length; i++) {
+			Assert.assertArrayEquals(expected[i], received.get(i), 0);
+		}
+	}
+
+}
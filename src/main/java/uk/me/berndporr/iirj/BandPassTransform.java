@@ -21,21 +21,19 @@
 
 package uk.me.berndporr.iirj;
 
-import org.apache.commons.math3.complex.Complex;
-
 /**
  * Transforms from an analogue bandpass filter to a digital bandstop filter
  */
 public class BandPassTransform {
 
-	private double wc2;
-	private double wc;
-	private double a, b;
-	private double a2, b2;
-	private double ab, ab_2;
-
 	public BandPassTransform(double fc, double fw, LayoutBase digital,
 			LayoutBase analog) {
+		transform(fc, fw, digital, analog);
+	}
+
+	// transforms the analogue prototype into the digital layout
+	static void transform(double fc, double fw, LayoutBase digital,
+			LayoutBase analog) {
 
 		digital.reset();
 
@@ -50,8 +48,8 @@ public class BandPassTransform {
 		double ww = 2 * Math.PI * fw;
 
 		// pre-calcs
-		wc2 = 2 * Math.PI * fc - (ww / 2);
-		wc = wc2 + ww;
+		double wc2 = 2 * Math.PI * fc - (ww / 2);
+		double wc = wc2 + ww;
 
 		// what is this crap?
 		if (wc2 < 1e-8)
@@ -59,29 +57,26 @@ public class BandPassTransform {
 		if (wc > Math.PI - 1e-8)
 			wc = Math.PI - 1e-8;
 
-		a = Math.cos((wc + wc2) * 0.5) / Math.cos((wc - wc2) * 0.5);
-		b = 1 / Math.tan((wc - wc2) * 0.5);
-		a2 = a * a;
-		b2 = b * b;
-		ab = a * b;
-		ab_2 = 2 * ab;
+		double a = Math.cos((wc + wc2) * 0.5) / Math.cos((wc - wc2) * 0.5);
+		double b = 1 / Math.tan((wc - wc2) * 0.5);
 
+		// poles in t[0..3], zeros in t[4..7]
+		double[] t = digital.m_scratch;
 		int numPoles = analog.getNumPoles();
 		int pairs = numPoles / 2;
 		for (int i = 0; i < pairs; ++i) {
-			PoleZeroPair pair = analog.getPair(i);
-			ComplexPair p1 = transform(pair.poles.first);
-			ComplexPair z1 = transform(pair.zeros.first);
+			transform(a, b, analog.getPoleRe(2 * i), analog.getPoleIm(2 * i), t, 0);
+			transform(a, b, analog.getZeroRe(2 * i), analog.getZeroIm(2 * i), t, 4);
 
-			digital.addPoleZeroConjugatePairs(p1.first, z1.first);
-			digital.addPoleZeroConjugatePairs(p1.second, z1.second);
+			digital.addPoleZeroConjugatePairs(t[0], t[1], t[4], t[5]);
+			digital.addPoleZeroConjugatePairs(t[2], t[3], t[6], t[7]);
 		}
 
 		if ((numPoles & 1) == 1) {
-			ComplexPair poles = transform(analog.getPair(pairs).poles.first);
-			ComplexPair zeros = transform(analog.getPair(pairs).zeros.first);
+			transform(a, b, analog.getPoleRe(2 * pairs), analog.getPoleIm(2 * pairs), t, 0);
+			transform(a, b, analog.getZeroRe(2 * pairs), analog.getZeroIm(2 * pairs), t, 4);
 
-			digital.add(poles, zeros);
+			digital.add(t[0], t[1], t[4], t[5], t[2], t[3], t[6], t[7]);
 		}
 
 		double wn = analog.getNormalW();
@@ -90,31 +85,48 @@ public class BandPassTransform {
 						* Math.tan((wc2 + wn) * 0.5))), analog.getNormalGain());
 	}
 
-	private ComplexPair transform(Complex c) {
-		if (c.isInfinite()) {
-			return new ComplexPair(new Complex(-1), new Complex(1));
+	// transforms one pole or zero into two which are written to
+	// out[off..off+1] and out[off+2..off+3]
+	private static void transform(double a, double b, double re, double im,
+			double[] out, int off) {
+		if (MathSupplement.isInfinite(re, im)) {
+			out[off] = -1;
+			out[off + 1] = 0;
+			out[off + 2] = 1;
+			out[off + 3] = 0;
+			return;
 		}
 
-		c = ((new Complex(1)).add(c)).divide((new Complex(1)).subtract(c)); // bilinear
+		double a2 = a * a;
+		double b2 = b * b;
+		double ab_2 = 2 * a * b;
+
+		// bilinear
+		MathSupplement.divide(1 + re, im, 1 - re, -im, out, off);
+		double cr = out[off];
+		double ci = out[off + 1];
 
-		Complex v = new Complex(0);
-		v = MathSupplement.addmul(v, 4 * (b2 * (a2 - 1) + 1), c);
-		v = v.add(8 * (b2 * (a2 - 1) - 1));
-		v = v.multiply(c);
-		v = v.add(4 * (b2 * (a2 - 1) + 1));
-		v = v.sqrt();
+		double k = 4 * (b2 * (a2 - 1) + 1);
+		double vr = k * cr + 8 * (b2 * (a2 - 1) - 1);
+		double vi = k * ci;
+		double t = vr * cr - vi * ci;
+		vi = vr * ci + vi * cr;
+		vr = t + 4 * (b2 * (a2 - 1) + 1);
+		MathSupplement.sqrt(vr, vi, out, off);
+		vr = out[off];
+		vi = out[off + 1];
 
-		Complex u = v.multiply(-1);
-		u = MathSupplement.addmul(u, ab_2, c);
-		u = u.add(ab_2);
+		double ur = -vr + ab_2 * cr + ab_2;
+		double ui = -vi + ab_2 * ci;
 
-		v = MathSupplement.addmul(v, ab_2, c);
-		v = v.add(ab_2);
+		vr = vr + ab_2 * cr + ab_2;
+		vi = vi + ab_2 * ci;
 
-		Complex d = new Complex(0);
-		d = MathSupplement.addmul(d, 2 * (b - 1), c).add(2 * (1 + b));
+		double dr = 2 * (b - 1) * cr + 2 * (1 + b);
+		double di = 2 * (b - 1) * ci;
 
-		return new ComplexPair(u.divide(d), v.divide(d));
+		MathSupplement.divide(ur, ui, dr, di, out, off);
+		MathSupplement.divide(vr, vi, dr, di, out, off + 2);
 	}
 
 }
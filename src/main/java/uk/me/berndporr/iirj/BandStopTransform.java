@@ -19,26 +19,23 @@
  */
 
 package uk.me.berndporr.iirj;
-import org.apache.commons.math3.complex.Complex;
-
 /**
  * Transforms from an analogue lowpass filter to a digital bandstop filter
  */
 public class BandStopTransform {
 
-
-  private double wc;
-  private double wc2;
-  private double a;
-  private double b;
-  private double a2;
-  private double b2;
-
-
   public BandStopTransform(double fc,
 			   double fw,
 			   LayoutBase digital,
 			   LayoutBase analog) {
+	transform(fc, fw, digital, analog);
+  }
+
+  // transforms the analogue prototype into the digital layout
+  static void transform(double fc,
+			double fw,
+			LayoutBase digital,
+			LayoutBase analog) {
         digital.reset();
 
 	if (fc < 0) {
@@ -51,8 +48,8 @@ public class BandStopTransform {
 
         double ww = 2 * Math.PI * fw;
 
-        wc2 = 2 * Math.PI * fc - (ww / 2);
-        wc = wc2 + ww;
+        double wc2 = 2 * Math.PI * fc - (ww / 2);
+        double wc = wc2 + ww;
 
         // this is crap
         if (wc2 < 1e-8)
@@ -60,27 +57,26 @@ public class BandStopTransform {
         if (wc > Math.PI - 1e-8)
             wc = Math.PI - 1e-8;
 
-        a = Math.cos((wc + wc2) * .5) /
+        double a = Math.cos((wc + wc2) * .5) /
                 Math.cos((wc - wc2) * .5);
-        b = Math.tan((wc - wc2) * .5);
-        a2 = a * a;
-        b2 = b * b;
+        double b = Math.tan((wc - wc2) * .5);
 
+        // poles in t[0..3], zeros in t[4..7]
+        double[] t = digital.m_scratch;
         int numPoles = analog.getNumPoles();
         int pairs = numPoles / 2;
         for (int i = 0; i < pairs; i++) {
-            PoleZeroPair pair = analog.getPair(i);
-            ComplexPair p = transform(pair.poles.first);
-            ComplexPair z = transform(pair.zeros.first);
-            digital.addPoleZeroConjugatePairs(p.first, z.first);
-            digital.addPoleZeroConjugatePairs(p.second, z.second);
+            transform(a, b, analog.getPoleRe(2 * i), analog.getPoleIm(2 * i), t, 0);
+            transform(a, b, analog.getZeroRe(2 * i), analog.getZeroIm(2 * i), t, 4);
+            digital.addPoleZeroConjugatePairs(t[0], t[1], t[4], t[5]);
+            digital.addPoleZeroConjugatePairs(t[2], t[3], t[6], t[7]);
         }
 
         if ((numPoles & 1) == 1) {
-            ComplexPair poles = transform(analog.getPair(pairs).poles.first);
-            ComplexPair zeros = transform(analog.getPair(pairs).zeros.first);
+            transform(a, b, analog.getPoleRe(2 * pairs), analog.getPoleIm(2 * pairs), t, 0);
+            transform(a, b, analog.getZeroRe(2 * pairs), analog.getZeroIm(2 * pairs), t, 4);
 
-            digital.add(poles, zeros);
+            digital.add(t[0], t[1], t[4], t[5], t[2], t[3], t[6], t[7]);
         }
 
         if (fc < 0.25)
@@ -89,31 +85,45 @@ public class BandStopTransform {
             digital.setNormal(0, analog.getNormalGain());
     }
 
-    private ComplexPair transform(Complex c) {
-        if (c.isInfinite())
-            c = new Complex(-1);
-        else
-            c = ((new Complex(1)).add(c)).divide((new Complex(1)).subtract(c)); // bilinear
+    // transforms one pole or zero into two which are written to
+    // out[off..off+1] and out[off+2..off+3]
+    private static void transform(double a, double b, double re, double im,
+                                  double[] out, int off) {
+        double a2 = a * a;
+        double b2 = b * b;
+
+        double cr;
+        double ci;
+        if (MathSupplement.isInfinite(re, im)) {
+            cr = -1;
+            ci = 0;
+        } else {
+            MathSupplement.divide(1 + re, im, 1 - re, -im, out, off); // bilinear
+            cr = out[off];
+            ci = out[off + 1];
+        }
 
-        Complex u = new Complex(0);
-        u = MathSupplement.addmul(u, 4 * (b2 + a2 - 1), c);
-        u = u.add(8 * (b2 - a2 + 1));
-        u = u.multiply(c);
-        u = u.add(4 * (a2 + b2 - 1));
-        u = u.sqrt();
+        double k = 4 * (b2 + a2 - 1);
+        double ur = k * cr + 8 * (b2 - a2 + 1);
+        double ui = k * ci;
+        double t = ur * cr - ui * ci;
+        ui = ur * ci + ui * cr;
+        ur = t + 4 * (a2 + b2 - 1);
+        MathSupplement.sqrt(ur, ui, out, off);
+        ur = out[off];
+        ui = out[off + 1];
 
-        Complex v = u.multiply(-.5);
-        v = v.add(a);
-        v = MathSupplement.addmul(v, -a, c);
+        double vr = ur * -.5 + a - a * cr;
+        double vi = ui * -.5 - a * ci;
 
-        u = u.multiply(.5);
-        u = u.add(a);
-        u = MathSupplement.addmul(u, -a, c);
+        ur = ur * .5 + a - a * cr;
+        ui = ui * .5 - a * ci;
 
-        Complex d = new Complex(b + 1);
-        d = MathSupplement.addmul(d, b - 1, c);
+        double dr = (b + 1) + (b - 1) * cr;
+        double di = (b - 1) * ci;
 
-        return new ComplexPair(u.divide(d), v.divide(d));
+        MathSupplement.divide(ur, ui, dr, di, out, off);
+        MathSupplement.divide(vr, vi, dr, di, out, off + 2);
     }
 
 }
@@ -38,40 +38,54 @@ public class Bessel extends Cascade
 
 		int degree;
 
+		// the upper half plane poles (and the real one) of this degree
+		private final double[] m_rootRe;
+		private final double[] m_rootIm;
+
 		public AnalogLowPass(int _degree) {
 			super(_degree);
 			degree = _degree;
 			setNormal(0, 1);
+			Complex[] root = getPoles(degree);
+			m_rootRe = new double[(degree + 1) / 2];
+			m_rootIm = new double[(degree + 1) / 2];
+			for (int i = 0; i < m_rootRe.length; ++i) {
+				m_rootRe[i] = root[i].getReal();
+				m_rootIm[i] = root[i].getImaginary();
+			}
 		}
 
 		public void design() {
 			reset();
 
-			Complex[] m_root = getPoles(degree);
-
-			Complex inf = Complex.INF;
+			double inf = Double.POSITIVE_INFINITY;
 			int pairs = degree / 2;
 			for (int i = 0; i < pairs; ++i) {
-				Complex c = m_root[i];
-				addPoleZeroConjugatePairs(c, inf);
+				addPoleZeroConjugatePairs(m_rootRe[i], m_rootIm[i], inf, 0);
 			}
 
 			if ((degree & 1) == 1) {
-				add(new Complex(m_root[pairs].getReal()), inf);
+				add(m_rootRe[pairs], 0, inf, 0);
 			}
 		}
 	}
 
+
+	@Override
+	AnalogLowPass newAnalogProto(int order) {
+		return new AnalogLowPass(order);
+	}
+
 	private void setupLowPass(int order, double sampleRate,
 							  double cutoffFrequency, int directFormType) {
 
-		AnalogLowPass m_analogProto = new AnalogLowPass(order);
+		AnalogLowPass m_analogProto = (AnalogLowPass) analogProto(order);
 
 		m_analogProto.design();
 
-		LayoutBase m_digitalProto = new LayoutBase(order);
+		LayoutBase m_digitalProto = digitalProto(order);
 
-		new LowPassTransform(cutoffFrequency / sampleRate, m_digitalProto,
+		LowPassTransform.transform(cutoffFrequency / sampleRate, m_digitalProto,
 				m_analogProto);
 
 		setLayout(m_digitalProto, directFormType);
@@ -96,7 +110,8 @@ public class Bessel extends Cascade
 	 * @param sampleRate      The sampling rate of the system
 	 * @param cutoffFrequency The cutoff frequency
 	 * @param directFormType  The filter topology. This is either
-	 *                        DirectFormAbstract.DIRECT_FORM_I or DIRECT_FORM_II
+	 *                        DirectFormAbstract.DIRECT_FORM_I, DIRECT_FORM_II
+	 *                        or DIRECT_FORM_II_TRANSPOSED
 	 */
 	public void lowPass(int order, double sampleRate, double cutoffFrequency,
 						int directFormType) {
@@ -106,12 +121,12 @@ public class Bessel extends Cascade
 	private void setupHighPass(int order, double sampleRate,
 							   double cutoffFrequency, int directFormType) {
 
-		AnalogLowPass m_analogProto = new AnalogLowPass(order);
+		AnalogLowPass m_analogProto = (AnalogLowPass) analogProto(order);
 		m_analogProto.design();
 
-		LayoutBase m_digitalProto = new LayoutBase(order);
+		LayoutBase m_digitalProto = digitalProto(order);
 
-		new HighPassTransform(cutoffFrequency / sampleRate, m_digitalProto,
+		HighPassTransform.transform(cutoffFrequency / sampleRate, m_digitalProto,
 				m_analogProto);
 
 		setLayout(m_digitalProto, directFormType);
@@ -145,12 +160,12 @@ public class Bessel extends Cascade
 	private void setupBandStop(int order, double sampleRate,
 							   double centerFrequency, double widthFrequency, int directFormType) {
 
-		AnalogLowPass m_analogProto = new AnalogLowPass(order);
+		AnalogLowPass m_analogProto = (AnalogLowPass) analogProto(order);
 		m_analogProto.design();
 
-		LayoutBase m_digitalProto = new LayoutBase(order * 2);
+		LayoutBase m_digitalProto = digitalProto(order * 2);
 
-		new BandStopTransform(centerFrequency / sampleRate, widthFrequency
+		BandStopTransform.transform(centerFrequency / sampleRate, widthFrequency
 				/ sampleRate, m_digitalProto, m_analogProto);
 
 		setLayout(m_digitalProto, directFormType);
@@ -188,12 +203,12 @@ public class Bessel extends Cascade
 	private void setupBandPass(int order, double sampleRate,
 							   double centerFrequency, double widthFrequency, int directFormType) {
 
-		AnalogLowPass m_analogProto = new AnalogLowPass(order);
+		AnalogLowPass m_analogProto = (AnalogLowPass) analogProto(order);
 		m_analogProto.design();
 
-		LayoutBase m_digitalProto = new LayoutBase(order * 2);
+		LayoutBase m_digitalProto = digitalProto(order * 2);
 
-		new BandPassTransform(centerFrequency / sampleRate, widthFrequency
+		BandPassTransform.transform(centerFrequency / sampleRate, widthFrequency
 				/ sampleRate, m_digitalProto, m_analogProto);
 
 		setLayout(m_digitalProto, directFormType);
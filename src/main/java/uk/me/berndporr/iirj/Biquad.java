@@ -35,6 +35,10 @@ public class Biquad {
     double m_b2;
     double m_b0;
 
+    // packed coefficient array of a Cascade this Biquad is a view of
+    private double[] m_packed;
+    private int m_packedOffset;
+
     public double getA0() {
         return m_a0;
     }
@@ -93,6 +97,7 @@ public class Biquad {
         m_b0 = b0 / a0;
         m_b1 = b1 / a0;
         m_b2 = b2 / a0;
+        writeThrough();
     }
 
     public void setOnePole(Complex pole, Complex zero) {
@@ -151,8 +156,82 @@ public class Biquad {
         m_b0 *= scale;
         m_b1 *= scale;
         m_b2 *= scale;
+        writeThrough();
+    }
+
+    // makes this Biquad a view of stage coefficients in a packed array
+    void bind(double[] packed, int offset) {
+        m_packed = packed;
+        m_packedOffset = offset;
+        writeThrough();
     }
 
+    // takes over the coefficients of another Biquad
+    void set(Biquad other) {
+        m_a0 = other.m_a0;
+        m_a1 = other.m_a1;
+        m_a2 = other.m_a2;
+        m_b0 = other.m_b0;
+        m_b1 = other.m_b1;
+        m_b2 = other.m_b2;
+        writeThrough();
+    }
+
+    // takes over the coefficients from the packed array after they
+    // have been replaced there
+    void readBack() {
+        m_a0 = 1;
+        m_b0 = m_packed[m_packedOffset];
+        m_b1 = m_packed[m_packedOffset + 1];
+        m_b2 = m_packed[m_packedOffset + 2];
+        m_a1 = m_packed[m_packedOffset + 3];
+        m_a2 = m_packed[m_packedOffset + 4];
+    }
+
+    private void writeThrough() {
+        if (m_packed != null) {
+            m_packed[m_packedOffset] = m_b0;
+            m_packed[m_packedOffset + 1] = m_b1;
+            m_packed[m_packedOffset + 2] = m_b2;
+            m_packed[m_packedOffset + 3] = m_a1;
+            m_packed[m_packedOffset + 4] = m_a2;
+        }
+    }
+
+
+    // sets the coefficients from pair pairIndex of a layout
+    void setPoleZeroPair(LayoutBase layout, int pairIndex) {
+        int i = pairIndex * 2;
+        double p1r = layout.getPoleRe(i);
+        double p1i = layout.getPoleIm(i);
+        double z1r = layout.getZeroRe(i);
+        double z1i = layout.getZeroIm(i);
+        if (layout.isSinglePole(pairIndex)) {
+            setCoefficients(1, -p1r, 0, 1, -z1r, 0);
+            return;
+        }
+        double p2r = layout.getPoleRe(i + 1);
+        double z2r = layout.getZeroRe(i + 1);
+        double a1;
+        double a2;
+        if (p1i != 0) {
+            a1 = -2 * p1r;
+            a2 = p1r * p1r + p1i * p1i;
+        } else {
+            a1 = -(p1r + p2r);
+            a2 = p1r * p2r;
+        }
+        double b1;
+        double b2;
+        if (z1i != 0) {
+            b1 = -2 * z1r;
+            b2 = z1r * z1r + z1i * z1i;
+        } else {
+            b1 = -(z1r + z2r);
+            b2 = z1r * z2r;
+        }
+        setCoefficients(1, a1, a2, 1, b1, b2);
+    }
 
     public void setPoleZeroPair(PoleZeroPair pair) {
         if (pair.isSinglePole()) {
@@ -21,9 +21,6 @@
 
 package uk.me.berndporr.iirj;
 
-import org.apache.commons.math3.complex.Complex;
-import org.apache.commons.math3.complex.ComplexUtils;
-
 /**
  *         User facing class which contains all the methods the user uses
  *         to create Butterworth filters. This done in this way:
@@ -49,25 +46,31 @@ public class Butterworth extends Cascade {
 			double n2 = 2 * nPoles;
 			int pairs = nPoles / 2;
 			for (int i = 0; i < pairs; ++i) {
-				Complex c = ComplexUtils.polar2Complex(1F, Math.PI/2.0
-						+ (2 * i + 1) * Math.PI / n2);
-				addPoleZeroConjugatePairs(c, Complex.INF);
+				double theta = Math.PI/2.0 + (2 * i + 1) * Math.PI / n2;
+				addPoleZeroConjugatePairs(Math.cos(theta), Math.sin(theta),
+						Double.POSITIVE_INFINITY, 0);
 			}
 
 			if ((nPoles & 1) == 1)
-				add(new Complex(-1), Complex.INF);
+				add(-1, 0, Double.POSITIVE_INFINITY, 0);
 		}
 	}
 
+
+	@Override
+	AnalogLowPass newAnalogProto(int order) {
+		return new AnalogLowPass(order);
+	}
+
 	private void setupLowPass(int order, double sampleRate,
 			double cutoffFrequency, int directFormType) {
 
-		AnalogLowPass m_analogProto = new AnalogLowPass(order);
+		AnalogLowPass m_analogProto = (AnalogLowPass) analogProto(order);
 		m_analogProto.design();
 
-		LayoutBase m_digitalProto = new LayoutBase(order);
+		LayoutBase m_digitalProto = digitalProto(order);
 
-		new LowPassTransform(cutoffFrequency / sampleRate, m_digitalProto,
+		LowPassTransform.transform(cutoffFrequency / sampleRate, m_digitalProto,
 				m_analogProto);
 
 		setLayout(m_digitalProto, directFormType);
@@ -99,7 +102,8 @@ public class Butterworth extends Cascade {
 	 *            The cutoff frequency
 	 * @param directFormType
 	 *            The filter topology. This is either
-	 *            DirectFormAbstract.DIRECT_FORM_I or DIRECT_FORM_II
+	 *            DirectFormAbstract.DIRECT_FORM_I, DIRECT_FORM_II
+	 *            or DIRECT_FORM_II_TRANSPOSED
 	 */
 	public void lowPass(int order, double sampleRate, double cutoffFrequency,
 			int directFormType) {
@@ -112,12 +116,12 @@ public class Butterworth extends Cascade {
 	private void setupHighPass(int order, double sampleRate,
 			double cutoffFrequency, int directFormType) {
 
-		AnalogLowPass m_analogProto = new AnalogLowPass(order);
+		AnalogLowPass m_analogProto = (AnalogLowPass) analogProto(order);
 		m_analogProto.design();
 
-		LayoutBase m_digitalProto = new LayoutBase(order);
+		LayoutBase m_digitalProto = digitalProto(order);
 
-		new HighPassTransform(cutoffFrequency / sampleRate, m_digitalProto,
+		HighPassTransform.transform(cutoffFrequency / sampleRate, m_digitalProto,
 				m_analogProto);
 
 		setLayout(m_digitalProto, directFormType);
@@ -161,12 +165,12 @@ public class Butterworth extends Cascade {
 	private void setupBandStop(int order, double sampleRate,
 			double centerFrequency, double widthFrequency, int directFormType) {
 
-		AnalogLowPass m_analogProto = new AnalogLowPass(order);
+		AnalogLowPass m_analogProto = (AnalogLowPass) analogProto(order);
 		m_analogProto.design();
 
-		LayoutBase m_digitalProto = new LayoutBase(order * 2);
+		LayoutBase m_digitalProto = digitalProto(order * 2);
 
-		new BandStopTransform(centerFrequency / sampleRate, widthFrequency
+		BandStopTransform.transform(centerFrequency / sampleRate, widthFrequency
 				/ sampleRate, m_digitalProto, m_analogProto);
 
 		setLayout(m_digitalProto, directFormType);
@@ -216,12 +220,12 @@ public class Butterworth extends Cascade {
 	private void setupBandPass(int order, double sampleRate,
 			double centerFrequency, double widthFrequency, int directFormType) {
 
-		AnalogLowPass m_analogProto = new AnalogLowPass(order);
+		AnalogLowPass m_analogProto = (AnalogLowPass) analogProto(order);
 		m_analogProto.design();
 
-		LayoutBase m_digitalProto = new LayoutBase(order * 2);
+		LayoutBase m_digitalProto = digitalProto(order * 2);
 
-		new BandPassTransform(centerFrequency / sampleRate, widthFrequency
+		BandPassTransform.transform(centerFrequency / sampleRate, widthFrequency
 				/ sampleRate, m_digitalProto, m_analogProto);
 
 		setLayout(m_digitalProto, directFormType);
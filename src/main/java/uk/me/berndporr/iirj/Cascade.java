@@ -21,6 +21,27 @@
 
 package uk.me.berndporr.iirj;
 
+import java.nio.Buffer;
+import java.nio.BufferOverflowException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.DoubleBuffer;
+import java.nio.FloatBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.BiConsumer;
+import java.util.function.BinaryOperator;
+import java.util.function.DoubleUnaryOperator;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.stream.Collector;
+import java.util.stream.DoubleStream;
+import java.util.stream.StreamSupport;
+
 import org.apache.commons.math3.complex.Complex;
 import org.apache.commons.math3.complex.ComplexUtils;
 
@@ -28,22 +49,81 @@ import org.apache.commons.math3.complex.ComplexUtils;
  * 
  * The mother of all filters. It contains the coefficients of all
  * filter stages as a sequence of 2nd order filters and the states
- * of the 2nd order filters which also imply if it's direct form I or II
+ * of the 2nd order filters which also imply if it's direct form I, II
+ * or transposed II.
+ *
+ * The coefficients of all stages are stored one after the other in a
+ * single array (b0,b1,b2,a1,a2 per stage, normalised by a0) and the
+ * states in another one so that the filter loop only walks primitive
+ * arrays. The Biquad objects returned by getBiquad() write any change
+ * of their coefficients through to this array.
+ *
+ * The coefficients can be replaced by another thread while this filter
+ * is running with publish(). The new coefficients are picked up at the
+ * start of the next sample or block without any locks. With
+ * setSmoothing() they are ramped in over a number of samples instead.
  *
  */
-public class Cascade {
+public class Cascade implements DoubleUnaryOperator {
 
-	// coefficients
+	// number of coefficients per stage in m_coeff
+	static final int COEFFS_PER_STAGE = 5;
+
+	// coefficients as Biquad objects for the design and getBiquad()
 	private Biquad[] m_biquads;
 
-	// the states of the filters
-	private DirectFormAbstract[] m_states;
+	// packed coefficients: b0,b1,b2,a1,a2 of every stage
+	private double[] m_coeff;
+
+	// packed states of every stage, the layout depends on m_directFormType
+	private double[] m_state;
+
+	// DirectFormAbstract.DIRECT_FORM_I, _II or _II_TRANSPOSED
+	private int m_directFormType;
 
 	// number of biquads in the system
 	private int m_numBiquads;
 
 	private int numPoles;
 
+	// magnitude at the normalisation frequency of a layout
+	private final double[] m_normMagnitude = new double[1];
+
+	// coefficients published by a control thread which haven't been
+	// picked up yet, and a bank which can be re-used for the next one
+	private final AtomicReference<double[]> m_published = new AtomicReference<double[]>();
+	private final AtomicReference<double[]> m_retired = new AtomicReference<double[]>();
+
+	// ramp of the coefficients towards published ones, see setSmoothing()
+	private int m_smoothing = 0;
+	private int m_rampRemaining = 0;
+	private double[] m_rampTarget;
+	private double[] m_rampStep;
+
+	// see setDenormalProtection()
+	private int m_denormalProtection = DenormalProtection.NONE;
+	private int m_noiseSeed = 1;
+	private int m_flushCountdown = DenormalProtection.FLUSH_INTERVAL;
+
+	// null unless health monitoring is switched on
+	private CascadeHealth m_health;
+
+	// null unless metrics are collected
+	private FilterMetrics m_metrics;
+
+	// extension of the data by filtfilt, kept for the next call
+	private double[] m_filtfiltPad;
+
+	// samples of a ByteBuffer are decoded and filtered in chunks
+	private static final int BYTE_CHUNK = 256;
+	private double[] m_byteChunk;
+
+	// prototypes kept from the last design so that redesigning
+	// with the same order doesn't allocate
+	private LayoutBase m_analogCache;
+	private int m_analogOrder;
+	private LayoutBase m_digitalCache;
+
 	public int getNumBiquads() {
 		return m_numBiquads;
 	}
@@ -52,27 +132,1082 @@ public class Cascade {
 		return m_biquads[index];
 	}
 
+	// packed coefficients b0,b1,b2,a1,a2 of all stages
+	double[] getPackedCoefficients() {
+		return m_coeff;
+	}
+
+	int getDirectFormType() {
+		return m_directFormType;
+	}
+
 	public Cascade() {
 		m_numBiquads = 0;
 		m_biquads = null;
-		m_states = null;
+		m_coeff = null;
+		m_state = null;
+		m_directFormType = DirectFormAbstract.DIRECT_FORM_II;
+	}
+
+	// independent filter with the current coefficients of other and
+	// its own states at zero
+	Cascade(Cascade other) {
+		m_numBiquads = other.m_numBiquads;
+		if (other.m_coeff != null) {
+			packCoefficients(other);
+		}
+		m_directFormType = other.m_directFormType;
+		numPoles = other.numPoles;
+		m_state = (other.m_state == null) ? null : new double[other.m_state.length];
+		m_denormalProtection = other.m_denormalProtection;
+		m_metrics = other.m_metrics;
 	}
 
 	public void reset() {
-		for (int i = 0; i < m_numBiquads; i++)
-			m_states[i].reset();
+		if (m_state != null) {
+			Arrays.fill(m_state, 0);
+		}
+	}
+
+	// header of a snapshot: direct form type and number of biquads
+	private static final int SNAPSHOT_HEADER = 2;
+
+	// "IIRS" and the version of the binary encoding of the states
+	private static final int STATE_MAGIC = 0x49495253;
+	private static final byte STATE_VERSION = 1;
+	private static final int STATE_ENCODING_HEADER = 4 + 1 + 1 + 4;
+
+	private int getNumStates() {
+		return (m_state == null) ? 0 : m_state.length;
+	}
+
+	/**
+	 * @return Number of doubles of a snapshot of the states
+	 */
+	public int getSnapshotSize() {
+		return SNAPSHOT_HEADER + getNumStates();
+	}
+
+	/**
+	 * Takes a snapshot of the states of the filter, for example for a
+	 * checkpoint of a stream processing job. After a restart the filter
+	 * is designed again and the snapshot restored with restoreState()
+	 * so that it continues without a transient. The snapshot contains
+	 * the direct form type, the number of biquads and the states.
+	 *
+	 * @return The snapshot
+	 */
+	public double[] snapshotState() {
+		double[] snapshot = new double[getSnapshotSize()];
+		snapshotState(snapshot, 0);
+		return snapshot;
+	}
+
+	/**
+	 * Takes a snapshot of the states without allocating memory.
+	 *
+	 * @param dst Destination array
+	 * @param off Index of the first double of the snapshot
+	 */
+	public void snapshotState(double[] dst, int off) {
+		checkBlock(dst, off, getSnapshotSize());
+		dst[off] = m_directFormType;
+		dst[off + 1] = m_numBiquads;
+		// a filter which hasn't been designed has only the header
+		if (m_state != null) {
+			System.arraycopy(m_state, 0, dst, off + SNAPSHOT_HEADER, m_state.length);
+		}
+	}
+
+	/**
+	 * Restores a snapshot of snapshotState(). The filter needs to have
+	 * been designed with the same order, type and topology. The
+	 * coefficients are not part of the snapshot and are not changed.
+	 *
+	 * @param snapshot The snapshot
+	 */
+	public void restoreState(double[] snapshot) {
+		if (snapshot.length != getSnapshotSize()) {
+			throw new IllegalArgumentException("The snapshot has " + snapshot.length
+					+ " values but the filter needs " + getSnapshotSize() + ".");
+		}
+		restoreState(snapshot, 0);
+	}
+
+	/**
+	 * Restores a snapshot of snapshotState() from part of an array.
+	 *
+	 * @param src Array with the snapshot
+	 * @param off Index of the first double of the snapshot
+	 */
+	public void restoreState(double[] src, int off) {
+		checkBlock(src, off, getSnapshotSize());
+		checkStructure((int) src[off], (int) src[off + 1]);
+		final int n = getNumStates();
+		for (int i = 0; i < n; i++) {
+			checkState(src[off + SNAPSHOT_HEADER + i]);
+		}
+		if (m_state != null) {
+			System.arraycopy(src, off + SNAPSHOT_HEADER, m_state, 0, n);
+		}
+	}
+
+	private static void checkState(double v) {
+		if (Double.isNaN(v) || Double.isInfinite(v)) {
+			throw new IllegalArgumentException("The snapshot contains invalid states.");
+		}
+	}
+
+	private void checkStructure(int directFormType, int numBiquads) {
+		if ((directFormType != m_directFormType) || (numBiquads != m_numBiquads)) {
+			throw new IllegalArgumentException("The snapshot of " + numBiquads
+					+ " biquads of direct form type " + directFormType
+					+ " does not match the filter with " + m_numBiquads
+					+ " biquads of type " + m_directFormType + ".");
+		}
+	}
+
+	/**
+	 * @return Number of bytes written by writeState()
+	 */
+	public int getEncodedStateSize() {
+		return STATE_ENCODING_HEADER + 8 * getNumStates();
+	}
+
+	/**
+	 * Writes the states in a compact binary encoding: a magic number, a
+	 * version, the direct form type, the number of biquads and the
+	 * states as doubles in the byte order of the buffer. Snapshots of
+	 * many filters can be written one after the other into one buffer.
+	 *
+	 * @param dst The states are written at its position which is advanced
+	 */
+	public void writeState(ByteBuffer dst) {
+		if (dst.remaining() < getEncodedStateSize()) {
+			throw new BufferOverflowException();
+		}
+		dst.putInt(STATE_MAGIC);
+		dst.put(STATE_VERSION);
+		dst.put((byte) m_directFormType);
+		dst.putInt(m_numBiquads);
+		final int n = getNumStates();
+		for (int i = 0; i < n; i++) {
+			dst.putDouble(m_state[i]);
+		}
+	}
+
+	/**
+	 * Reads states written by writeState() with the same byte order.
+	 * The filter needs to have been designed with the same order, type
+	 * and topology. The buffer is not changed if the states are rejected.
+	 *
+	 * @param src The states are read from its position which is advanced
+	 */
+	public void readState(ByteBuffer src) {
+		if (src.remaining() < getEncodedStateSize()) {
+			throw new BufferUnderflowException();
+		}
+		final int p = src.position();
+		if ((src.getInt(p) != STATE_MAGIC) || (src.get(p + 4) != STATE_VERSION)) {
+			throw new IllegalArgumentException("Not a filter state or an unknown version.");
+		}
+		checkStructure(src.get(p + 5), src.getInt(p + 6));
+		final int n = getNumStates();
+		for (int i = 0; i < n; i++) {
+			checkState(src.getDouble(p + STATE_ENCODING_HEADER + 8 * i));
+		}
+		src.position(p + STATE_ENCODING_HEADER);
+		for (int i = 0; i < n; i++) {
+			m_state[i] = src.getDouble();
+		}
+	}
+
+	/**
+	 * Hands the coefficients of another filter over to this one. This
+	 * is meant to be called from a control thread while another thread
+	 * is filtering: design the new filter into a separate instance
+	 * (which can be kept and re-designed again and again) and publish
+	 * it here. The filtering thread picks up the complete set of new
+	 * coefficients at the start of its next filter() call. Neither
+	 * side takes a lock and the states of this filter are kept. After
+	 * the first few calls no memory is allocated.
+	 *
+	 * @param design A filter with the same number of biquads as this one.
+	 *               Its topology doesn't matter as only the coefficients
+	 *               are copied. A design with a pole on or outside of the
+	 *               unit circle is rejected.
+	 */
+	public void publish(Cascade design) {
+		if ((design.m_coeff == null) || (design.m_numBiquads != m_numBiquads)) {
+			throw new IllegalArgumentException(
+					"The design needs to have " + m_numBiquads + " biquads.");
+		}
+		for (int k = 0; k < design.m_coeff.length; k += COEFFS_PER_STAGE) {
+			if (!isStable(design.m_coeff[k + 3], design.m_coeff[k + 4])) {
+				throw new IllegalArgumentException("Stage " + (k / COEFFS_PER_STAGE)
+						+ " of the design is unstable.");
+			}
+		}
+		double[] bank = m_retired.getAndSet(null);
+		if ((bank == null) || (bank.length != design.m_coeff.length)) {
+			bank = new double[design.m_coeff.length];
+		}
+		System.arraycopy(design.m_coeff, 0, bank, 0, bank.length);
+		double[] skipped = m_published.getAndSet(bank);
+		if (skipped != null) {
+			// never seen by the filtering thread so it can be re-used
+			m_retired.compareAndSet(null, skipped);
+		}
+	}
+
+	// both poles of a biquad are inside of the unit circle
+	static boolean isStable(double a1, double a2) {
+		return (Math.abs(a2) < 1) && (Math.abs(a1) < 1 + a2);
+	}
+
+	// called by the filtering thread at a sample or block boundary
+	private void swapPublished() {
+		if (m_published.get() == null) {
+			return;
+		}
+		double[] bank = m_published.getAndSet(null);
+		if ((bank == null) || (bank.length != m_coeff.length)) {
+			// published for a structure which has been replaced since
+			return;
+		}
+		if (m_smoothing > 0) {
+			startRamp(bank);
+		} else {
+			System.arraycopy(bank, 0, m_coeff, 0, m_coeff.length);
+			readBack();
+		}
+		m_retired.set(bank);
+	}
+
+	private void readBack() {
+		for (int i = 0; i < m_numBiquads; i++) {
+			m_biquads[i].readBack();
+		}
+	}
+
+	// drops published coefficients and spare banks of an old structure
+	private void clearPublished() {
+		m_published.set(null);
+		m_retired.set(null);
+	}
+
+	// to be called after the packed coefficients have been overwritten
+	// directly, cancels a running ramp
+	void coefficientsChanged() {
+		m_rampRemaining = 0;
+		readBack();
+	}
+
+	/**
+	 * Ramps published coefficients in over a number of samples instead of
+	 * switching to them at once which avoids clicks when sweeping the
+	 * cutoff. Every coefficient moves linearly from its current value
+	 * to the published one, also when a new set arrives during a ramp.
+	 * The triangle of stable a1,a2 pairs is convex so that every set on
+	 * the way between two stable sets is stable as well. publish()
+	 * rejects unstable sets so that a ramp starting at a stable design
+	 * stays stable. The ramp runs
+	 * inside the block processing and doesn't allocate memory.
+	 * getBiquad() reports the published coefficients once the ramp has
+	 * finished.
+	 *
+	 * @param numSamples Length of the ramp in samples, 0 switches at once
+	 *                   which is the default.
+	 */
+	public void setSmoothing(int numSamples) {
+		if (numSamples < 0) {
+			throw new IllegalArgumentException("The number of samples must not be negative.");
+		}
+		m_smoothing = numSamples;
+		if ((numSamples > 0) && (m_coeff != null)) {
+			allocateRamp();
+		}
+	}
+
+	public int getSmoothing() {
+		return m_smoothing;
+	}
+
+	/**
+	 * Protects the states against subnormal numbers which slow down
+	 * the filter when the input goes silent. Block and sample by sample
+	 * filtering still give the same result.
+	 *
+	 * @param mode DenormalProtection.NONE, NOISE or FLUSH
+	 */
+	public void setDenormalProtection(int mode) {
+		switch (mode) {
+		case DenormalProtection.NONE:
+		case DenormalProtection.NOISE:
+		case DenormalProtection.FLUSH:
+			m_denormalProtection = mode;
+			m_flushCountdown = DenormalProtection.FLUSH_INTERVAL;
+			break;
+		default:
+			throw new IllegalArgumentException("Unknown denormal protection: " + mode);
+		}
+	}
+
+	public int getDenormalProtection() {
+		return m_denormalProtection;
+	}
+
+	/**
+	 * Switches the monitoring of the numerical health of every stage on
+	 * or off. When it's on the states are checked after every sample and
+	 * blocks are filtered sample by sample (with identical results). When
+	 * it's off the filter loops are the same as without monitoring.
+	 *
+	 * @param enabled true to start monitoring with cleared counters
+	 */
+	public void setHealthMonitoring(boolean enabled) {
+		m_health = enabled ? new CascadeHealth() : null;
+	}
+
+	/**
+	 * @return The health counters of the stages or null if monitoring is off
+	 */
+	public CascadeHealth getHealth() {
+		return m_health;
+	}
+
+	/**
+	 * Counts the samples and blocks filtered by the block methods (not
+	 * filter(double)) and the number and duration of the designs. Many
+	 * filters can share the metrics of a named group, see MetricsRegistry.
+	 *
+	 * @param metrics The counters or null to stop counting
+	 */
+	public void setMetrics(FilterMetrics metrics) {
+		m_metrics = metrics;
+	}
+
+	public FilterMetrics getMetrics() {
+		return m_metrics;
+	}
+
+	private void recordBlock(int len) {
+		if (m_metrics != null) {
+			m_metrics.recordBlock(len);
+		}
+	}
+
+	private long startDesign() {
+		return (m_metrics != null) ? System.nanoTime() : 0;
+	}
+
+	private void recordDesign(long start) {
+		if (m_metrics != null) {
+			m_metrics.recordDesign(System.nanoTime() - start);
+		}
+	}
+
+	// uniform noise of +/-NOISE_LEVEL from a linear congruential generator
+	private double nextNoise() {
+		m_noiseSeed = m_noiseSeed * 1664525 + 1013904223;
+		return m_noiseSeed * (DenormalProtection.NOISE_LEVEL / 2147483648.0);
+	}
+
+	private void countFlush(int numSamples) {
+		m_flushCountdown -= numSamples;
+		if (m_flushCountdown > 0) {
+			return;
+		}
+		m_flushCountdown = DenormalProtection.FLUSH_INTERVAL;
+		final double[] st = m_state;
+		final int perStage = statesPerStage(m_directFormType);
+		// only stages which have gone silent as a whole
+		for (int j = 0; j < st.length; j += perStage) {
+			boolean silent = true;
+			for (int i = j; i < j + perStage; i++) {
+				if (Math.abs(st[i]) >= DenormalProtection.FLUSH_THRESHOLD) {
+					silent = false;
+					break;
+				}
+			}
+			if (silent) {
+				Arrays.fill(st, j, j + perStage, 0);
+			}
+		}
+	}
+
+	private void allocateRamp() {
+		if ((m_rampTarget == null) || (m_rampTarget.length != m_coeff.length)) {
+			m_rampTarget = new double[m_coeff.length];
+			m_rampStep = new double[m_coeff.length];
+		}
+	}
+
+	private void startRamp(double[] target) {
+		allocateRamp();
+		final double n = m_smoothing;
+		for (int k = 0; k < m_coeff.length; k++) {
+			m_rampTarget[k] = target[k];
+			m_rampStep[k] = (target[k] - m_coeff[k]) / n;
+		}
+		m_rampRemaining = m_smoothing;
+	}
+
+	// jumps to the end of a running ramp
+	private void finishRamp() {
+		if (m_rampRemaining > 0) {
+			System.arraycopy(m_rampTarget, 0, m_coeff, 0, m_coeff.length);
+			m_rampRemaining = 0;
+			readBack();
+		}
+	}
+
+	// coefficients of the next sample of a ramp
+	private void stepRamp() {
+		if (--m_rampRemaining == 0) {
+			System.arraycopy(m_rampTarget, 0, m_coeff, 0, m_coeff.length);
+			readBack();
+		} else {
+			for (int k = 0; k < m_coeff.length; k++) {
+				m_coeff[k] += m_rampStep[k];
+			}
+		}
 	}
 
 	public double filter(double in) {
+		swapPublished();
+		return filterSample(in);
+	}
+
+	private double filterSample(double in) {
+		if (m_rampRemaining > 0) {
+			stepRamp();
+		}
+		final double[] c = m_coeff;
+		final double[] st = m_state;
+		final int n = m_numBiquads;
+		if (n == 0) {
+			return in;
+		}
 		double out = in;
-		for (int i = 0; i < m_numBiquads; i++) {
-			if (m_states[i] != null) {
-			out = m_states[i].process1(out, m_biquads[i]);
+		if (m_denormalProtection == DenormalProtection.NOISE) {
+			out += nextNoise();
+		}
+		switch (m_directFormType) {
+		case DirectFormAbstract.DIRECT_FORM_I:
+			for (int i = 0, k = 0, j = 0; i < n; i++, k += COEFFS_PER_STAGE, j += 4) {
+				double x = out;
+				out = c[k] * x + c[k + 1] * st[j] + c[k + 2] * st[j + 1]
+						- c[k + 3] * st[j + 2] - c[k + 4] * st[j + 3];
+				st[j + 1] = st[j];
+				st[j + 3] = st[j + 2];
+				st[j] = x;
+				st[j + 2] = out;
+			}
+			break;
+		case DirectFormAbstract.DIRECT_FORM_II_TRANSPOSED:
+			for (int i = 0, k = 0, j = 0; i < n; i++, k += COEFFS_PER_STAGE, j += 2) {
+				double x = out;
+				out = c[k] * x + st[j];
+				st[j] = c[k + 1] * x - c[k + 3] * out + st[j + 1];
+				st[j + 1] = c[k + 2] * x - c[k + 4] * out;
+			}
+			break;
+		default:
+			for (int i = 0, k = 0, j = 0; i < n; i++, k += COEFFS_PER_STAGE, j += 2) {
+				double w = out - c[k + 3] * st[j] - c[k + 4] * st[j + 1];
+				out = c[k] * w + c[k + 1] * st[j] + c[k + 2] * st[j + 1];
+				st[j + 1] = st[j];
+				st[j] = w;
 			}
+			break;
+		}
+		if (m_denormalProtection == DenormalProtection.FLUSH) {
+			countFlush(1);
+		}
+		if (m_health != null) {
+			m_health.update(st, n, statesPerStage(m_directFormType));
 		}
 		return out;
 	}
 
+	/**
+	 * Filters a block of samples. The output is identical to
+	 * calling filter(double) for every sample but avoids the
+	 * per sample overhead by running every stage over the whole
+	 * block. No memory is allocated.
+	 *
+	 * @param in     Input samples
+	 * @param inOff  Index of the first input sample
+	 * @param out    Output samples. May be the same array as in
+	 *               if outOff == inOff, other overlaps are not allowed.
+	 * @param outOff Index of the first output sample
+	 * @param len    Number of samples to filter
+	 */
+	public void filter(double[] in, int inOff, double[] out, int outOff, int len) {
+		checkBlock(in, inOff, len);
+		checkBlock(out, outOff, len);
+		swapPublished();
+		recordBlock(len);
+		filterBlock(in, inOff, out, outOff, len);
+	}
+
+	private void filterBlock(double[] in, int inOff, double[] out, int outOff, int len) {
+		if (m_numBiquads == 0) {
+			if ((in != out) || (inOff != outOff)) {
+				System.arraycopy(in, inOff, out, outOff, len);
+			}
+			return;
+		}
+		if (m_health != null) {
+			for (int i = 0; i < len; i++) {
+				out[outOff + i] = filterSample(in[inOff + i]);
+			}
+			return;
+		}
+		switch (m_denormalProtection) {
+		case DenormalProtection.NOISE:
+			for (int i = 0; i < len; i++) {
+				out[outOff + i] = in[inOff + i] + nextNoise();
+			}
+			filterStages(out, outOff, out, outOff, len);
+			break;
+		case DenormalProtection.FLUSH:
+			// flushes at the same samples as filter(double)
+			while (len > 0) {
+				final int n = Math.min(len, m_flushCountdown);
+				filterStages(in, inOff, out, outOff, n);
+				countFlush(n);
+				inOff += n;
+				outOff += n;
+				len -= n;
+			}
+			break;
+		default:
+			filterStages(in, inOff, out, outOff, len);
+			break;
+		}
+	}
+
+	private void filterStages(double[] in, int inOff, double[] out, int outOff, int len) {
+		if (m_rampRemaining > 0) {
+			// the samples during the ramp and then the rest of the block
+			final int n = Math.min(len, m_rampRemaining);
+			rampStage(0, in, inOff, out, outOff, n);
+			for (int i = 1; i < m_numBiquads; i++) {
+				rampStage(i, out, outOff, out, outOff, n);
+			}
+			m_rampRemaining -= n;
+			if (m_rampRemaining == 0) {
+				readBack();
+			}
+			if (n == len) {
+				return;
+			}
+			inOff += n;
+			outOff += n;
+			len -= n;
+		}
+		// first stage reads from the input, the others work in place
+		processStage(0, in, inOff, out, outOff, len);
+		for (int i = 1; i < m_numBiquads; i++) {
+			processStage(i, out, outOff, out, outOff, len);
+		}
+	}
+
+	/**
+	 * Filters a block of samples in place.
+	 *
+	 * @param data Samples which are replaced by the filtered samples
+	 * @param off  Index of the first sample
+	 * @param len  Number of samples to filter
+	 */
+	public void filter(double[] data, int off, int len) {
+		filter(data, off, data, off, len);
+	}
+
+	/**
+	 * Filters a whole array in place.
+	 *
+	 * @param data Samples which are replaced by the filtered samples
+	 */
+	public void filter(double[] data) {
+		filter(data, 0, data, 0, data.length);
+	}
+
+	// runs one stage over a block with its coefficients and states in locals
+	private void processStage(int stage, double[] in, int inOff,
+			double[] out, int outOff, int len) {
+		final double[] st = m_state;
+		final int k = stage * COEFFS_PER_STAGE;
+		final double b0 = m_coeff[k];
+		final double b1 = m_coeff[k + 1];
+		final double b2 = m_coeff[k + 2];
+		final double a1 = m_coeff[k + 3];
+		final double a2 = m_coeff[k + 4];
+		switch (m_directFormType) {
+		case DirectFormAbstract.DIRECT_FORM_I: {
+			final int j = stage * 4;
+			double x1 = st[j];
+			double x2 = st[j + 1];
+			double y1 = st[j + 2];
+			double y2 = st[j + 3];
+			for (int i = 0; i < len; i++) {
+				double x = in[inOff + i];
+				double y = b0 * x + b1 * x1 + b2 * x2
+						- a1 * y1 - a2 * y2;
+				x2 = x1;
+				y2 = y1;
+				x1 = x;
+				y1 = y;
+				out[outOff + i] = y;
+			}
+			st[j] = x1;
+			st[j + 1] = x2;
+			st[j + 2] = y1;
+			st[j + 3] = y2;
+			break;
+		}
+		case DirectFormAbstract.DIRECT_FORM_II_TRANSPOSED: {
+			final int j = stage * 2;
+			double s1 = st[j];
+			double s2 = st[j + 1];
+			for (int i = 0; i < len; i++) {
+				double x = in[inOff + i];
+				double y = b0 * x + s1;
+				s1 = b1 * x - a1 * y + s2;
+				s2 = b2 * x - a2 * y;
+				out[outOff + i] = y;
+			}
+			st[j] = s1;
+			st[j + 1] = s2;
+			break;
+		}
+		default: {
+			final int j = stage * 2;
+			double v1 = st[j];
+			double v2 = st[j + 1];
+			for (int i = 0; i < len; i++) {
+				double w = in[inOff + i] - a1 * v1 - a2 * v2;
+				out[outOff + i] = b0 * w + b1 * v1 + b2 * v2;
+				v2 = v1;
+				v1 = w;
+			}
+			st[j] = v1;
+			st[j + 1] = v2;
+			break;
+		}
+		}
+	}
+
+	// runs one stage sample by sample over a block and moves its coefficients
+	// one step of the ramp further for every sample, len must not exceed the
+	// remaining ramp
+	private void rampStage(int stage, double[] in, int inOff,
+			double[] out, int outOff, int len) {
+		final double[] c = m_coeff;
+		final int k = stage * COEFFS_PER_STAGE;
+		int r = m_rampRemaining;
+		for (int i = 0; i < len; i++) {
+			if (--r == 0) {
+				System.arraycopy(m_rampTarget, k, c, k, COEFFS_PER_STAGE);
+			} else {
+				for (int m = k; m < k + COEFFS_PER_STAGE; m++) {
+					c[m] += m_rampStep[m];
+				}
+			}
+			processStage(stage, in, inOff + i, out, outOff + i, 1);
+		}
+	}
+
+	/**
+	 * Zero phase filtering of a whole recording: the data is filtered
+	 * forward and then backward so that the phase shifts cancel and the
+	 * magnitude response is squared. As in scipy's sosfiltfilt the data
+	 * is extended at both ends by an odd extension and the filter starts
+	 * from the steady state of the first sample of each pass. The data
+	 * is filtered in place and reversed for the 2nd pass so that both
+	 * passes are filtered like a block, including the denormal protection
+	 * and the health monitoring. The states of the filter are reset
+	 * afterwards.
+	 *
+	 * @param data Samples which are replaced by the filtered samples
+	 * @param off  Index of the first sample
+	 * @param len  Number of samples. Must be larger than getFiltfiltPadding().
+	 */
+	public void filtfilt(double[] data, int off, int len) {
+		checkBlock(data, off, len);
+		swapPublished();
+		recordBlock(len);
+		finishRamp();
+		final int padlen = getFiltfiltPadding();
+		if (len <= padlen) {
+			throw new IllegalArgumentException("The data needs more than "
+					+ padlen + " samples for filtfilt.");
+		}
+		final int last = off + len - 1;
+		if ((m_filtfiltPad == null) || (m_filtfiltPad.length < padlen)) {
+			m_filtfiltPad = new double[padlen];
+		}
+		final double[] pad = m_filtfiltPad;
+
+		// forward: extension at the start, the data and the extension at the end
+		for (int j = 0; j < padlen; j++) {
+			pad[j] = 2 * data[off] - data[off + padlen - j];
+		}
+		setSteadyState(pad[0]);
+		filterBlock(pad, 0, pad, 0, padlen);
+		// inputs of the extension at the end before the data is overwritten
+		for (int j = 0; j < padlen; j++) {
+			pad[j] = 2 * data[last] - data[last - 1 - j];
+		}
+		filterBlock(data, off, data, off, len);
+		filterBlock(pad, 0, pad, 0, padlen);
+
+		// backward: the reversed extension at the end, then the reversed data
+		reverse(pad, 0, padlen);
+		setSteadyState(pad[0]);
+		filterBlock(pad, 0, pad, 0, padlen);
+		reverse(data, off, len);
+		filterBlock(data, off, data, off, len);
+		reverse(data, off, len);
+		reset();
+	}
+
+	private static void reverse(double[] data, int off, int len) {
+		for (int i = off, j = off + len - 1; i < j; i++, j--) {
+			final double t = data[i];
+			data[i] = data[j];
+			data[j] = t;
+		}
+	}
+
+	/**
+	 * Zero phase filtering of a whole array in place.
+	 *
+	 * @param data Samples which are replaced by the filtered samples
+	 */
+	public void filtfilt(double[] data) {
+		filtfilt(data, 0, data.length);
+	}
+
+	/**
+	 * Zero phase filtering of several channels in place which are processed
+	 * in parallel in the common ForkJoinPool.
+	 *
+	 * @param channels One array of samples per channel
+	 */
+	public void filtfilt(double[][] channels) {
+		filtfilt(channels, ForkJoinPool.commonPool());
+	}
+
+	/**
+	 * Zero phase filtering of several channels in place which are processed
+	 * in parallel. Every channel gets its own copy of the states.
+	 *
+	 * @param channels One array of samples per channel
+	 * @param pool     The pool which runs the channels
+	 */
+	public void filtfilt(final double[][] channels, ForkJoinPool pool) {
+		filterChannels(channels, pool, true);
+	}
+
+	// filters every channel with its own copy of the filter in the pool
+	private void filterChannels(final double[][] channels, ForkJoinPool pool,
+			final boolean zeroPhase) {
+		// the copies start with the settled coefficients
+		swapPublished();
+		finishRamp();
+		List<ForkJoinTask<?>> tasks = new ArrayList<ForkJoinTask<?>>(channels.length);
+		for (final double[] channel : channels) {
+			final Cascade cascade = new Cascade(this);
+			tasks.add(pool.submit(new Runnable() {
+				public void run() {
+					if (zeroPhase) {
+						cascade.filtfilt(channel);
+					} else {
+						cascade.filter(channel);
+					}
+				}
+			}));
+		}
+		for (ForkJoinTask<?> task : tasks) {
+			task.join();
+		}
+	}
+
+	/**
+	 * Same as filter(double) so that the filter can be used wherever
+	 * a DoubleUnaryOperator is expected, for example in
+	 * DoubleStream.map() of a sequential stream.
+	 *
+	 * @param in Input sample
+	 * @return Output sample
+	 */
+	public double applyAsDouble(double in) {
+		return filter(in);
+	}
+
+	/**
+	 * Filters a stream lazily: samples are filtered one by one in their
+	 * order when the returned stream is consumed, also if the source is
+	 * a parallel stream. The states of this filter are updated by the
+	 * returned stream so only one of them should be consumed at a time.
+	 *
+	 * @param in The input samples
+	 * @return A sequential stream of the filtered samples
+	 */
+	public DoubleStream filter(final DoubleStream in) {
+		return StreamSupport.doubleStream(new FilteredSpliterator(in.spliterator(), this), false)
+				.onClose(new Runnable() {
+					public void run() {
+						in.close();
+					}
+				});
+	}
+
+	/**
+	 * Collects a stream of multichannel frames (one sample per channel)
+	 * into one array per channel and filters the channels in parallel
+	 * in the common ForkJoinPool. Every channel gets its own copy of the
+	 * filter with states which start at zero. The coefficients are the
+	 * ones of this filter when the collector is created and later
+	 * changes of this filter don't affect it. The stream may be parallel.
+	 *
+	 * @return Collector of the filtered channels
+	 */
+	public Collector<double[], ?, double[][]> toChannels() {
+		return toChannels(ForkJoinPool.commonPool());
+	}
+
+	/**
+	 * Collects a stream of multichannel frames (one sample per channel)
+	 * into one array per channel and filters the channels in parallel.
+	 *
+	 * @param pool The pool which filters the channels
+	 * @return Collector of the filtered channels
+	 */
+	public Collector<double[], ?, double[][]> toChannels(final ForkJoinPool pool) {
+		swapPublished();
+		finishRamp();
+		final Cascade design = new Cascade(this);
+		return Collector.of(
+				new Supplier<ChannelBuffer>() {
+					public ChannelBuffer get() {
+						return new ChannelBuffer();
+					}
+				},
+				new BiConsumer<ChannelBuffer, double[]>() {
+					public void accept(ChannelBuffer buffer, double[] frame) {
+						buffer.add(frame);
+					}
+				},
+				new BinaryOperator<ChannelBuffer>() {
+					public ChannelBuffer apply(ChannelBuffer first, ChannelBuffer second) {
+						return first.append(second);
+					}
+				},
+				new Function<ChannelBuffer, double[][]>() {
+					public double[][] apply(ChannelBuffer buffer) {
+						double[][] channels = buffer.toArrays();
+						design.filterChannels(channels, pool, false);
+						return channels;
+					}
+				});
+	}
+
+	/**
+	 * Number of samples by which filtfilt extends the data at both
+	 * ends. This is the same as in scipy's sosfiltfilt.
+	 *
+	 * @return The padding length
+	 */
+	public int getFiltfiltPadding() {
+		int zerosB2 = 0;
+		int zerosA2 = 0;
+		for (int i = 0; i < m_numBiquads; i++) {
+			int k = i * COEFFS_PER_STAGE;
+			if (m_coeff[k + 2] == 0) {
+				zerosB2++;
+			}
+			if (m_coeff[k + 4] == 0) {
+				zerosA2++;
+			}
+		}
+		return 3 * (2 * m_numBiquads + 1 - Math.min(zerosB2, zerosA2));
+	}
+
+	// sets the states as if x had been the input forever
+	private void setSteadyState(double x) {
+		double u = x;
+		for (int i = 0; i < m_numBiquads; i++) {
+			final int k = i * COEFFS_PER_STAGE;
+			final double b0 = m_coeff[k];
+			final double b1 = m_coeff[k + 1];
+			final double b2 = m_coeff[k + 2];
+			final double a1 = m_coeff[k + 3];
+			final double a2 = m_coeff[k + 4];
+			final double y = u * (b0 + b1 + b2) / (1 + a1 + a2);
+			switch (m_directFormType) {
+			case DirectFormAbstract.DIRECT_FORM_I:
+				m_state[i * 4] = u;
+				m_state[i * 4 + 1] = u;
+				m_state[i * 4 + 2] = y;
+				m_state[i * 4 + 3] = y;
+				break;
+			case DirectFormAbstract.DIRECT_FORM_II_TRANSPOSED:
+				m_state[i * 2 + 1] = b2 * u - a2 * y;
+				m_state[i * 2] = b1 * u - a1 * y + m_state[i * 2 + 1];
+				break;
+			default:
+				m_state[i * 2] = u / (1 + a1 + a2);
+				m_state[i * 2 + 1] = m_state[i * 2];
+				break;
+			}
+			u = y;
+		}
+	}
+
+	/**
+	 * Filters samples of a DoubleBuffer, for example a direct one, without
+	 * copying them to an array. The samples are taken every stride
+	 * elements so that single channels of interleaved data can be
+	 * filtered. The positions of the buffers are not changed.
+	 *
+	 * @param in       Input samples
+	 * @param inIndex  Index of the first input sample
+	 * @param out      Output samples. May be the same buffer as in
+	 *                 if outIndex == inIndex.
+	 * @param outIndex Index of the first output sample
+	 * @param len      Number of samples to filter
+	 * @param stride   Distance between two samples in elements
+	 */
+	public void filter(DoubleBuffer in, int inIndex, DoubleBuffer out, int outIndex,
+			int len, int stride) {
+		checkBuffer(in, inIndex, len, stride, 1);
+		checkBuffer(out, outIndex, len, stride, 1);
+		swapPublished();
+		recordBlock(len);
+		for (int i = 0, p = inIndex, q = outIndex; i < len; i++, p += stride, q += stride) {
+			out.put(q, filterSample(in.get(p)));
+		}
+	}
+
+	/**
+	 * Filters the samples between the position and the limit
+	 * of a DoubleBuffer in place.
+	 *
+	 * @param data Samples which are replaced by the filtered samples
+	 */
+	public void filter(DoubleBuffer data) {
+		filter(data, data.position(), data, data.position(), data.remaining(), 1);
+	}
+
+	/**
+	 * Filters samples of a FloatBuffer without copying them to an
+	 * array. The calculations are done in double precision.
+	 *
+	 * @param in       Input samples
+	 * @param inIndex  Index of the first input sample
+	 * @param out      Output samples. May be the same buffer as in
+	 *                 if outIndex == inIndex.
+	 * @param outIndex Index of the first output sample
+	 * @param len      Number of samples to filter
+	 * @param stride   Distance between two samples in elements
+	 */
+	public void filter(FloatBuffer in, int inIndex, FloatBuffer out, int outIndex,
+			int len, int stride) {
+		checkBuffer(in, inIndex, len, stride, 1);
+		checkBuffer(out, outIndex, len, stride, 1);
+		swapPublished();
+		recordBlock(len);
+		for (int i = 0, p = inIndex, q = outIndex; i < len; i++, p += stride, q += stride) {
+			out.put(q, (float) filterSample(in.get(p)));
+		}
+	}
+
+	/**
+	 * Filters the samples between the position and the limit
+	 * of a FloatBuffer in place.
+	 *
+	 * @param data Samples which are replaced by the filtered samples
+	 */
+	public void filter(FloatBuffer data) {
+		filter(data, data.position(), data, data.position(), data.remaining(), 1);
+	}
+
+	/**
+	 * Filters samples in a ByteBuffer, for example a direct one filled
+	 * by a driver, without copying the whole buffer to an array. The
+	 * samples are decoded with the byte order of the buffers into a small
+	 * chunk which is filtered as a block and encoded back. Integer samples
+	 * are rounded and clipped to their range. No memory is allocated
+	 * after the first call.
+	 *
+	 * @param in       Input samples
+	 * @param inIndex  Byte index of the first input sample
+	 * @param out      Output samples. May be the same buffer as in
+	 *                 if outIndex == inIndex.
+	 * @param outIndex Byte index of the first output sample
+	 * @param len      Number of samples to filter
+	 * @param stride   Distance between two samples in bytes, for example
+	 *                 4 for a channel of 16 bit stereo
+	 * @param encoding One of the constants of SampleEncoding
+	 */
+	public void filter(ByteBuffer in, int inIndex, ByteBuffer out, int outIndex,
+			int len, int stride, int encoding) {
+		final int bytes = SampleEncoding.getBytes(encoding);
+		checkBuffer(in, inIndex, len, stride, bytes);
+		checkBuffer(out, outIndex, len, stride, bytes);
+		swapPublished();
+		recordBlock(len);
+		if (m_byteChunk == null) {
+			m_byteChunk = new double[BYTE_CHUNK];
+		}
+		final double[] chunk = m_byteChunk;
+		while (len > 0) {
+			final int n = Math.min(len, chunk.length);
+			SampleEncoding.decode(in, inIndex, stride, encoding, chunk, n);
+			filterBlock(chunk, 0, chunk, 0, n);
+			SampleEncoding.encode(chunk, n, encoding, out, outIndex, stride);
+			inIndex += n * stride;
+			outIndex += n * stride;
+			len -= n;
+		}
+	}
+
+	/**
+	 * Filters the samples between the position and the limit
+	 * of a ByteBuffer in place.
+	 *
+	 * @param data     Samples which are replaced by the filtered samples
+	 * @param encoding One of the constants of SampleEncoding
+	 */
+	public void filter(ByteBuffer data, int encoding) {
+		final int bytes = SampleEncoding.getBytes(encoding);
+		filter(data, data.position(), data, data.position(),
+				data.remaining() / bytes, bytes, encoding);
+	}
+
+	// the last sample needs to end before the limit, sizes in elements of the buffer
+	private static void checkBuffer(Buffer b, int index, int len, int stride, int size) {
+		if (stride < 1) {
+			throw new IllegalArgumentException("The stride must be positive.");
+		}
+		if ((index < 0) || (len < 0)
+				|| ((len > 0) && ((long) index + (long) (len - 1) * stride + size > b.limit()))) {
+			throw new IndexOutOfBoundsException(len + " samples with stride " + stride
+					+ " from index " + index + " outside of buffer with limit " + b.limit());
+		}
+	}
+
+	private static void checkBlock(double[] a, int off, int len) {
+		if ((off < 0) || (len < 0) || (off > a.length - len)) {
+			throw new IndexOutOfBoundsException("Block [" + off + ", " + (off + len)
+					+ ") outside of array of length " + a.length);
+		}
+	}
+
 	public Complex response(double normalizedFrequency) {
 		double w = 2 * Math.PI * normalizedFrequency;
 		Complex czn1 = ComplexUtils.polar2Complex(1., -w);
@@ -95,6 +1230,105 @@ public class Cascade {
 		return ch.divide(cbot);
 	}
 
+	/**
+	 * Frequency response at many frequencies without creating any
+	 * objects.
+	 *
+	 * @param normalizedFrequencies Frequencies as a fraction of the
+	 *                              sampling rate (0..0.5)
+	 * @param magnitude             Receives the magnitudes
+	 * @param phase                 Receives the phases in radians
+	 *                              (-pi..pi) or null if not needed
+	 */
+	public void response(double[] normalizedFrequencies, double[] magnitude,
+			double[] phase) {
+		final int n = normalizedFrequencies.length;
+		if ((magnitude.length < n) || ((phase != null) && (phase.length < n))) {
+			throw new IndexOutOfBoundsException("Output arrays are shorter than "
+					+ n + " frequencies.");
+		}
+		for (int i = 0; i < n; i++) {
+			double w = 2 * Math.PI * normalizedFrequencies[i];
+			evaluateResponse(Math.cos(w), Math.sin(w), magnitude, phase, i);
+		}
+	}
+
+	/**
+	 * Frequency response at equally spaced frequencies without creating
+	 * any objects. The sines and cosines are calculated with a recursion
+	 * which is re-initialised every RESPONSE_RESYNC points.
+	 *
+	 * @param startFrequency Frequency of the first point as a fraction of
+	 *                       the sampling rate
+	 * @param frequencyStep  Frequency distance between the points as a
+	 *                       fraction of the sampling rate
+	 * @param magnitude      Receives the magnitudes. The number of points
+	 *                       is the length of this array.
+	 * @param phase          Receives the phases in radians (-pi..pi)
+	 *                       or null if not needed
+	 */
+	public void response(double startFrequency, double frequencyStep,
+			double[] magnitude, double[] phase) {
+		final int n = magnitude.length;
+		if ((phase != null) && (phase.length < n)) {
+			throw new IndexOutOfBoundsException("Phase array is shorter than "
+					+ n + " points.");
+		}
+		final double dw = 2 * Math.PI * frequencyStep;
+		final double cd = Math.cos(dw);
+		final double sd = Math.sin(dw);
+		double c = 0;
+		double s = 0;
+		for (int i = 0; i < n; i++) {
+			if ((i % RESPONSE_RESYNC) == 0) {
+				double w = 2 * Math.PI * startFrequency + i * dw;
+				c = Math.cos(w);
+				s = Math.sin(w);
+			} else {
+				double cn = c * cd - s * sd;
+				s = s * cd + c * sd;
+				c = cn;
+			}
+			evaluateResponse(c, s, magnitude, phase, i);
+		}
+	}
+
+	// number of points after which the recursion of the uniform response
+	// is restarted with exact values
+	static final int RESPONSE_RESYNC = 64;
+
+	// response at w where cos(w) = c1 and sin(w) = s1 into index i
+	private void evaluateResponse(double c1, double s1, double[] magnitude,
+			double[] phase, int index) {
+		final double[] c = m_coeff;
+		final double c2 = c1 * c1 - s1 * s1;
+		final double s2 = 2 * s1 * c1;
+		double hr = 1;
+		double hi = 0;
+		for (int i = 0, k = 0; i < m_numBiquads; i++, k += COEFFS_PER_STAGE) {
+			// numerator and denominator at z^-1 = c1 - j s1
+			double nr = c[k] + c[k + 1] * c1 + c[k + 2] * c2;
+			double ni = -(c[k + 1] * s1 + c[k + 2] * s2);
+			double dr = 1 + c[k + 3] * c1 + c[k + 4] * c2;
+			double di = -(c[k + 3] * s1 + c[k + 4] * s2);
+			double d2 = dr * dr + di * di;
+			double qr = (nr * dr + ni * di) / d2;
+			double qi = (ni * dr - nr * di) / d2;
+			double t = hr * qr - hi * qi;
+			hi = hr * qi + hi * qr;
+			hr = t;
+		}
+		double m2 = hr * hr + hi * hi;
+		if ((m2 > Double.MIN_NORMAL) && (m2 < Double.MAX_VALUE)) {
+			magnitude[index] = Math.sqrt(m2);
+		} else {
+			magnitude[index] = Math.hypot(hr, hi);
+		}
+		if (phase != null) {
+			phase[index] = Math.atan2(hi, hr);
+		}
+	}
+
 	public void applyScale(double scale) {
 		// For higher order filters it might be helpful
 		// to spread this factor between all the stages.
@@ -103,40 +1337,109 @@ public class Cascade {
 		}
 	}
 
-	private void createStates(int filterTypes) {
+	// number of state variables per stage for a direct form type
+	static int statesPerStage(int directFormType) {
+		if (directFormType == DirectFormAbstract.DIRECT_FORM_I) {
+			return 4;
+		}
+		return 2;
+	}
+
+	// the direct form type actually used for the requested one
+	private static int directFormType(int filterTypes) {
 		switch (filterTypes) {
 		case DirectFormAbstract.DIRECT_FORM_I:
-			m_states = new DirectFormI[m_numBiquads];
-			for (int i = 0; i < m_numBiquads; i++) {
-				m_states[i] = new DirectFormI();
-			}
-			break;
+		case DirectFormAbstract.DIRECT_FORM_II_TRANSPOSED:
+			return filterTypes;
 		case DirectFormAbstract.DIRECT_FORM_II:
 		default:
-			m_states = new DirectFormII[m_numBiquads];
-			for (int i = 0; i < m_numBiquads; i++) {
-				m_states[i] = new DirectFormII();
-			}
-			break;
+			return DirectFormAbstract.DIRECT_FORM_II;
+		}
+	}
+
+	private void createStates(int filterTypes) {
+		m_directFormType = directFormType(filterTypes);
+		m_state = new double[m_numBiquads * statesPerStage(m_directFormType)];
+	}
+
+	// binds the Biquads to the packed coefficient array
+	private void packCoefficients() {
+		m_coeff = new double[m_numBiquads * COEFFS_PER_STAGE];
+		for (int i = 0; i < m_numBiquads; i++) {
+			m_biquads[i].bind(m_coeff, i * COEFFS_PER_STAGE);
 		}
 	}
 
+	// copies the Biquads and the packed coefficients of other which
+	// can be in the middle of a ramp
+	private void packCoefficients(Cascade other) {
+		m_biquads = new Biquad[m_numBiquads];
+		m_coeff = new double[m_numBiquads * COEFFS_PER_STAGE];
+		for (int i = 0; i < m_numBiquads; i++) {
+			m_biquads[i] = new Biquad();
+			m_biquads[i].bind(m_coeff, i * COEFFS_PER_STAGE);
+			m_biquads[i].set(other.m_biquads[i]);
+		}
+		System.arraycopy(other.m_coeff, 0, m_coeff, 0, m_coeff.length);
+	}
+
+	// the analog lowpass prototype of a family, to be overridden by the
+	// families which are designed with analogProto()
+	LayoutBase newAnalogProto(int order) {
+		return new LayoutBase(order);
+	}
+
+	// analog prototype of an order, re-used from the last design if possible
+	LayoutBase analogProto(int order) {
+		if ((m_analogCache == null) || (m_analogOrder != order)) {
+			m_analogCache = newAnalogProto(order);
+			m_analogOrder = order;
+		}
+		return m_analogCache;
+	}
+
+	// digital layout with space for a number of poles, re-used if possible
+	LayoutBase digitalProto(int numPoles) {
+		if ((m_digitalCache == null)
+				|| (m_digitalCache.getMaxPoles() < numPoles)) {
+			m_digitalCache = new LayoutBase(numPoles);
+		}
+		return m_digitalCache;
+	}
+
 	public void setLayout(LayoutBase proto, int filterTypes) {
+		final long start = startDesign();
+		m_rampRemaining = 0;
+		clearPublished();
 		numPoles = proto.getNumPoles();
-		m_numBiquads = (numPoles + 1) / 2;
-		m_biquads = new Biquad[m_numBiquads];
-		createStates(filterTypes);
+		int numBiquads = (numPoles + 1) / 2;
+		if ((m_biquads == null) || (m_numBiquads != numBiquads)
+				|| (m_directFormType != directFormType(filterTypes))) {
+			m_numBiquads = numBiquads;
+			m_biquads = new Biquad[m_numBiquads];
+			for (int i = 0; i < m_numBiquads; ++i) {
+				m_biquads[i] = new Biquad();
+			}
+			createStates(filterTypes);
+			packCoefficients();
+		} else {
+			// same structure: redesign in place without allocating
+			reset();
+		}
 		for (int i = 0; i < m_numBiquads; ++i) {
-			PoleZeroPair p = proto.getPair(i);
-			m_biquads[i] = new Biquad();
-			m_biquads[i].setPoleZeroPair(p);
+			m_biquads[i].setPoleZeroPair(proto, i);
 		}
-		applyScale(proto.getNormalGain()
-				/ ((response(proto.getNormalW() / (2 * Math.PI)))).abs());
+		double w = proto.getNormalW();
+		evaluateResponse(Math.cos(w), Math.sin(w), m_normMagnitude, null, 0);
+		applyScale(proto.getNormalGain() / m_normMagnitude[0]);
+		recordDesign(start);
 	}
 
 	public void setSOScoeff(final double[][] sosCoefficients,
 				final int stateTypes) {
+		final long start = startDesign();
+		m_rampRemaining = 0;
+		clearPublished();
 		m_numBiquads = sosCoefficients.length;
 		m_biquads = new Biquad[m_numBiquads];
 		createStates(stateTypes);
@@ -151,7 +1454,9 @@ public class Cascade {
                                 sosCoefficients[i][2]
 						    );
 		}
+		packCoefficients();
 		applyScale(1);
+		recordDesign(start);
 	}
 
 
@@ -0,0 +1,143 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * 
+ *  Copyright (c) 2016 by Bernd Porr
+ */
+
+package uk.me.berndporr.iirj;
+
+import java.util.Arrays;
+
+/**
+ * Numerical health of the stages of a Cascade, see
+ * Cascade.setHealthMonitoring(). After every sample the states of
+ * every stage are checked: the peak absolute value of the finite
+ * states, the number of samples at which a stage had NaN or infinite
+ * states and the index of the first of these samples. A stage which
+ * approaches saturation shows up as a growing peak before it overflows.
+ *
+ * The counters are plain fields updated by the filtering thread. Other
+ * threads may read them at any time but can see slightly stale values.
+ */
+public class CascadeHealth {
+
+	private long m_numSamples;
+	private double[] m_peakState = new double[0];
+	private long[] m_numFaults = new long[0];
+	private long[] m_firstFault = new long[0];
+
+	CascadeHealth() {
+	}
+
+	// checks the states after a sample
+	void update(double[] state, int numStages, int statesPerStage) {
+		if (m_peakState.length != numStages) {
+			// the filter has been redesigned with a different order
+			m_peakState = new double[numStages];
+			m_numFaults = new long[numStages];
+			m_firstFault = new long[numStages];
+			Arrays.fill(m_firstFault, -1);
+		}
+		for (int s = 0, j = 0; s < numStages; s++) {
+			double peak = m_peakState[s];
+			boolean fault = false;
+			for (int k = 0; k < statesPerStage; k++, j++) {
+				final double a = Math.abs(state[j]);
+				if (!(a <= Double.MAX_VALUE)) {
+					fault = true;
+				} else if (a > peak) {
+					peak = a;
+				}
+			}
+			m_peakState[s] = peak;
+			if (fault) {
+				if (m_numFaults[s]++ == 0) {
+					m_firstFault[s] = m_numSamples;
+				}
+			}
+		}
+		m_numSamples++;
+	}
+
+	/**
+	 * Clears all counters.
+	 */
+	public void reset() {
+		m_numSamples = 0;
+		Arrays.fill(m_peakState, 0);
+		Arrays.fill(m_numFaults, 0);
+		Arrays.fill(m_firstFault, -1);
+	}
+
+	/**
+	 * @return Number of samples filtered since monitoring started or reset()
+	 */
+	public long getNumSamples() {
+		return m_numSamples;
+	}
+
+	/**
+	 * @return Number of stages monitored
+	 */
+	public int getNumStages() {
+		return m_peakState.length;
+	}
+
+	/**
+	 * @param stage Index of the stage
+	 * @return Largest absolute value of the finite states of the stage
+	 */
+	public double getPeakState(int stage) {
+		return m_peakState[stage];
+	}
+
+	/**
+	 * @param stage Index of the stage
+	 * @return Number of samples after which the stage had NaN or infinite states
+	 */
+	public long getNumFaults(int stage) {
+		return m_numFaults[stage];
+	}
+
+	/**
+	 * @param stage Index of the stage
+	 * @return Index of the first sample after which the stage had NaN
+	 *         or infinite states or -1 if it never had
+	 */
+	public long getFirstFault(int stage) {
+		return m_firstFault[stage];
+	}
+
+	/**
+	 * @return Index of the first sample at which any stage failed or -1
+	 */
+	public long getFirstFault() {
+		long first = -1;
+		for (int s = 0; s < m_firstFault.length; s++) {
+			if ((m_firstFault[s] >= 0) && ((first < 0) || (m_firstFault[s] < first))) {
+				first = m_firstFault[s];
+			}
+		}
+		return first;
+	}
+
+	/**
+	 * @return true if no stage had NaN or infinite states so far
+	 */
+	public boolean isHealthy() {
+		return getFirstFault() < 0;
+	}
+}
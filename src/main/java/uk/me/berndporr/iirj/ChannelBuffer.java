@@ -0,0 +1,86 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package uk.me.berndporr.iirj;
+
+import java.util.Arrays;
+
+// growing buffer of multichannel frames, one array per channel,
+// used by Cascade.toChannels()
+class ChannelBuffer {
+
+	private double[][] m_channels;
+	private int m_length;
+
+	void add(double[] frame) {
+		if (m_channels == null) {
+			if (frame.length == 0) {
+				throw new IllegalArgumentException("A frame needs at least one channel.");
+			}
+			m_channels = new double[frame.length][16];
+		} else if (frame.length != m_channels.length) {
+			throw new IllegalArgumentException("Frame with " + frame.length
+					+ " channels instead of " + m_channels.length + ".");
+		}
+		ensureCapacity(m_length + 1);
+		for (int c = 0; c < frame.length; c++) {
+			m_channels[c][m_length] = frame[c];
+		}
+		m_length++;
+	}
+
+	ChannelBuffer append(ChannelBuffer other) {
+		if (other.m_channels == null) {
+			return this;
+		}
+		if (m_channels == null) {
+			return other;
+		}
+		if (other.m_channels.length != m_channels.length) {
+			throw new IllegalArgumentException("Frames with " + other.m_channels.length
+					+ " channels instead of " + m_channels.length + ".");
+		}
+		ensureCapacity(m_length + other.m_length);
+		for (int c = 0; c < m_channels.length; c++) {
+			System.arraycopy(other.m_channels[c], 0, m_channels[c], m_length, other.m_length);
+		}
+		m_length += other.m_length;
+		return this;
+	}
+
+	private void ensureCapacity(int length) {
+		if (length > m_channels[0].length) {
+			int capacity = Math.max(length, 2 * m_channels[0].length);
+			for (int c = 0; c < m_channels.length; c++) {
+				m_channels[c] = Arrays.copyOf(m_channels[c], capacity);
+			}
+		}
+	}
+
+	// one array per channel with exactly the collected samples
+	double[][] toArrays() {
+		if (m_channels == null) {
+			return new double[0][];
+		}
+		double[][] channels = new double[m_channels.length][];
+		for (int c = 0; c < channels.length; c++) {
+			channels[c] = Arrays.copyOf(m_channels[c], m_length);
+		}
+		return channels;
+	}
+}
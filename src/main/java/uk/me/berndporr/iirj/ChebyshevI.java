@@ -21,8 +21,6 @@
 
 package uk.me.berndporr.iirj;
 
-import org.apache.commons.math3.complex.Complex;
-
 /**
  * User facing class which contains all the methods the user uses to create
  * ChebyshevI filters. This done in this way: ChebyshevI chebyshevI = new
@@ -59,13 +57,11 @@ public class ChebyshevI extends Cascade {
 				double a = sinh_v0 * Math.cos(k * Math.PI / n2);
 				double b = cosh_v0 * Math.sin(k * Math.PI / n2);
 
-				addPoleZeroConjugatePairs(new Complex(a, b), new Complex(
-						Double.POSITIVE_INFINITY));
+				addPoleZeroConjugatePairs(a, b, Double.POSITIVE_INFINITY, 0);
 			}
 
 			if ((nPoles & 1) == 1) {
-				add(new Complex(sinh_v0, 0), new Complex(
-						Double.POSITIVE_INFINITY));
+				add(sinh_v0, 0, Double.POSITIVE_INFINITY, 0);
 				setNormal(0, 1);
 			} else {
 				setNormal(0, Math.pow(10, -rippleDb / 20.));
@@ -73,15 +69,21 @@ public class ChebyshevI extends Cascade {
 		}
 	}
 
+
+	@Override
+	AnalogLowPass newAnalogProto(int order) {
+		return new AnalogLowPass(order);
+	}
+
 	private void setupLowPass(int order, double sampleRate,
 			double cutoffFrequency, double rippleDb, int directFormType) {
 
-		AnalogLowPass m_analogProto = new AnalogLowPass(order);
+		AnalogLowPass m_analogProto = (AnalogLowPass) analogProto(order);
 		m_analogProto.design(rippleDb);
 
-		LayoutBase m_digitalProto = new LayoutBase(order);
+		LayoutBase m_digitalProto = digitalProto(order);
 
-		new LowPassTransform(cutoffFrequency / sampleRate, m_digitalProto,
+		LowPassTransform.transform(cutoffFrequency / sampleRate, m_digitalProto,
 				m_analogProto);
 
 		setLayout(m_digitalProto, directFormType);
@@ -118,7 +120,8 @@ public class ChebyshevI extends Cascade {
 	 *            passband ripple in decibel sensible value: 1dB
 	 * @param directFormType
 	 *            The filter topology. This is either
-	 *            DirectFormAbstract.DIRECT_FORM_I or DIRECT_FORM_II
+	 *            DirectFormAbstract.DIRECT_FORM_I, DIRECT_FORM_II
+	 *            or DIRECT_FORM_II_TRANSPOSED
 	 */
 	public void lowPass(int order, double sampleRate, double cutoffFrequency,
 			double rippleDb, int directFormType) {
@@ -129,12 +132,12 @@ public class ChebyshevI extends Cascade {
 	private void setupHighPass(int order, double sampleRate,
 			double cutoffFrequency, double rippleDb, int directFormType) {
 
-		AnalogLowPass m_analogProto = new AnalogLowPass(order);
+		AnalogLowPass m_analogProto = (AnalogLowPass) analogProto(order);
 		m_analogProto.design(rippleDb);
 
-		LayoutBase m_digitalProto = new LayoutBase(order);
+		LayoutBase m_digitalProto = digitalProto(order);
 
-		new HighPassTransform(cutoffFrequency / sampleRate, m_digitalProto,
+		HighPassTransform.transform(cutoffFrequency / sampleRate, m_digitalProto,
 				m_analogProto);
 
 		setLayout(m_digitalProto, directFormType);
@@ -171,7 +174,8 @@ public class ChebyshevI extends Cascade {
 	 *            passband ripple in decibel sensible value: 1dB
 	 * @param directFormType
 	 *            The filter topology. This is either
-	 *            DirectFormAbstract.DIRECT_FORM_I or DIRECT_FORM_II
+	 *            DirectFormAbstract.DIRECT_FORM_I, DIRECT_FORM_II
+	 *            or DIRECT_FORM_II_TRANSPOSED
 	 */
 	public void highPass(int order, double sampleRate, double cutoffFrequency,
 			double rippleDb, int directFormType) {
@@ -183,12 +187,12 @@ public class ChebyshevI extends Cascade {
 			double centerFrequency, double widthFrequency, double rippleDb,
 			int directFormType) {
 
-		AnalogLowPass m_analogProto = new AnalogLowPass(order);
+		AnalogLowPass m_analogProto = (AnalogLowPass) analogProto(order);
 		m_analogProto.design(rippleDb);
 
-		LayoutBase m_digitalProto = new LayoutBase(order * 2);
+		LayoutBase m_digitalProto = digitalProto(order * 2);
 
-		new BandStopTransform(centerFrequency / sampleRate, widthFrequency
+		BandStopTransform.transform(centerFrequency / sampleRate, widthFrequency
 				/ sampleRate, m_digitalProto, m_analogProto);
 
 		setLayout(m_digitalProto, directFormType);
@@ -240,12 +244,12 @@ public class ChebyshevI extends Cascade {
 			double centerFrequency, double widthFrequency, double rippleDb,
 			int directFormType) {
 
-		AnalogLowPass m_analogProto = new AnalogLowPass(order);
+		AnalogLowPass m_analogProto = (AnalogLowPass) analogProto(order);
 		m_analogProto.design(rippleDb);
 
-		LayoutBase m_digitalProto = new LayoutBase(order * 2);
+		LayoutBase m_digitalProto = digitalProto(order * 2);
 
-		new BandPassTransform(centerFrequency / sampleRate, widthFrequency
+		BandPassTransform.transform(centerFrequency / sampleRate, widthFrequency
 				/ sampleRate, m_digitalProto, m_analogProto);
 
 		setLayout(m_digitalProto, directFormType);
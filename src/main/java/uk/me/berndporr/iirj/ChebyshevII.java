@@ -20,8 +20,6 @@
 
 package uk.me.berndporr.iirj;
 
-import org.apache.commons.math3.complex.Complex;
-
 /**
  * User facing class which contains all the methods the user uses to create
  * ChebyshevI filters. This done in this way: ChebyshevII chebyshevII = new
@@ -56,27 +54,31 @@ public class ChebyshevII extends Cascade {
 				double b = cosh_v0 * Math.sin((k - nPoles) * fn);
 				double d2 = a * a + b * b;
 				double im = 1 / Math.cos(k * fn);
-				Complex pole = new Complex(a / d2, b / d2);
-				Complex zero = new Complex(0.0, im);
-				addPoleZeroConjugatePairs(pole,zero);
+				addPoleZeroConjugatePairs(a / d2, b / d2, 0.0, im);
 			}
 
 			if ((nPoles & 1) == 1) {
-				add(new Complex(1 / sinh_v0), new Complex(Double.POSITIVE_INFINITY));
+				add(1 / sinh_v0, 0, Double.POSITIVE_INFINITY, 0);
 			}
 			setNormal(0,1);
 		}
 	}
 
+
+	@Override
+	AnalogLowPass newAnalogProto(int order) {
+		return new AnalogLowPass(order);
+	}
+
 	private void setupLowPass(int order, double sampleRate, double cutoffFrequency, double rippleDb,
 			int directFormType) {
 
-		AnalogLowPass m_analogProto = new AnalogLowPass(order);
+		AnalogLowPass m_analogProto = (AnalogLowPass) analogProto(order);
 		m_analogProto.design(rippleDb);
 
-		LayoutBase m_digitalProto = new LayoutBase(order);
+		LayoutBase m_digitalProto = digitalProto(order);
 
-		new LowPassTransform(cutoffFrequency / sampleRate, m_digitalProto, m_analogProto);
+		LowPassTransform.transform(cutoffFrequency / sampleRate, m_digitalProto, m_analogProto);
 
 		setLayout(m_digitalProto, directFormType);
 	}
@@ -110,7 +112,8 @@ public class ChebyshevII extends Cascade {
 	 *            passband ripple in decibel sensible value: 1dB
 	 * @param directFormType
 	 *            The filter topology. This is either
-	 *            DirectFormAbstract.DIRECT_FORM_I or DIRECT_FORM_II
+	 *            DirectFormAbstract.DIRECT_FORM_I, DIRECT_FORM_II
+	 *            or DIRECT_FORM_II_TRANSPOSED
 	 */
 	public void lowPass(int order, double sampleRate, double cutoffFrequency, double rippleDb, int directFormType) {
 		setupLowPass(order, sampleRate, cutoffFrequency, rippleDb, directFormType);
@@ -119,12 +122,12 @@ public class ChebyshevII extends Cascade {
 	private void setupHighPass(int order, double sampleRate, double cutoffFrequency, double rippleDb,
 			int directFormType) {
 
-		AnalogLowPass m_analogProto = new AnalogLowPass(order);
+		AnalogLowPass m_analogProto = (AnalogLowPass) analogProto(order);
 		m_analogProto.design(rippleDb);
 
-		LayoutBase m_digitalProto = new LayoutBase(order);
+		LayoutBase m_digitalProto = digitalProto(order);
 
-		new HighPassTransform(cutoffFrequency / sampleRate, m_digitalProto, m_analogProto);
+		HighPassTransform.transform(cutoffFrequency / sampleRate, m_digitalProto, m_analogProto);
 
 		setLayout(m_digitalProto, directFormType);
 	}
@@ -158,7 +161,8 @@ public class ChebyshevII extends Cascade {
 	 *            passband ripple in decibel sensible value: 1dB
 	 * @param directFormType
 	 *            The filter topology. This is either
-	 *            DirectFormAbstract.DIRECT_FORM_I or DIRECT_FORM_II
+	 *            DirectFormAbstract.DIRECT_FORM_I, DIRECT_FORM_II
+	 *            or DIRECT_FORM_II_TRANSPOSED
 	 */
 	public void highPass(int order, double sampleRate, double cutoffFrequency, double rippleDb, int directFormType) {
 		setupHighPass(order, sampleRate, cutoffFrequency, rippleDb, directFormType);
@@ -167,12 +171,12 @@ public class ChebyshevII extends Cascade {
 	private void setupBandStop(int order, double sampleRate, double centerFrequency, double widthFrequency,
 			double rippleDb, int directFormType) {
 
-		AnalogLowPass m_analogProto = new AnalogLowPass(order);
+		AnalogLowPass m_analogProto = (AnalogLowPass) analogProto(order);
 		m_analogProto.design(rippleDb);
 
-		LayoutBase m_digitalProto = new LayoutBase(order * 2);
+		LayoutBase m_digitalProto = digitalProto(order * 2);
 
-		new BandStopTransform(centerFrequency / sampleRate, widthFrequency / sampleRate, m_digitalProto, m_analogProto);
+		BandStopTransform.transform(centerFrequency / sampleRate, widthFrequency / sampleRate, m_digitalProto, m_analogProto);
 
 		setLayout(m_digitalProto, directFormType);
 	}
@@ -219,12 +223,12 @@ public class ChebyshevII extends Cascade {
 	private void setupBandPass(int order, double sampleRate, double centerFrequency, double widthFrequency,
 			double rippleDb, int directFormType) {
 
-		AnalogLowPass m_analogProto = new AnalogLowPass(order);
+		AnalogLowPass m_analogProto = (AnalogLowPass) analogProto(order);
 		m_analogProto.design(rippleDb);
 
-		LayoutBase m_digitalProto = new LayoutBase(order * 2);
+		LayoutBase m_digitalProto = digitalProto(order * 2);
 
-		new BandPassTransform(centerFrequency / sampleRate, widthFrequency / sampleRate, m_digitalProto, m_analogProto);
+		BandPassTransform.transform(centerFrequency / sampleRate, widthFrequency / sampleRate, m_digitalProto, m_analogProto);
 
 		setLayout(m_digitalProto, directFormType);
 
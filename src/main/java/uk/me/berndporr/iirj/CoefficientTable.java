@@ -0,0 +1,241 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package uk.me.berndporr.iirj;
+
+/**
+ * Precomputed coefficients of a filter design over a range of cutoff
+ * frequencies for fast modulation of the cutoff. The design is run
+ * once for every point of a logarithmically spaced grid and retuning
+ * a filter interpolates linearly between the two closest grid points
+ * which is much cheaper than a full design. Any family and filter type
+ * can be tabulated as long as the number of biquads doesn't depend on
+ * the cutoff. For example:
+ *
+ * <pre>
+ * final Butterworth b = new Butterworth();
+ * CoefficientTable table = new CoefficientTable(48000, 20, 20000, 256,
+ *     new CoefficientTable.Design() {
+ *         public Cascade design(double cutoff) {
+ *             b.lowPass(4, 48000, cutoff);
+ *             return b;
+ *         }
+ *     });
+ * Cascade voice = table.newFilter(DirectFormAbstract.DIRECT_FORM_I);
+ * table.retune(voice, 1000);
+ * </pre>
+ *
+ * A table never changes after it has been created and can be shared
+ * between any number of filters and threads. Every grid point is
+ * checked to be stable when the table is created. The stable region
+ * of the a1,a2 coefficients is convex so that the interpolated filters
+ * are stable as well which retune() checks before it changes a filter.
+ */
+public class CoefficientTable {
+
+	/**
+	 * Designs a filter at a given cutoff. The same instance may be
+	 * returned every time as its coefficients are copied at once.
+	 */
+	public interface Design {
+		Cascade design(double cutoffFrequency);
+	}
+
+	// number of frequencies between 0 and Nyquist to compare responses
+	private static final int ERROR_POINTS = 512;
+
+	private final double m_minCutoff;
+	private final double m_maxCutoff;
+	private final double m_logMin;
+	private final double m_logStep;
+	private final int m_numPoints;
+	private final int m_numBiquads;
+
+	// packed coefficients b0,b1,b2,a1,a2 of all stages, grid point after grid point
+	private final double[] m_table;
+	private final int m_stride;
+
+	private final double m_maxError;
+
+	/**
+	 * Designs the filter at every grid point and checks the interpolated
+	 * response half way between the grid points against an exact design.
+	 *
+	 * @param sampleRate The sampling rate of the system
+	 * @param minCutoff  Lowest cutoff of the table
+	 * @param maxCutoff  Highest cutoff of the table, below the Nyquist frequency
+	 * @param numPoints  Number of grid points, at least 2
+	 * @param design     Designs the filter for a cutoff in Hz
+	 */
+	public CoefficientTable(double sampleRate, double minCutoff, double maxCutoff,
+			int numPoints, Design design) {
+		if (numPoints < 2) {
+			throw new IllegalArgumentException("The table needs at least two points.");
+		}
+		if (!(minCutoff > 0) || !(maxCutoff > minCutoff) || !(maxCutoff < sampleRate / 2)) {
+			throw new IllegalArgumentException(
+					"The cutoffs must be positive, increasing and below the Nyquist frequency.");
+		}
+		m_minCutoff = minCutoff;
+		m_maxCutoff = maxCutoff;
+		m_numPoints = numPoints;
+		m_logMin = Math.log(minCutoff);
+		m_logStep = (Math.log(maxCutoff) - m_logMin) / (numPoints - 1);
+
+		Cascade first = design.design(minCutoff);
+		m_numBiquads = first.getNumBiquads();
+		m_stride = m_numBiquads * Cascade.COEFFS_PER_STAGE;
+		m_table = new double[m_stride * numPoints];
+		for (int i = 0; i < numPoints; i++) {
+			Cascade c = (i == 0) ? first : design.design(getCutoff(i));
+			checkStructure(c);
+			System.arraycopy(c.getPackedCoefficients(), 0, m_table, i * m_stride, m_stride);
+			for (int k = i * m_stride; k < (i + 1) * m_stride; k += Cascade.COEFFS_PER_STAGE) {
+				if (!Cascade.isStable(m_table[k + 3], m_table[k + 4])) {
+					throw new IllegalArgumentException(
+							"The design at " + getCutoff(i) + " Hz is unstable.");
+				}
+			}
+		}
+
+		// interpolation error half way between the grid points
+		Cascade interpolated = newFilter(DirectFormAbstract.DIRECT_FORM_II);
+		double[] exact = new double[ERROR_POINTS];
+		double[] approx = new double[ERROR_POINTS];
+		double step = 0.5 / (ERROR_POINTS - 1);
+		double maxError = 0;
+		for (int i = 0; i < numPoints - 1; i++) {
+			double f = Math.exp(m_logMin + (i + 0.5) * m_logStep);
+			Cascade c = design.design(f);
+			checkStructure(c);
+			c.response(0, step, exact, null);
+			retune(interpolated, f);
+			interpolated.response(0, step, approx, null);
+			for (int j = 0; j < ERROR_POINTS; j++) {
+				maxError = Math.max(maxError, Math.abs(exact[j] - approx[j]));
+			}
+		}
+		m_maxError = maxError;
+	}
+
+	private void checkStructure(Cascade c) {
+		if (c.getNumBiquads() != m_numBiquads) {
+			throw new IllegalArgumentException(
+					"The number of biquads must not depend on the cutoff.");
+		}
+	}
+
+	// cutoff of a grid point
+	private double getCutoff(int i) {
+		if (i == m_numPoints - 1) {
+			return m_maxCutoff;
+		}
+		return Math.exp(m_logMin + i * m_logStep);
+	}
+
+	/**
+	 * Creates a filter which can be retuned with this table.
+	 * It starts at the lowest cutoff.
+	 *
+	 * @param directFormType The filter topology. See DirectFormAbstract.
+	 * @return A new filter
+	 */
+	public Cascade newFilter(int directFormType) {
+		double[][] sos = new double[m_numBiquads][6];
+		for (int i = 0; i < m_numBiquads; i++) {
+			int k = i * Cascade.COEFFS_PER_STAGE;
+			sos[i][0] = m_table[k];
+			sos[i][1] = m_table[k + 1];
+			sos[i][2] = m_table[k + 2];
+			sos[i][3] = 1;
+			sos[i][4] = m_table[k + 3];
+			sos[i][5] = m_table[k + 4];
+		}
+		SOSCascade filter = new SOSCascade();
+		filter.setup(sos, directFormType);
+		return filter;
+	}
+
+	/**
+	 * Sets the coefficients of a filter to the interpolated ones at a
+	 * cutoff. The states of the filter are kept and no memory is
+	 * allocated. Cutoffs outside of the table are clamped to its range.
+	 * Like filter() this must be called by the thread which filters.
+	 *
+	 * @param filter          A filter with the same number of biquads as the table
+	 * @param cutoffFrequency The new cutoff in Hz
+	 * @throws IllegalStateException if rounding has moved an interpolated
+	 *                               pole onto the unit circle. The filter
+	 *                               is left unchanged.
+	 */
+	public void retune(Cascade filter, double cutoffFrequency) {
+		if (filter.getNumBiquads() != m_numBiquads) {
+			throw new IllegalArgumentException(
+					"The filter needs to have " + m_numBiquads + " biquads.");
+		}
+		double x = (Math.log(cutoffFrequency) - m_logMin) / m_logStep;
+		if (!(x > 0)) {
+			x = 0;
+		} else if (x > m_numPoints - 1) {
+			x = m_numPoints - 1;
+		}
+		int i = Math.min((int) x, m_numPoints - 2);
+		double t = x - i;
+		final int base = i * m_stride;
+		for (int k = base + 3; k < base + m_stride; k += Cascade.COEFFS_PER_STAGE) {
+			double a1 = m_table[k] + t * (m_table[k + m_stride] - m_table[k]);
+			double a2 = m_table[k + 1] + t * (m_table[k + 1 + m_stride] - m_table[k + 1]);
+			if (!Cascade.isStable(a1, a2)) {
+				throw new IllegalStateException(
+						"The interpolated filter at " + cutoffFrequency + " Hz is unstable.");
+			}
+		}
+		double[] c = filter.getPackedCoefficients();
+		for (int k = 0, p = base; k < m_stride; k++, p++) {
+			c[k] = m_table[p] + t * (m_table[p + m_stride] - m_table[p]);
+		}
+		filter.coefficientsChanged();
+	}
+
+	/**
+	 * Largest difference of the magnitude responses of an interpolated
+	 * filter and the exact design at any frequency, evaluated half way
+	 * between the grid points. Use more grid points if this is too large.
+	 *
+	 * @return Maximum error of the magnitude response (linear, not dB)
+	 */
+	public double getMaxError() {
+		return m_maxError;
+	}
+
+	public double getMinCutoff() {
+		return m_minCutoff;
+	}
+
+	public double getMaxCutoff() {
+		return m_maxCutoff;
+	}
+
+	public int getNumPoints() {
+		return m_numPoints;
+	}
+
+	public int getNumBiquads() {
+		return m_numBiquads;
+	}
+}
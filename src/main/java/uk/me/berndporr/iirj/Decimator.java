@@ -0,0 +1,190 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * 
+ *  Copyright (c) 2016 by Bernd Porr
+ */
+
+package uk.me.berndporr.iirj;
+
+/**
+ * Lowpass filters and downsamples a signal by an integer factor. The
+ * anti-aliasing filter has its cutoff at 80% of the new Nyquist
+ * frequency. Large factors are split into stages of at most
+ * MAX_STAGE_FACTOR, each with its own filter, which keeps the poles
+ * away from z=1 and reduces the sampling rate early. For example
+ * 10 kHz to 250 Hz:
+ *
+ * <pre>
+ * Decimator decimator = new Decimator(40); // stages of 8 and 5
+ * int n = decimator.filter(in, 0, out, 0, in.length);
+ * </pre>
+ *
+ * The first sample of every group of factor samples is kept and the
+ * phase is carried over from one block to the next so that any block
+ * sizes can be used.
+ */
+public class Decimator {
+
+	/**
+	 * Largest rate factor of a single stage
+	 */
+	public static final int MAX_STAGE_FACTOR = 8;
+
+	/**
+	 * Default order of the anti-aliasing filters
+	 */
+	public static final int DEFAULT_ORDER = 8;
+
+	// samples per chunk of the block processing
+	private static final int BLOCK = 256;
+
+	private final int m_factor;
+	private final int[] m_stageFactors;
+	private final Cascade[] m_filters;
+	private final int[] m_phases;
+	private int m_phase;
+	private final double[] m_buffer = new double[BLOCK];
+
+	/**
+	 * Decimator with 8th order Chebyshev Type I filters.
+	 *
+	 * @param factor The ratio of the input and output sampling rates
+	 */
+	public Decimator(int factor) {
+		this(factor, FilterFamily.CHEBYSHEV_I, DEFAULT_ORDER);
+	}
+
+	/**
+	 * Decimator with a choice of filter.
+	 *
+	 * @param factor The ratio of the input and output sampling rates
+	 * @param family One of the families in FilterFamily
+	 * @param order  The order of the anti-aliasing filter of every stage
+	 */
+	public Decimator(int factor, int family, int order) {
+		m_factor = factor;
+		m_stageFactors = FilterFamily.stageFactors(factor, MAX_STAGE_FACTOR);
+		m_filters = new Cascade[m_stageFactors.length];
+		m_phases = new int[m_stageFactors.length];
+		for (int i = 0; i < m_filters.length; i++) {
+			m_filters[i] = FilterFamily.lowPass(family, order, 0.4 / m_stageFactors[i]);
+		}
+	}
+
+	public int getFactor() {
+		return m_factor;
+	}
+
+	/**
+	 * @return The rate factors of the stages in the order they are applied
+	 */
+	public int[] getStageFactors() {
+		return m_stageFactors.clone();
+	}
+
+	/**
+	 * Clears the states of the filters and the phase.
+	 */
+	public void reset() {
+		for (int i = 0; i < m_filters.length; i++) {
+			m_filters[i].reset();
+			m_phases[i] = 0;
+		}
+		m_phase = 0;
+	}
+
+	/**
+	 * Number of output samples the next call of filter() produces.
+	 *
+	 * @param numInputs Number of input samples
+	 * @return Number of output samples
+	 */
+	public int getOutputLength(int numInputs) {
+		int first = (m_factor - m_phase) % m_factor;
+		if (numInputs <= first) {
+			return 0;
+		}
+		return 1 + (numInputs - 1 - first) / m_factor;
+	}
+
+	/**
+	 * Filters and downsamples a block of samples.
+	 *
+	 * @param in     Input samples
+	 * @param inOff  Index of the first input sample
+	 * @param out    Output samples. Needs space for getOutputLength(len) samples.
+	 * @param outOff Index of the first output sample
+	 * @param len    Number of input samples
+	 * @return Number of output samples
+	 */
+	public int filter(double[] in, int inOff, double[] out, int outOff, int len) {
+		final int numOutputs = getOutputLength(len);
+		if ((len < 0) || (inOff < 0) || (outOff < 0)
+				|| (inOff > in.length - len) || (outOff > out.length - numOutputs)) {
+			throw new IndexOutOfBoundsException(len + " samples and "
+					+ numOutputs + " outputs do not fit into the arrays.");
+		}
+		if (m_filters.length == 0) {
+			System.arraycopy(in, inOff, out, outOff, len);
+			return len;
+		}
+		final double[] buf = m_buffer;
+		int o = outOff;
+		for (int i = 0; i < len; i += BLOCK) {
+			final int n = Math.min(BLOCK, len - i);
+			m_filters[0].filter(in, inOff + i, buf, 0, n);
+			int k = downsample(0, n);
+			for (int s = 1; s < m_filters.length; s++) {
+				m_filters[s].filter(buf, 0, k);
+				k = downsample(s, k);
+			}
+			System.arraycopy(buf, 0, out, o, k);
+			o += k;
+		}
+		m_phase = (int) ((m_phase + (long) len) % m_factor);
+		return o - outOff;
+	}
+
+	/**
+	 * Filters and downsamples a whole array.
+	 *
+	 * @param in Input samples
+	 * @return The output samples
+	 */
+	public double[] filter(double[] in) {
+		double[] out = new double[getOutputLength(in.length)];
+		filter(in, 0, out, 0, in.length);
+		return out;
+	}
+
+	// keeps every m-th sample of the buffer in place
+	private int downsample(int stage, int n) {
+		final double[] buf = m_buffer;
+		final int m = m_stageFactors[stage];
+		int phase = m_phases[stage];
+		int k = 0;
+		for (int i = 0; i < n; i++) {
+			if (phase == 0) {
+				buf[k++] = buf[i];
+			}
+			if (++phase == m) {
+				phase = 0;
+			}
+		}
+		m_phases[stage] = phase;
+		return k;
+	}
+}
@@ -0,0 +1,65 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * 
+ *  Copyright (c) 2016 by Bernd Porr
+ */
+
+package uk.me.berndporr.iirj;
+
+/**
+ * Protection of the states of a Cascade against subnormal numbers for
+ * Cascade.setDenormalProtection(). When the input goes silent the
+ * states decay towards zero and end up as subnormal doubles which many
+ * CPUs process 10 to 100 times slower than normal ones.
+ */
+public final class DenormalProtection {
+
+	/**
+	 * No protection (default)
+	 */
+	public static final int NONE = 0;
+
+	/**
+	 * Adds tiny pseudo random noise of NOISE_LEVEL to the input so that
+	 * the states never decay below it. Costs a few operations per sample.
+	 */
+	public static final int NOISE = 1;
+
+	/**
+	 * Every FLUSH_INTERVAL samples the states of each stage whose states
+	 * are all below FLUSH_THRESHOLD are set to zero. The output is only
+	 * changed once a stage has gone silent.
+	 */
+	public static final int FLUSH = 2;
+
+	/**
+	 * Peak amplitude of the noise, about -400 dB below 1
+	 */
+	public static final double NOISE_LEVEL = 1E-20;
+
+	/**
+	 * States smaller than this are flushed to zero
+	 */
+	public static final double FLUSH_THRESHOLD = 1E-20;
+
+	/**
+	 * Number of samples between flushes
+	 */
+	public static final int FLUSH_INTERVAL = 64;
+
+	private DenormalProtection() {
+	}
+}
@@ -23,7 +23,7 @@ package uk.me.berndporr.iirj;
 /**
  * Abstract form of the a filter which can have different state variables
  *
- * Direct form I or II is derived from it
+ * Direct form I, II or transposed II is derived from it
  */
 public abstract class DirectFormAbstract {
 
@@ -37,5 +37,6 @@ public abstract class DirectFormAbstract {
 
     public static final int DIRECT_FORM_I = 0;
     public static final int DIRECT_FORM_II = 1;
+    public static final int DIRECT_FORM_II_TRANSPOSED = 2;
 
 };
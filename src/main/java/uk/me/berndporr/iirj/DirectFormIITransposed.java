@@ -0,0 +1,54 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * 
+ *  Copyright (c) 2009 by Vinnie Falco
+ *  Copyright (c) 2016 by Bernd Porr
+ */
+
+package uk.me.berndporr.iirj;
+
+/**
+ * 
+ * Implementation of a transposed Direct Form II filter with its states.
+ * The coefficients are supplied from the outside. The output only depends
+ * on one multiply-add after the input arrives which gives a short
+ * dependency chain and it behaves well at lower precision.
+ *
+ */
+
+public class DirectFormIITransposed extends DirectFormAbstract {
+
+    public DirectFormIITransposed() {
+        reset();
+    }
+
+    public void reset() {
+        m_s1 = 0;
+        m_s2 = 0;
+    }
+
+    public double process1(double in,
+                    Biquad s) {
+        double out = s.m_b0 * in + m_s1;
+        m_s1 = s.m_b1 * in - s.m_a1 * out + m_s2;
+        m_s2 = s.m_b2 * in - s.m_a2 * out;
+
+        return out;
+    }
+
+    double m_s1; // s1[n-1]
+    double m_s2; // s2[n-1]
+}
@@ -0,0 +1,119 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * 
+ *  Copyright (c) 2016 by Bernd Porr
+ */
+
+package uk.me.berndporr.iirj;
+
+import java.util.Arrays;
+
+/**
+ * Filter families for the anti-aliasing and anti-imaging lowpass
+ * filters of Decimator and Interpolator.
+ */
+public final class FilterFamily {
+
+	/**
+	 * Chebyshev Type I with 0.05 dB ripple: steepest transition
+	 */
+	public static final int CHEBYSHEV_I = 0;
+
+	/**
+	 * Butterworth: flat passband
+	 */
+	public static final int BUTTERWORTH = 1;
+
+	/**
+	 * Bessel: linear phase in the passband, slow transition
+	 */
+	public static final int BESSEL = 2;
+
+	/**
+	 * Passband ripple of the Chebyshev filters in dB
+	 */
+	public static final double RIPPLE_DB = 0.05;
+
+	private FilterFamily() {
+	}
+
+	// lowpass at a normalised cutoff (sampling rate 1)
+	static Cascade lowPass(int family, int order, double cutoff) {
+		final int type = DirectFormAbstract.DIRECT_FORM_II_TRANSPOSED;
+		switch (family) {
+		case CHEBYSHEV_I:
+			ChebyshevI chebyshevI = new ChebyshevI();
+			chebyshevI.lowPass(order, 1, cutoff, RIPPLE_DB, type);
+			return chebyshevI;
+		case BUTTERWORTH:
+			Butterworth butterworth = new Butterworth();
+			butterworth.lowPass(order, 1, cutoff, type);
+			return butterworth;
+		case BESSEL:
+			Bessel bessel = new Bessel();
+			bessel.lowPass(order, 1, cutoff, type);
+			return bessel;
+		default:
+			throw new IllegalArgumentException("Unknown filter family: " + family);
+		}
+	}
+
+	// splits a rate factor into stages of at most maxStageFactor
+	// unless a prime factor is larger, largest stage first
+	static int[] stageFactors(int factor, int maxStageFactor) {
+		if (factor < 1) {
+			throw new IllegalArgumentException("The rate factor must be at least 1.");
+		}
+		// prime factors, largest first
+		int[] primes = new int[32];
+		int numPrimes = 0;
+		int f = factor;
+		for (int p = 2; (long) p * p <= f; p++) {
+			while (f % p == 0) {
+				primes[numPrimes++] = p;
+				f /= p;
+			}
+		}
+		if (f > 1) {
+			primes[numPrimes++] = f;
+		}
+		// first fit decreasing into stages
+		int[] stages = new int[numPrimes];
+		int numStages = 0;
+		for (int i = numPrimes - 1; i >= 0; i--) {
+			int s = 0;
+			while ((s < numStages) && (stages[s] * primes[i] > maxStageFactor)) {
+				s++;
+			}
+			if (s == numStages) {
+				stages[numStages++] = primes[i];
+			} else {
+				stages[s] *= primes[i];
+			}
+		}
+		int[] result = new int[numStages];
+		for (int i = 0; i < numStages; i++) {
+			result[i] = stages[i];
+		}
+		Arrays.sort(result);
+		for (int i = 0; i < numStages / 2; i++) {
+			int t = result[i];
+			result[i] = result[numStages - 1 - i];
+			result[numStages - 1 - i] = t;
+		}
+		return result;
+	}
+}
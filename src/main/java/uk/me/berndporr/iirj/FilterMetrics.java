@@ -0,0 +1,107 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * 
+ *  Copyright (c) 2016 by Bernd Porr
+ */
+
+package uk.me.berndporr.iirj;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counters of the work done by one filter or a named group of filters:
+ * samples and blocks filtered by the block methods, number of designs
+ * (setLayout() and setSOScoeff()) and the time spent in them. Attach it
+ * with Cascade.setMetrics(). The counters are striped (LongAdder) so
+ * that any number of filters in different threads can share them
+ * without contention. Reading them sums the stripes.
+ */
+public class FilterMetrics implements FilterMetricsMBean {
+
+	private final String m_name;
+	private final LongAdder m_samples = new LongAdder();
+	private final LongAdder m_blocks = new LongAdder();
+	private final LongAdder m_designs = new LongAdder();
+	private final LongAdder m_designNanos = new LongAdder();
+
+	/**
+	 * @param name Name of the filter or group, for example for JMX
+	 */
+	public FilterMetrics(String name) {
+		if (name == null) {
+			throw new IllegalArgumentException("The metrics need a name.");
+		}
+		m_name = name;
+	}
+
+	void recordBlock(int numSamples) {
+		m_blocks.increment();
+		m_samples.add(numSamples);
+	}
+
+	void recordDesign(long nanos) {
+		m_designs.increment();
+		m_designNanos.add(nanos);
+	}
+
+	/**
+	 * Clears all counters.
+	 */
+	public void reset() {
+		m_samples.reset();
+		m_blocks.reset();
+		m_designs.reset();
+		m_designNanos.reset();
+	}
+
+	public String getName() {
+		return m_name;
+	}
+
+	/**
+	 * @return Number of samples filtered by the block methods
+	 */
+	public long getSamples() {
+		return m_samples.sum();
+	}
+
+	/**
+	 * @return Number of calls of the block methods
+	 */
+	public long getBlocks() {
+		return m_blocks.sum();
+	}
+
+	/**
+	 * @return Number of designs
+	 */
+	public long getDesigns() {
+		return m_designs.sum();
+	}
+
+	/**
+	 * @return Total time spent in the designs in nanoseconds
+	 */
+	public long getDesignNanos() {
+		return m_designNanos.sum();
+	}
+
+	@Override
+	public String toString() {
+		return m_name + ": " + getSamples() + " samples in " + getBlocks() + " blocks, "
+				+ getDesigns() + " designs in " + getDesignNanos() + " ns";
+	}
+}
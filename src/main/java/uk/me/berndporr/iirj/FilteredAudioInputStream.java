@@ -0,0 +1,194 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package uk.me.berndporr.iirj;
+
+import java.io.IOException;
+
+import javax.sound.sampled.AudioFormat;
+import javax.sound.sampled.AudioInputStream;
+
+/**
+ * Filters every channel of an AudioInputStream while it's read. The
+ * samples are decoded, filtered and encoded again in the buffer of the
+ * caller so that no memory is allocated while reading. Signed and
+ * unsigned PCM with 8, 16, 24 or 32 bits and 32 or 64 bit float PCM
+ * are supported in both byte orders. Integer samples are filtered
+ * without scaling, rounded to the nearest (half to even) and clipped
+ * to their range as in SampleEncoding. The frame size of the format
+ * must be specified so that reads end at the end of a frame. Every
+ * channel has its own filter. Skipped bytes are not filtered and
+ * mark/reset isn't supported as the states of the filters can't be
+ * rewound.
+ */
+public class FilteredAudioInputStream extends AudioInputStream {
+
+	private final Cascade[] m_filters;
+	private final int m_channels;
+	private final int m_bytes;
+	private final int m_bits;
+	private final boolean m_bigEndian;
+	private final boolean m_float;
+	private final boolean m_signed;
+	private final byte[] m_single = new byte[1];
+
+	/**
+	 * Filters every channel with its own copy of a filter.
+	 *
+	 * @param source The audio to be filtered
+	 * @param filter The filter for all channels. It isn't changed and
+	 *               later changes of it don't affect the stream.
+	 */
+	public FilteredAudioInputStream(AudioInputStream source, Cascade filter) {
+		this(source, copies(filter, source.getFormat().getChannels()));
+	}
+
+	/**
+	 * Filters every channel with a different filter.
+	 *
+	 * @param source  The audio to be filtered
+	 * @param filters One filter per channel which is updated while reading
+	 */
+	public FilteredAudioInputStream(AudioInputStream source, Cascade[] filters) {
+		super(source, source.getFormat(), source.getFrameLength());
+		AudioFormat f = source.getFormat();
+		m_channels = f.getChannels();
+		if (filters.length != m_channels) {
+			throw new IllegalArgumentException("There are " + m_channels
+					+ " channels but " + filters.length + " filters.");
+		}
+		m_filters = filters;
+		m_bits = f.getSampleSizeInBits();
+		m_bytes = m_bits / 8;
+		m_bigEndian = f.isBigEndian();
+		AudioFormat.Encoding e = f.getEncoding();
+		m_float = AudioFormat.Encoding.PCM_FLOAT.equals(e);
+		m_signed = AudioFormat.Encoding.PCM_SIGNED.equals(e);
+		boolean supported;
+		if (m_float) {
+			supported = (m_bits == 32) || (m_bits == 64);
+		} else {
+			supported = (m_signed || AudioFormat.Encoding.PCM_UNSIGNED.equals(e))
+					&& (m_bits % 8 == 0) && (m_bits >= 8) && (m_bits <= 32);
+		}
+		// without a frame size reads could end within a frame
+		if (!supported || (f.getFrameSize() != m_channels * m_bytes)) {
+			throw new IllegalArgumentException("Unsupported audio format: " + f);
+		}
+	}
+
+	private static Cascade[] copies(Cascade filter, int channels) {
+		Cascade[] filters = new Cascade[channels];
+		for (int c = 0; c < channels; c++) {
+			filters[c] = new Cascade(filter);
+		}
+		return filters;
+	}
+
+	@Override
+	public int read() throws IOException {
+		if (m_channels * m_bytes != 1) {
+			throw new IOException("cannot read a single byte if frame size > 1");
+		}
+		int n = read(m_single, 0, 1);
+		return (n <= 0) ? -1 : (m_single[0] & 0xff);
+	}
+
+	@Override
+	public int read(byte[] b, int off, int len) throws IOException {
+		int n = super.read(b, off, len);
+		if (n > 0) {
+			// the superclass only returns whole frames
+			filter(b, off, n);
+		}
+		return n;
+	}
+
+	private void filter(byte[] b, int off, int len) {
+		final int end = off + len;
+		for (int p = off; p < end; ) {
+			for (int c = 0; c < m_channels; c++, p += m_bytes) {
+				if (m_float) {
+					long bits = decode(b, p);
+					if (m_bits == 32) {
+						float y = (float) m_filters[c].filter(Float.intBitsToFloat((int) bits));
+						encode(b, p, Float.floatToRawIntBits(y));
+					} else {
+						double y = m_filters[c].filter(Double.longBitsToDouble(bits));
+						encode(b, p, Double.doubleToRawLongBits(y));
+					}
+				} else {
+					final long half = 1L << (m_bits - 1);
+					long v = decode(b, p);
+					if (m_signed) {
+						// sign extension
+						v = (v << (64 - m_bits)) >> (64 - m_bits);
+					} else {
+						v -= half;
+					}
+					long y = (long) Math.rint(m_filters[c].filter(v));
+					y = Math.max(-half, Math.min(half - 1, y));
+					encode(b, p, m_signed ? y : y + half);
+				}
+			}
+		}
+	}
+
+	// the bytes of a sample as an unsigned number
+	private long decode(byte[] b, int p) {
+		long v = 0;
+		if (m_bigEndian) {
+			for (int k = 0; k < m_bytes; k++) {
+				v = (v << 8) | (b[p + k] & 0xff);
+			}
+		} else {
+			for (int k = m_bytes - 1; k >= 0; k--) {
+				v = (v << 8) | (b[p + k] & 0xff);
+			}
+		}
+		return v;
+	}
+
+	private void encode(byte[] b, int p, long v) {
+		if (m_bigEndian) {
+			for (int k = m_bytes - 1; k >= 0; k--) {
+				b[p + k] = (byte) v;
+				v >>= 8;
+			}
+		} else {
+			for (int k = 0; k < m_bytes; k++) {
+				b[p + k] = (byte) v;
+				v >>= 8;
+			}
+		}
+	}
+
+	@Override
+	public boolean markSupported() {
+		return false;
+	}
+
+	@Override
+	public void mark(int readlimit) {
+	}
+
+	@Override
+	public void reset() throws IOException {
+		throw new IOException("mark/reset not supported");
+	}
+}
@@ -0,0 +1,82 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package uk.me.berndporr.iirj;
+
+import java.util.Spliterator;
+import java.util.function.DoubleConsumer;
+
+/**
+ * Filters the samples of another Spliterator.OfDouble in their order.
+ * It can't be split because every sample depends on the ones before.
+ * See Cascade.filter(DoubleStream) for the stream version.
+ */
+public class FilteredSpliterator implements Spliterator.OfDouble {
+
+	private final Spliterator.OfDouble m_source;
+	private final Cascade m_filter;
+
+	// where the filtered samples go, set for every call
+	private DoubleConsumer m_action;
+
+	// receives the samples from the source without a lambda per call
+	private final DoubleConsumer m_sink = new DoubleConsumer() {
+		public void accept(double value) {
+			m_action.accept(m_filter.filter(value));
+		}
+	};
+
+	/**
+	 * @param source The input samples
+	 * @param filter The filter whose states are updated while traversing
+	 */
+	public FilteredSpliterator(Spliterator.OfDouble source, Cascade filter) {
+		m_source = source;
+		m_filter = filter;
+	}
+
+	public boolean tryAdvance(DoubleConsumer action) {
+		m_action = action;
+		try {
+			return m_source.tryAdvance(m_sink);
+		} finally {
+			m_action = null;
+		}
+	}
+
+	public void forEachRemaining(DoubleConsumer action) {
+		m_action = action;
+		try {
+			m_source.forEachRemaining(m_sink);
+		} finally {
+			m_action = null;
+		}
+	}
+
+	public Spliterator.OfDouble trySplit() {
+		return null;
+	}
+
+	public long estimateSize() {
+		return m_source.estimateSize();
+	}
+
+	public int characteristics() {
+		return (m_source.characteristics() & (SIZED | SUBSIZED)) | ORDERED | NONNULL;
+	}
+}
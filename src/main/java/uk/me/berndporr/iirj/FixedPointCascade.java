@@ -0,0 +1,443 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * 
+ *  Copyright (c) 2016 by Bernd Porr
+ */
+
+package uk.me.berndporr.iirj;
+
+import java.util.Arrays;
+
+/**
+ * Fixed point version of a filter for integer PCM data. It is created
+ * from any filter design and processes either 16 bit samples (Q15)
+ * or 32 bit samples (Q31) without converting them to double:
+ *         Butterworth butterworth = new Butterworth();
+ *         butterworth.lowPass(4,8000,1000);
+ *         FixedPointCascade f = new FixedPointCascade(butterworth,FixedPointCascade.Q15);
+ *         f.filter(pcm,0,pcm.length);
+ *
+ * Every stage is a direct form I with a 64 bit accumulator. The stages
+ * are scaled so that the peak gain of the cascade up to every stage is
+ * 2^-headroomBits and the overall gain is restored at the output. Each
+ * stage has its own number of fractional bits for its coefficients.
+ * The rounding error of every stage is fed back into its next sample
+ * (first order error feedback) and the outputs saturate instead of
+ * wrapping around. The number of saturations is counted and, when
+ * switched on with setNoiseStatistics(), the power of the rounding error.
+ */
+public class FixedPointCascade {
+
+	/**
+	 * 16 bit samples and 16 bit coefficients
+	 */
+	public static final int Q15 = 15;
+
+	/**
+	 * 32 bit samples and 30 bit coefficients
+	 */
+	public static final int Q31 = 31;
+
+	// number of frequencies to find the peak gains
+	private static final int N_FREQ = 4096;
+
+	private final int m_format;
+
+	private final int m_numBiquads;
+
+	// b0,b1,b2,a1,a2 of every stage
+	private final long[] m_coeff;
+
+	// fractional bits of the coefficients of every stage
+	private final int[] m_fracBits;
+
+	// 2^-fracBits of every stage for the noise statistics
+	private final double[] m_lsb;
+
+	// x1,x2,y1,y2 of every stage
+	private final long[] m_state;
+
+	// rounding error of the last sample of every stage
+	private final long[] m_error;
+
+	// output gain
+	private final long m_gain;
+	private final int m_gainFracBits;
+
+	private final long m_min;
+	private final long m_max;
+
+	private final double m_coeffError;
+
+	private long m_overflows;
+	private boolean m_noiseStatistics = false;
+	private double m_noiseSum;
+	private long m_noiseCount;
+
+	/**
+	 * Fixed point filter with one bit headroom
+	 * 
+	 * @param design
+	 *            Any filter which has been set up
+	 * @param format
+	 *            Q15 or Q31
+	 */
+	public FixedPointCascade(Cascade design, int format) {
+		this(design, format, 1);
+	}
+
+	/**
+	 * Fixed point filter
+	 * 
+	 * @param design
+	 *            Any filter which has been set up
+	 * @param format
+	 *            Q15 or Q31
+	 * @param headroomBits
+	 *            The peak gain up to every stage is 2^-headroomBits
+	 */
+	public FixedPointCascade(Cascade design, int format, int headroomBits) {
+		if ((format != Q15) && (format != Q31)) {
+			throw new IllegalArgumentException("Unsupported format: " + format);
+		}
+		if ((headroomBits < 0) || (headroomBits > 8)) {
+			throw new IllegalArgumentException("Headroom must be between 0 and 8 bits.");
+		}
+		m_format = format;
+		final int coeffBits = (format == Q15) ? 16 : 30;
+		m_max = (format == Q15) ? Short.MAX_VALUE : Integer.MAX_VALUE;
+		m_min = (format == Q15) ? Short.MIN_VALUE : Integer.MIN_VALUE;
+
+		m_numBiquads = design.getNumBiquads();
+		double[] c = design.getPackedCoefficients();
+		double[] scaled = (c == null) ? new double[0] : c.clone();
+
+		// peak gain of the cascade up to every stage
+		double target = Math.pow(2, -headroomBits);
+		double cumulative = 1;
+		for (int i = 0; i < m_numBiquads; i++) {
+			double peak = peakGain(scaled, i + 1);
+			double s = target / peak;
+			if (!(s > 0) || Double.isInfinite(s)) {
+				s = 1;
+			}
+			int k = i * Cascade.COEFFS_PER_STAGE;
+			scaled[k] *= s;
+			scaled[k + 1] *= s;
+			scaled[k + 2] *= s;
+			cumulative *= s;
+		}
+		double gain = 1 / cumulative;
+
+		m_coeff = new long[scaled.length];
+		m_fracBits = new int[m_numBiquads];
+		m_lsb = new double[m_numBiquads];
+		for (int i = 0; i < m_numBiquads; i++) {
+			int k = i * Cascade.COEFFS_PER_STAGE;
+			double maxAbs = 0;
+			for (int j = 0; j < Cascade.COEFFS_PER_STAGE; j++) {
+				maxAbs = Math.max(maxAbs, Math.abs(scaled[k + j]));
+			}
+			m_fracBits[i] = fractionalBits(maxAbs, coeffBits);
+			m_lsb[i] = Math.pow(2, -m_fracBits[i]);
+			for (int j = 0; j < Cascade.COEFFS_PER_STAGE; j++) {
+				m_coeff[k + j] = quantise(scaled[k + j], m_fracBits[i], coeffBits);
+			}
+		}
+		m_gainFracBits = fractionalBits(gain, coeffBits);
+		m_gain = quantise(gain, m_gainFracBits, coeffBits);
+
+		m_coeffError = responseError(c);
+
+		m_state = new long[m_numBiquads * 4];
+		m_error = new long[m_numBiquads];
+	}
+
+	// fractional bits so that v fits into coeffBits with at least
+	// one integer bit
+	private static int fractionalBits(double v, int coeffBits) {
+		int bits = 1;
+		while ((bits < coeffBits) && (Math.pow(2, bits) <= v)) {
+			bits++;
+		}
+		if (coeffBits - 1 - bits < 1) {
+			throw new IllegalArgumentException("Coefficient or gain " + v
+					+ " is too large for the fixed point format.");
+		}
+		return coeffBits - 1 - bits;
+	}
+
+	private static long quantise(double v, int fracBits, int coeffBits) {
+		long max = (1L << (coeffBits - 1)) - 1;
+		long q = Math.round(v * Math.pow(2, fracBits));
+		return Math.max(-max, Math.min(max, q));
+	}
+
+	// magnitude response of stage i of packed coefficients at w
+	private static double magnitude(double[] c, int i, double w) {
+		int k = i * Cascade.COEFFS_PER_STAGE;
+		double c1 = Math.cos(w);
+		double s1 = Math.sin(w);
+		double c2 = Math.cos(2 * w);
+		double s2 = Math.sin(2 * w);
+		double nr = c[k] + c[k + 1] * c1 + c[k + 2] * c2;
+		double ni = -c[k + 1] * s1 - c[k + 2] * s2;
+		double dr = 1 + c[k + 3] * c1 + c[k + 4] * c2;
+		double di = -c[k + 3] * s1 - c[k + 4] * s2;
+		return Math.sqrt((nr * nr + ni * ni) / (dr * dr + di * di));
+	}
+
+	// peak magnitude of the first n stages
+	private static double peakGain(double[] c, int n) {
+		double peak = 0;
+		for (int f = 0; f <= N_FREQ; f++) {
+			double w = Math.PI * f / N_FREQ;
+			double h = 1;
+			for (int i = 0; i < n; i++) {
+				h *= magnitude(c, i, w);
+			}
+			peak = Math.max(peak, h);
+		}
+		return peak;
+	}
+
+	// largest difference between the magnitude of the design and the
+	// magnitude of the quantised filter
+	private double responseError(double[] design) {
+		double[] q = new double[m_coeff.length];
+		for (int i = 0; i < m_numBiquads; i++) {
+			for (int j = 0; j < Cascade.COEFFS_PER_STAGE; j++) {
+				int k = i * Cascade.COEFFS_PER_STAGE + j;
+				q[k] = m_coeff[k] * Math.pow(2, -m_fracBits[i]);
+			}
+		}
+		double g = m_gain * Math.pow(2, -m_gainFracBits);
+		double err = 0;
+		for (int f = 0; f <= N_FREQ; f++) {
+			double w = Math.PI * f / N_FREQ;
+			double hd = 1;
+			double hq = g;
+			for (int i = 0; i < m_numBiquads; i++) {
+				hd *= magnitude(design, i, w);
+				hq *= magnitude(q, i, w);
+			}
+			err = Math.max(err, Math.abs(hq - hd));
+		}
+		return err;
+	}
+
+	public int getFormat() {
+		return m_format;
+	}
+
+	public int getNumBiquads() {
+		return m_numBiquads;
+	}
+
+	/**
+	 * @return Largest absolute difference between the magnitude response
+	 *         of the design and the one of the quantised coefficients
+	 */
+	public double getCoefficientError() {
+		return m_coeffError;
+	}
+
+	/**
+	 * @return Number of samples which have been saturated
+	 */
+	public long getOverflowCount() {
+		return m_overflows;
+	}
+
+	/**
+	 * Measures the power of the rounding error while filtering. This is
+	 * off by default so that filtering is done in integer arithmetic only.
+	 *
+	 * @param on true to measure the rounding error
+	 */
+	public void setNoiseStatistics(boolean on) {
+		m_noiseStatistics = on;
+	}
+
+	/**
+	 * @return Mean power of the rounding error per stage and sample
+	 *         in LSB^2 since setNoiseStatistics(true). The error is the
+	 *         remainder in [0,1) LSB which is fed back so that a uniform
+	 *         error gives 1/3.
+	 */
+	public double getQuantisationNoisePower() {
+		if (m_noiseCount == 0) {
+			return 0;
+		}
+		return m_noiseSum / m_noiseCount;
+	}
+
+	public void resetStatistics() {
+		m_overflows = 0;
+		m_noiseSum = 0;
+		m_noiseCount = 0;
+	}
+
+	/**
+	 * Resets the states of the filter but not the statistics
+	 */
+	public void reset() {
+		Arrays.fill(m_state, 0);
+		Arrays.fill(m_error, 0);
+	}
+
+	private long saturate(long v) {
+		if (v > m_max) {
+			m_overflows++;
+			return m_max;
+		}
+		if (v < m_min) {
+			m_overflows++;
+			return m_min;
+		}
+		return v;
+	}
+
+	/**
+	 * Filters one sample
+	 * 
+	 * @param in
+	 *            Input sample in the range of a short (Q15) or an int (Q31)
+	 * @return Filtered sample
+	 */
+	public int filter(int in) {
+		long x = saturate(in);
+		for (int i = 0; i < m_numBiquads; i++) {
+			x = processStage(i, x);
+		}
+		return (int) applyGain(x);
+	}
+
+	private long processStage(int i, long x) {
+		final long[] c = m_coeff;
+		final long[] st = m_state;
+		final int k = i * Cascade.COEFFS_PER_STAGE;
+		final int j = i * 4;
+		final int f = m_fracBits[i];
+		long acc = c[k] * x + c[k + 1] * st[j] + c[k + 2] * st[j + 1]
+				- c[k + 3] * st[j + 2] - c[k + 4] * st[j + 3]
+				+ m_error[i];
+		long y = acc >> f;
+		long e = acc - (y << f);
+		long ys = saturate(y);
+		// no error feedback after saturation to avoid limit cycles
+		m_error[i] = (ys == y) ? e : 0;
+		if (m_noiseStatistics) {
+			double en = e * m_lsb[i];
+			m_noiseSum += en * en;
+			m_noiseCount++;
+		}
+		st[j + 1] = st[j];
+		st[j + 3] = st[j + 2];
+		st[j] = x;
+		st[j + 2] = ys;
+		return ys;
+	}
+
+	private static void checkBlock(int length, int off, int len) {
+		if ((off < 0) || (len < 0) || (off > length - len)) {
+			throw new IndexOutOfBoundsException("Block [" + off + ", " + (off + len)
+					+ ") outside of array of length " + length);
+		}
+	}
+
+	private long applyGain(long x) {
+		long acc = x * m_gain;
+		// round to nearest
+		return saturate((acc + (1L << (m_gainFracBits - 1))) >> m_gainFracBits);
+	}
+
+	/**
+	 * Filters a block of 16 bit samples
+	 * 
+	 * @param in
+	 *            Input samples
+	 * @param inOff
+	 *            Index of the first input sample
+	 * @param out
+	 *            Output samples. Can be the same as in.
+	 * @param outOff
+	 *            Index of the first output sample
+	 * @param len
+	 *            Number of samples
+	 */
+	public void filter(short[] in, int inOff, short[] out, int outOff, int len) {
+		if (m_format != Q15) {
+			throw new IllegalStateException("16 bit samples need the Q15 format.");
+		}
+		checkBlock(in.length, inOff, len);
+		checkBlock(out.length, outOff, len);
+		for (int n = 0; n < len; n++) {
+			out[outOff + n] = (short) filter(in[inOff + n]);
+		}
+	}
+
+	/**
+	 * Filters a block of 16 bit samples in place
+	 * 
+	 * @param data
+	 *            Samples which are replaced by the filtered samples
+	 * @param off
+	 *            Index of the first sample
+	 * @param len
+	 *            Number of samples
+	 */
+	public void filter(short[] data, int off, int len) {
+		filter(data, off, data, off, len);
+	}
+
+	/**
+	 * Filters a block of samples stored as int. With Q15 they need to be
+	 * in the range of a short.
+	 * 
+	 * @param in
+	 *            Input samples
+	 * @param inOff
+	 *            Index of the first input sample
+	 * @param out
+	 *            Output samples. Can be the same as in.
+	 * @param outOff
+	 *            Index of the first output sample
+	 * @param len
+	 *            Number of samples
+	 */
+	public void filter(int[] in, int inOff, int[] out, int outOff, int len) {
+		checkBlock(in.length, inOff, len);
+		checkBlock(out.length, outOff, len);
+		for (int n = 0; n < len; n++) {
+			out[outOff + n] = filter(in[inOff + n]);
+		}
+	}
+
+	/**
+	 * Filters a block of samples stored as int in place
+	 * 
+	 * @param data
+	 *            Samples which are replaced by the filtered samples
+	 * @param off
+	 *            Index of the first sample
+	 * @param len
+	 *            Number of samples
+	 */
+	public void filter(int[] data, int off, int len) {
+		filter(data, off, data, off, len);
+	}
+}
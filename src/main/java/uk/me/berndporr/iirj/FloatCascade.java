@@ -0,0 +1,377 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * 
+ *  Copyright (c) 2016 by Bernd Porr
+ */
+
+package uk.me.berndporr.iirj;
+
+import java.util.Arrays;
+
+/**
+ * Single precision version of a filter for float data. It is created
+ * from any filter design, for example:
+ *         Butterworth butterworth = new Butterworth();
+ *         butterworth.lowPass(4,48000,1000,DirectFormAbstract.DIRECT_FORM_II_TRANSPOSED);
+ *         FloatCascade f = new FloatCascade(butterworth);
+ *         float y = f.filter(x);
+ * The coefficients are copied from the design at construction. The
+ * states are stored as floats. By default the arithmetic is done in
+ * single precision. With double accumulation every stage is calculated
+ * in double precision with the original coefficients and only the
+ * states and the output are rounded to float.
+ * The transposed direct form II is recommended for single precision.
+ * The samples are always processed with scalar code, also on Java 17.
+ */
+public class FloatCascade {
+
+	private final int m_numBiquads;
+
+	private final int m_directFormType;
+
+	private final boolean m_doubleAccumulation;
+
+	// b0,b1,b2,a1,a2 of every stage in single precision
+	private final float[] m_coeff;
+
+	// b0,b1,b2,a1,a2 of every stage for double accumulation
+	private final double[] m_coeffD;
+
+	// the states of all stages, layout as in Cascade
+	private final float[] m_state;
+
+	/**
+	 * Single precision filter with single precision arithmetic
+	 * 
+	 * @param design
+	 *            Any filter which has been set up
+	 */
+	public FloatCascade(Cascade design) {
+		this(design, false);
+	}
+
+	/**
+	 * Single precision filter
+	 * 
+	 * @param design
+	 *            Any filter which has been set up
+	 * @param doubleAccumulation
+	 *            If true every stage is calculated in double precision
+	 */
+	public FloatCascade(Cascade design, boolean doubleAccumulation) {
+		m_numBiquads = design.getNumBiquads();
+		m_directFormType = design.getDirectFormType();
+		m_doubleAccumulation = doubleAccumulation;
+		double[] c = design.getPackedCoefficients();
+		m_coeffD = (c == null) ? new double[0] : c.clone();
+		m_coeff = new float[m_coeffD.length];
+		for (int i = 0; i < m_coeffD.length; i++) {
+			m_coeff[i] = (float) m_coeffD[i];
+		}
+		m_state = new float[m_numBiquads * Cascade.statesPerStage(m_directFormType)];
+	}
+
+	public int getNumBiquads() {
+		return m_numBiquads;
+	}
+
+	public boolean isDoubleAccumulation() {
+		return m_doubleAccumulation;
+	}
+
+	public void reset() {
+		Arrays.fill(m_state, 0);
+	}
+
+	/**
+	 * Filters one sample
+	 * 
+	 * @param in
+	 *            Input sample
+	 * @return Filtered sample
+	 */
+	public float filter(float in) {
+		if (m_doubleAccumulation) {
+			return filterDouble(in);
+		}
+		final float[] c = m_coeff;
+		final float[] st = m_state;
+		final int n = m_numBiquads;
+		float out = in;
+		switch (m_directFormType) {
+		case DirectFormAbstract.DIRECT_FORM_I:
+			for (int i = 0, k = 0, j = 0; i < n; i++, k += Cascade.COEFFS_PER_STAGE, j += 4) {
+				float x = out;
+				out = c[k] * x + c[k + 1] * st[j] + c[k + 2] * st[j + 1]
+						- c[k + 3] * st[j + 2] - c[k + 4] * st[j + 3];
+				st[j + 1] = st[j];
+				st[j + 3] = st[j + 2];
+				st[j] = x;
+				st[j + 2] = out;
+			}
+			break;
+		case DirectFormAbstract.DIRECT_FORM_II_TRANSPOSED:
+			for (int i = 0, k = 0, j = 0; i < n; i++, k += Cascade.COEFFS_PER_STAGE, j += 2) {
+				float x = out;
+				out = c[k] * x + st[j];
+				st[j] = c[k + 1] * x - c[k + 3] * out + st[j + 1];
+				st[j + 1] = c[k + 2] * x - c[k + 4] * out;
+			}
+			break;
+		default:
+			for (int i = 0, k = 0, j = 0; i < n; i++, k += Cascade.COEFFS_PER_STAGE, j += 2) {
+				float w = out - c[k + 3] * st[j] - c[k + 4] * st[j + 1];
+				out = c[k] * w + c[k + 1] * st[j] + c[k + 2] * st[j + 1];
+				st[j + 1] = st[j];
+				st[j] = w;
+			}
+			break;
+		}
+		return out;
+	}
+
+	// one sample with double precision arithmetic and float states,
+	// the output of every stage is rounded to float
+	private float filterDouble(float in) {
+		final double[] c = m_coeffD;
+		final float[] st = m_state;
+		final int n = m_numBiquads;
+		float out = in;
+		switch (m_directFormType) {
+		case DirectFormAbstract.DIRECT_FORM_I:
+			for (int i = 0, k = 0, j = 0; i < n; i++, k += Cascade.COEFFS_PER_STAGE, j += 4) {
+				float x = out;
+				out = (float) (c[k] * x + c[k + 1] * st[j] + c[k + 2] * st[j + 1]
+						- c[k + 3] * st[j + 2] - c[k + 4] * st[j + 3]);
+				st[j + 1] = st[j];
+				st[j + 3] = st[j + 2];
+				st[j] = x;
+				st[j + 2] = out;
+			}
+			break;
+		case DirectFormAbstract.DIRECT_FORM_II_TRANSPOSED:
+			for (int i = 0, k = 0, j = 0; i < n; i++, k += Cascade.COEFFS_PER_STAGE, j += 2) {
+				double x = out;
+				double y = c[k] * x + st[j];
+				st[j] = (float) (c[k + 1] * x - c[k + 3] * y + st[j + 1]);
+				st[j + 1] = (float) (c[k + 2] * x - c[k + 4] * y);
+				out = (float) y;
+			}
+			break;
+		default:
+			for (int i = 0, k = 0, j = 0; i < n; i++, k += Cascade.COEFFS_PER_STAGE, j += 2) {
+				double w = out - c[k + 3] * st[j] - c[k + 4] * st[j + 1];
+				out = (float) (c[k] * w + c[k + 1] * st[j] + c[k + 2] * st[j + 1]);
+				st[j + 1] = st[j];
+				st[j] = (float) w;
+			}
+			break;
+		}
+		return out;
+	}
+
+	/**
+	 * Filters a block of samples. Gives the same result as calling
+	 * filter(float) for every sample.
+	 * 
+	 * @param in
+	 *            Input samples
+	 * @param inOff
+	 *            Index of the first input sample
+	 * @param out
+	 *            Output samples. May be the same array as in if
+	 *            outOff == inOff, other overlaps are not allowed.
+	 * @param outOff
+	 *            Index of the first output sample
+	 * @param len
+	 *            Number of samples to filter
+	 */
+	public void filter(float[] in, int inOff, float[] out, int outOff, int len) {
+		if ((len < 0) || (inOff < 0) || (outOff < 0)
+				|| (inOff > in.length - len) || (outOff > out.length - len)) {
+			throw new IndexOutOfBoundsException("Block of " + len
+					+ " samples does not fit into the arrays.");
+		}
+		if (m_numBiquads == 0) {
+			if ((in != out) || (inOff != outOff)) {
+				System.arraycopy(in, inOff, out, outOff, len);
+			}
+			return;
+		}
+		processStage(0, in, inOff, out, outOff, len);
+		for (int i = 1; i < m_numBiquads; i++) {
+			processStage(i, out, outOff, out, outOff, len);
+		}
+	}
+
+	/**
+	 * Filters a block of samples in place.
+	 * 
+	 * @param data
+	 *            Samples which are replaced by the filtered samples
+	 * @param off
+	 *            Index of the first sample
+	 * @param len
+	 *            Number of samples to filter
+	 */
+	public void filter(float[] data, int off, int len) {
+		filter(data, off, data, off, len);
+	}
+
+	/**
+	 * Filters a whole array in place.
+	 * 
+	 * @param data
+	 *            Samples which are replaced by the filtered samples
+	 */
+	public void filter(float[] data) {
+		filter(data, 0, data, 0, data.length);
+	}
+
+	private void processStage(int stage, float[] in, int inOff,
+			float[] out, int outOff, int len) {
+		if (m_doubleAccumulation) {
+			processStageDouble(stage, in, inOff, out, outOff, len);
+			return;
+		}
+		final float[] st = m_state;
+		final int k = stage * Cascade.COEFFS_PER_STAGE;
+		final float b0 = m_coeff[k];
+		final float b1 = m_coeff[k + 1];
+		final float b2 = m_coeff[k + 2];
+		final float a1 = m_coeff[k + 3];
+		final float a2 = m_coeff[k + 4];
+		switch (m_directFormType) {
+		case DirectFormAbstract.DIRECT_FORM_I: {
+			final int j = stage * 4;
+			float x1 = st[j];
+			float x2 = st[j + 1];
+			float y1 = st[j + 2];
+			float y2 = st[j + 3];
+			for (int i = 0; i < len; i++) {
+				float x = in[inOff + i];
+				float y = b0 * x + b1 * x1 + b2 * x2
+						- a1 * y1 - a2 * y2;
+				x2 = x1;
+				y2 = y1;
+				x1 = x;
+				y1 = y;
+				out[outOff + i] = y;
+			}
+			st[j] = x1;
+			st[j + 1] = x2;
+			st[j + 2] = y1;
+			st[j + 3] = y2;
+			break;
+		}
+		case DirectFormAbstract.DIRECT_FORM_II_TRANSPOSED: {
+			final int j = stage * 2;
+			float s1 = st[j];
+			float s2 = st[j + 1];
+			for (int i = 0; i < len; i++) {
+				float x = in[inOff + i];
+				float y = b0 * x + s1;
+				s1 = b1 * x - a1 * y + s2;
+				s2 = b2 * x - a2 * y;
+				out[outOff + i] = y;
+			}
+			st[j] = s1;
+			st[j + 1] = s2;
+			break;
+		}
+		default: {
+			final int j = stage * 2;
+			float v1 = st[j];
+			float v2 = st[j + 1];
+			for (int i = 0; i < len; i++) {
+				float w = in[inOff + i] - a1 * v1 - a2 * v2;
+				out[outOff + i] = b0 * w + b1 * v1 + b2 * v2;
+				v2 = v1;
+				v1 = w;
+			}
+			st[j] = v1;
+			st[j + 1] = v2;
+			break;
+		}
+		}
+	}
+
+	// as processStage() but calculated in double precision, the states
+	// and outputs are rounded to float as in filterDouble()
+	private void processStageDouble(int stage, float[] in, int inOff,
+			float[] out, int outOff, int len) {
+		final float[] st = m_state;
+		final int k = stage * Cascade.COEFFS_PER_STAGE;
+		final double b0 = m_coeffD[k];
+		final double b1 = m_coeffD[k + 1];
+		final double b2 = m_coeffD[k + 2];
+		final double a1 = m_coeffD[k + 3];
+		final double a2 = m_coeffD[k + 4];
+		switch (m_directFormType) {
+		case DirectFormAbstract.DIRECT_FORM_I: {
+			final int j = stage * 4;
+			float x1 = st[j];
+			float x2 = st[j + 1];
+			float y1 = st[j + 2];
+			float y2 = st[j + 3];
+			for (int i = 0; i < len; i++) {
+				float x = in[inOff + i];
+				float y = (float) (b0 * x + b1 * x1 + b2 * x2
+						- a1 * y1 - a2 * y2);
+				x2 = x1;
+				y2 = y1;
+				x1 = x;
+				y1 = y;
+				out[outOff + i] = y;
+			}
+			st[j] = x1;
+			st[j + 1] = x2;
+			st[j + 2] = y1;
+			st[j + 3] = y2;
+			break;
+		}
+		case DirectFormAbstract.DIRECT_FORM_II_TRANSPOSED: {
+			final int j = stage * 2;
+			float s1 = st[j];
+			float s2 = st[j + 1];
+			for (int i = 0; i < len; i++) {
+				double x = in[inOff + i];
+				double y = b0 * x + s1;
+				s1 = (float) (b1 * x - a1 * y + s2);
+				s2 = (float) (b2 * x - a2 * y);
+				out[outOff + i] = (float) y;
+			}
+			st[j] = s1;
+			st[j + 1] = s2;
+			break;
+		}
+		default: {
+			final int j = stage * 2;
+			float v1 = st[j];
+			float v2 = st[j + 1];
+			for (int i = 0; i < len; i++) {
+				double w = in[inOff + i] - a1 * v1 - a2 * v2;
+				out[outOff + i] = (float) (b0 * w + b1 * v1 + b2 * v2);
+				v2 = v1;
+				v1 = (float) w;
+			}
+			st[j] = v1;
+			st[j + 1] = v2;
+			break;
+		}
+		}
+	}
+}
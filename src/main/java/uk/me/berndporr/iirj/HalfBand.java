@@ -0,0 +1,175 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * 
+ *  Copyright (c) 2016 by Bernd Porr
+ */
+
+package uk.me.berndporr.iirj;
+
+/**
+ * Design of polyphase IIR half-band filters for HalfBandDecimator and
+ * HalfBandInterpolator. The filter is the sum of two branches of
+ * cascaded first order allpass sections in z^-2:
+ *
+ * <pre>
+ * H(z) = 0.5 * (A0(z^2) + z^-1 * A1(z^2))
+ * A(z) = (a + z^-1) / (1 + a * z^-1)
+ * </pre>
+ *
+ * The coefficients a are derived from an elliptic half-band lowpass
+ * (Valenzuela and Constantinides). Even coefficients belong to the first
+ * branch and odd ones to the second. At the low sampling rate every
+ * section costs a single multiplication. Passband and stopband are
+ * symmetric around a quarter of the high sampling rate.
+ */
+public final class HalfBand {
+
+	private HalfBand() {
+	}
+
+	/**
+	 * Designs the allpass coefficients of a half-band filter.
+	 *
+	 * @param attenuationDb   Minimum stopband attenuation in dB, for example 96
+	 * @param transitionWidth Width of the transition band as a fraction of
+	 *                        the high sampling rate (0 &lt; width &lt; 0.5).
+	 *                        The passband ends at 0.25 - width / 2.
+	 * @return The allpass coefficients
+	 */
+	public static double[] design(double attenuationDb, double transitionWidth) {
+		if (!(attenuationDb > 0)) {
+			throw new IllegalArgumentException("The attenuation must be positive.");
+		}
+		if (!(transitionWidth > 0) || !(transitionWidth < 0.5)) {
+			throw new IllegalArgumentException("The transition width must be between 0 and 0.5.");
+		}
+		// selectivity and nome of the elliptic prototype
+		double k = Math.tan((1 - transitionWidth * 2) * Math.PI / 4);
+		k *= k;
+		double kksqrt = Math.pow(1 - k * k, 0.25);
+		double e = 0.5 * (1 - kksqrt) / (1 + kksqrt);
+		double e4 = e * e * e * e;
+		double q = e * (1 + e4 * (2 + e4 * (15 + 150 * e4)));
+
+		double attenuation = Math.pow(10, -attenuationDb / 10);
+		double a = attenuation / (1 - attenuation);
+		int order = (int) Math.ceil(Math.log(a * a / 16) / Math.log(q));
+		if ((order & 1) == 0) {
+			order++;
+		}
+		order = Math.max(order, 3);
+
+		double[] coefficients = new double[(order - 1) / 2];
+		for (int c = 1; c <= coefficients.length; c++) {
+			// theta functions
+			double num = 0;
+			double term;
+			int sign = 1;
+			int i = 0;
+			do {
+				term = Math.pow(q, i * (i + 1)) * Math.sin((i * 2 + 1) * c * Math.PI / order) * sign;
+				num += term;
+				sign = -sign;
+				i++;
+			} while (Math.abs(term) > 1e-100);
+			num *= Math.pow(q, 0.25);
+			double den = 0.5;
+			sign = -1;
+			i = 1;
+			do {
+				term = Math.pow(q, i * i) * Math.cos(i * 2 * c * Math.PI / order) * sign;
+				den += term;
+				sign = -sign;
+				i++;
+			} while (Math.abs(term) > 1e-100);
+			double ww = num / den;
+			double wwsq = ww * ww;
+			double x = Math.sqrt((1 - wwsq * k) * (1 - wwsq / k)) / (1 + wwsq);
+			coefficients[c - 1] = (1 - x) / (1 + x);
+		}
+		return coefficients;
+	}
+
+	/**
+	 * Magnitude of the frequency response of a half-band filter.
+	 *
+	 * @param coefficients The allpass coefficients
+	 * @param frequency    Normalised frequency (0..0.5) of the high sampling rate
+	 * @return The magnitude at the frequency
+	 */
+	public static double response(double[] coefficients, double frequency) {
+		final double w = 2 * Math.PI * frequency;
+		// z^-2
+		final double zr = Math.cos(2 * w);
+		final double zi = -Math.sin(2 * w);
+		double re0 = 1;
+		double im0 = 0;
+		double re1 = 1;
+		double im1 = 0;
+		for (int i = 0; i < coefficients.length; i++) {
+			final double a = coefficients[i];
+			final double nr = a + zr;
+			final double dr = 1 + a * zr;
+			final double di = a * zi;
+			final double d = dr * dr + di * di;
+			final double hr = (nr * dr + zi * di) / d;
+			final double hi = (zi * dr - nr * di) / d;
+			if ((i & 1) == 0) {
+				double r = re0 * hr - im0 * hi;
+				im0 = re0 * hi + im0 * hr;
+				re0 = r;
+			} else {
+				double r = re1 * hr - im1 * hi;
+				im1 = re1 * hi + im1 * hr;
+				re1 = r;
+			}
+		}
+		// z^-1 of the second branch
+		final double cr = Math.cos(w);
+		final double ci = -Math.sin(w);
+		return 0.5 * Math.hypot(re0 + re1 * cr - im1 * ci, im0 + re1 * ci + im1 * cr);
+	}
+
+	// coefficients of one branch
+	static double[] branch(double[] coefficients, int branch) {
+		double[] c = new double[(coefficients.length + 1 - branch) / 2];
+		for (int i = 0; i < c.length; i++) {
+			c[i] = coefficients[2 * i + branch];
+		}
+		return c;
+	}
+
+	/**
+	 * Runs a sample through a branch of allpass sections.
+	 *
+	 * @param c     The coefficients of the branch
+	 * @param state Previous input of every section and the previous
+	 *              output of the last one: c.length + 1 values
+	 * @param x     The input sample
+	 * @return The output sample
+	 */
+	static double allpass(double[] c, double[] state, double x) {
+		final int n = c.length;
+		for (int k = 0; k < n; k++) {
+			// y[n] = a * (x[n] - y[n-1]) + x[n-1]
+			final double y = c[k] * (x - state[k + 1]) + state[k];
+			state[k] = x;
+			x = y;
+		}
+		state[n] = x;
+		return x;
+	}
+}
@@ -0,0 +1,143 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * 
+ *  Copyright (c) 2016 by Bernd Porr
+ */
+
+package uk.me.berndporr.iirj;
+
+import java.util.Arrays;
+
+/**
+ * Downsamples by two with a polyphase IIR half-band filter (see
+ * HalfBand). Both branches run at the low sampling rate and only the
+ * retained output samples are calculated so that the filter costs one
+ * multiplication per allpass section and output sample. That is a
+ * fraction of a lowpass Cascade of the same attenuation running at the
+ * high rate. For example:
+ *
+ * <pre>
+ * HalfBandDecimator decimator = new HalfBandDecimator(96, 0.01);
+ * int n = decimator.filter(in, 0, out, 0, in.length);
+ * </pre>
+ *
+ * The output has a non-linear phase. Odd numbers of samples are carried
+ * over to the next block.
+ */
+public class HalfBandDecimator {
+
+	private final double[] m_coefficients;
+	private final double[] m_c0;
+	private final double[] m_c1;
+	private final double[] m_state0;
+	private final double[] m_state1;
+	private boolean m_hasPending;
+	private double m_pending;
+
+	/**
+	 * Designs the half-band filter.
+	 *
+	 * @param attenuationDb   Minimum stopband attenuation in dB
+	 * @param transitionWidth Width of the transition band as a fraction
+	 *                        of the input sampling rate
+	 */
+	public HalfBandDecimator(double attenuationDb, double transitionWidth) {
+		this(HalfBand.design(attenuationDb, transitionWidth));
+	}
+
+	/**
+	 * Uses a given half-band filter.
+	 *
+	 * @param coefficients Allpass coefficients from HalfBand.design()
+	 */
+	public HalfBandDecimator(double[] coefficients) {
+		m_coefficients = coefficients.clone();
+		m_c0 = HalfBand.branch(coefficients, 0);
+		m_c1 = HalfBand.branch(coefficients, 1);
+		m_state0 = new double[m_c0.length + 1];
+		m_state1 = new double[m_c1.length + 1];
+	}
+
+	public double[] getCoefficients() {
+		return m_coefficients.clone();
+	}
+
+	/**
+	 * Clears the states and drops a sample which is carried over.
+	 */
+	public void reset() {
+		Arrays.fill(m_state0, 0);
+		Arrays.fill(m_state1, 0);
+		m_hasPending = false;
+		m_pending = 0;
+	}
+
+	/**
+	 * Filters two consecutive input samples into one output sample.
+	 *
+	 * @param first  The earlier input sample
+	 * @param second The later input sample
+	 * @return The output sample
+	 */
+	public double filter(double first, double second) {
+		return 0.5 * (HalfBand.allpass(m_c0, m_state0, second)
+				+ HalfBand.allpass(m_c1, m_state1, first));
+	}
+
+	/**
+	 * Number of output samples the next call of filter() produces.
+	 *
+	 * @param numInputs Number of input samples
+	 * @return Number of output samples
+	 */
+	public int getOutputLength(int numInputs) {
+		return (numInputs + (m_hasPending ? 1 : 0)) / 2;
+	}
+
+	/**
+	 * Filters and downsamples a block of samples.
+	 *
+	 * @param in     Input samples
+	 * @param inOff  Index of the first input sample
+	 * @param out    Output samples. Needs space for getOutputLength(len) samples.
+	 * @param outOff Index of the first output sample
+	 * @param len    Number of input samples
+	 * @return Number of output samples
+	 */
+	public int filter(double[] in, int inOff, double[] out, int outOff, int len) {
+		final int numOutputs = getOutputLength(len);
+		if ((len < 0) || (inOff < 0) || (outOff < 0)
+				|| (inOff > in.length - len) || (outOff > out.length - numOutputs)) {
+			throw new IndexOutOfBoundsException(len + " samples and "
+					+ numOutputs + " outputs do not fit into the arrays.");
+		}
+		int i = inOff;
+		final int end = inOff + len;
+		int o = outOff;
+		if (m_hasPending && (i < end)) {
+			out[o++] = filter(m_pending, in[i++]);
+			m_hasPending = false;
+		}
+		for (; i + 1 < end; i += 2) {
+			out[o++] = filter(in[i], in[i + 1]);
+		}
+		if (i < end) {
+			m_pending = in[i];
+			m_hasPending = true;
+		}
+		return o - outOff;
+	}
+}
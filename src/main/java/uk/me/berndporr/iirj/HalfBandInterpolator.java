@@ -0,0 +1,103 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * 
+ *  Copyright (c) 2016 by Bernd Porr
+ */
+
+package uk.me.berndporr.iirj;
+
+import java.util.Arrays;
+
+/**
+ * Upsamples by two with a polyphase IIR half-band filter (see
+ * HalfBand). Each branch of allpass sections computes one of the two
+ * output phases at the low sampling rate so that the inserted zeros
+ * never have to be filtered. For example:
+ *
+ * <pre>
+ * HalfBandInterpolator interpolator = new HalfBandInterpolator(96, 0.01);
+ * interpolator.filter(in, 0, out, 0, in.length); // 2 * in.length outputs
+ * </pre>
+ */
+public class HalfBandInterpolator {
+
+	private final double[] m_coefficients;
+	private final double[] m_c0;
+	private final double[] m_c1;
+	private final double[] m_state0;
+	private final double[] m_state1;
+
+	/**
+	 * Designs the half-band filter.
+	 *
+	 * @param attenuationDb   Minimum stopband attenuation in dB
+	 * @param transitionWidth Width of the transition band as a fraction
+	 *                        of the output sampling rate
+	 */
+	public HalfBandInterpolator(double attenuationDb, double transitionWidth) {
+		this(HalfBand.design(attenuationDb, transitionWidth));
+	}
+
+	/**
+	 * Uses a given half-band filter.
+	 *
+	 * @param coefficients Allpass coefficients from HalfBand.design()
+	 */
+	public HalfBandInterpolator(double[] coefficients) {
+		m_coefficients = coefficients.clone();
+		m_c0 = HalfBand.branch(coefficients, 0);
+		m_c1 = HalfBand.branch(coefficients, 1);
+		m_state0 = new double[m_c0.length + 1];
+		m_state1 = new double[m_c1.length + 1];
+	}
+
+	public double[] getCoefficients() {
+		return m_coefficients.clone();
+	}
+
+	/**
+	 * Clears the states.
+	 */
+	public void reset() {
+		Arrays.fill(m_state0, 0);
+		Arrays.fill(m_state1, 0);
+	}
+
+	/**
+	 * Upsamples and filters a block of samples.
+	 *
+	 * @param in     Input samples
+	 * @param inOff  Index of the first input sample
+	 * @param out    Output samples. Needs space for 2 * len samples.
+	 * @param outOff Index of the first output sample
+	 * @param len    Number of input samples
+	 * @return Number of output samples
+	 */
+	public int filter(double[] in, int inOff, double[] out, int outOff, int len) {
+		final long numOutputs = 2L * len;
+		if ((len < 0) || (inOff < 0) || (outOff < 0)
+				|| (inOff > in.length - len) || (outOff > out.length - numOutputs)) {
+			throw new IndexOutOfBoundsException(len + " samples and "
+					+ numOutputs + " outputs do not fit into the arrays.");
+		}
+		for (int i = 0, o = outOff; i < len; i++, o += 2) {
+			final double x = in[inOff + i];
+			out[o] = HalfBand.allpass(m_c0, m_state0, x);
+			out[o + 1] = HalfBand.allpass(m_c1, m_state1, x);
+		}
+		return 2 * len;
+	}
+}
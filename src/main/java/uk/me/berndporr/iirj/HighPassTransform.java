@@ -20,16 +20,17 @@
 
 package uk.me.berndporr.iirj;
 
-import org.apache.commons.math3.complex.Complex;
-
 /**
  * Transforms from an analogue lowpass filter to a digital highpass filter
  */
 public class HighPassTransform {
 
-	double f;
-
 	public HighPassTransform(double fc, LayoutBase digital, LayoutBase analog) {
+		transform(fc, digital, analog);
+	}
+
+	// transforms the analogue prototype into the digital layout
+	static void transform(double fc, LayoutBase digital, LayoutBase analog) {
 		digital.reset();
 
 		if (fc < 0) {
@@ -41,35 +42,40 @@ public class HighPassTransform {
 		}
 
 		// prewarp
-		f = 1. / Math.tan(Math.PI * fc);
+		double f = 1. / Math.tan(Math.PI * fc);
 
+		double[] t = digital.m_scratch;
 		int numPoles = analog.getNumPoles();
 		int pairs = numPoles / 2;
 		for (int i = 0; i < pairs; ++i) {
-			PoleZeroPair pair = analog.getPair(i);
-			digital.addPoleZeroConjugatePairs(transform(pair.poles.first),
-					transform(pair.zeros.first));
+			transform(f, analog.getPoleRe(2 * i), analog.getPoleIm(2 * i), t, 0);
+			transform(f, analog.getZeroRe(2 * i), analog.getZeroIm(2 * i), t, 2);
+			digital.addPoleZeroConjugatePairs(t[0], t[1], t[2], t[3]);
 		}
 
 		if ((numPoles & 1) == 1) {
-			PoleZeroPair pair = analog.getPair(pairs);
-			digital.add(transform(pair.poles.first),
-					transform(pair.zeros.first));
+			transform(f, analog.getPoleRe(2 * pairs), analog.getPoleIm(2 * pairs), t, 0);
+			transform(f, analog.getZeroRe(2 * pairs), analog.getZeroIm(2 * pairs), t, 2);
+			digital.add(t[0], t[1], t[2], t[3]);
 		}
 
 		digital.setNormal(Math.PI - analog.getNormalW(), analog.getNormalGain());
 	}
 
-	private Complex transform(Complex c) {
-		if (c.isInfinite())
-			return new Complex(1, 0);
+	private static void transform(double f, double re, double im,
+			double[] out, int off) {
+		if (MathSupplement.isInfinite(re, im)) {
+			out[off] = 1;
+			out[off + 1] = 0;
+			return;
+		}
 
 		// frequency transform
-		c = c.multiply(f);
+		re = re * f;
+		im = im * f;
 
 		// bilinear high pass transform
-		return new Complex(-1).multiply((new Complex(1)).add(c)).divide(
-				(new Complex(1)).subtract(c));
+		MathSupplement.divide(-(1 + re), -im, 1 - re, -im, out, off);
 	}
 
 }
@@ -0,0 +1,228 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * 
+ *  Copyright (c) 2016 by Bernd Porr
+ */
+
+package uk.me.berndporr.iirj;
+
+/**
+ * Upsamples a signal by an integer factor by inserting zeros between
+ * the samples and lowpass filtering the result. The anti-imaging
+ * filter has its cutoff at 80% of the old Nyquist frequency and a gain
+ * of the factor so that the amplitude is kept. As all but one of every
+ * factor inputs of the first biquad are known to be zero their
+ * multiplications are skipped. Large factors are split into stages of
+ * at most Decimator.MAX_STAGE_FACTOR, smallest first so that the
+ * sampling rate is only raised to the full rate by the last stage.
+ *
+ * <pre>
+ * Interpolator interpolator = new Interpolator(4);
+ * interpolator.filter(in, 0, out, 0, in.length); // out has 4 * in.length samples
+ * </pre>
+ */
+public class Interpolator {
+
+	// one stage: zero stuffing with a first biquad which knows about
+	// the zeros followed by the remaining biquads
+	private static class Stage {
+		final int factor;
+		final double b0, b1, b2, a1, a2;
+		double s1, s2;
+		final Cascade rest;
+
+		Stage(int factor, Cascade design) {
+			this.factor = factor;
+			double[] c = design.getPackedCoefficients();
+			b0 = c[0] * factor;
+			b1 = c[1] * factor;
+			b2 = c[2] * factor;
+			a1 = c[3];
+			a2 = c[4];
+			int numBiquads = design.getNumBiquads();
+			if (numBiquads > 1) {
+				double[][] sos = new double[numBiquads - 1][];
+				for (int i = 1; i < numBiquads; i++) {
+					int k = i * Cascade.COEFFS_PER_STAGE;
+					sos[i - 1] = new double[] { c[k], c[k + 1], c[k + 2], 1, c[k + 3], c[k + 4] };
+				}
+				SOSCascade sosCascade = new SOSCascade();
+				sosCascade.setup(sos, DirectFormAbstract.DIRECT_FORM_II_TRANSPOSED);
+				rest = sosCascade;
+			} else {
+				rest = null;
+			}
+		}
+
+		void reset() {
+			s1 = 0;
+			s2 = 0;
+			if (rest != null) {
+				rest.reset();
+			}
+		}
+
+		// writes n * factor samples
+		void upsample(double[] in, int inOff, int n, double[] out, int outOff) {
+			double z1 = s1;
+			double z2 = s2;
+			int p = outOff;
+			for (int i = 0; i < n; i++) {
+				// transposed direct form II, the input is zero after the first sample
+				final double x = in[inOff + i];
+				double y = b0 * x + z1;
+				z1 = b1 * x - a1 * y + z2;
+				z2 = b2 * x - a2 * y;
+				out[p++] = y;
+				for (int k = 1; k < factor; k++) {
+					y = z1;
+					z1 = z2 - a1 * y;
+					z2 = -a2 * y;
+					out[p++] = y;
+				}
+			}
+			s1 = z1;
+			s2 = z2;
+			if (rest != null) {
+				rest.filter(out, outOff, n * factor);
+			}
+		}
+	}
+
+	// samples per chunk of the intermediate stages
+	private static final int BLOCK = 256;
+
+	private final int m_factor;
+	private final int[] m_stageFactors;
+	private final Stage[] m_stages;
+	// intermediate rates of multistage interpolation
+	private final double[] m_buffer1;
+	private final double[] m_buffer2;
+	private final int m_chunk;
+
+	/**
+	 * Interpolator with 8th order Chebyshev Type I filters.
+	 *
+	 * @param factor The ratio of the output and input sampling rates
+	 */
+	public Interpolator(int factor) {
+		this(factor, FilterFamily.CHEBYSHEV_I, Decimator.DEFAULT_ORDER);
+	}
+
+	/**
+	 * Interpolator with a choice of filter.
+	 *
+	 * @param factor The ratio of the output and input sampling rates
+	 * @param family One of the families in FilterFamily
+	 * @param order  The order of the anti-imaging filter of every stage
+	 */
+	public Interpolator(int factor, int family, int order) {
+		m_factor = factor;
+		int[] largestFirst = FilterFamily.stageFactors(factor, Decimator.MAX_STAGE_FACTOR);
+		final int numStages = largestFirst.length;
+		m_stageFactors = new int[numStages];
+		m_stages = new Stage[numStages];
+		for (int i = 0; i < numStages; i++) {
+			int f = largestFirst[numStages - 1 - i];
+			m_stageFactors[i] = f;
+			m_stages[i] = new Stage(f, FilterFamily.lowPass(family, order, 0.4 / f));
+		}
+		// the last stage writes straight into the output
+		int intermediate = (numStages > 0) ? factor / m_stageFactors[numStages - 1] : 1;
+		m_chunk = Math.max(1, BLOCK / intermediate);
+		int size = (numStages > 1) ? m_chunk * intermediate : 0;
+		m_buffer1 = new double[size];
+		m_buffer2 = new double[size];
+	}
+
+	public int getFactor() {
+		return m_factor;
+	}
+
+	/**
+	 * @return The rate factors of the stages in the order they are applied
+	 */
+	public int[] getStageFactors() {
+		return m_stageFactors.clone();
+	}
+
+	/**
+	 * Clears the states of the filters.
+	 */
+	public void reset() {
+		for (int i = 0; i < m_stages.length; i++) {
+			m_stages[i].reset();
+		}
+	}
+
+	/**
+	 * Upsamples and filters a block of samples.
+	 *
+	 * @param in     Input samples
+	 * @param inOff  Index of the first input sample
+	 * @param out    Output samples. Needs space for factor * len samples.
+	 * @param outOff Index of the first output sample
+	 * @param len    Number of input samples
+	 * @return Number of output samples
+	 */
+	public int filter(double[] in, int inOff, double[] out, int outOff, int len) {
+		final long numOutputs = (long) len * m_factor;
+		if ((len < 0) || (inOff < 0) || (outOff < 0)
+				|| (inOff > in.length - len) || (outOff > out.length - numOutputs)) {
+			throw new IndexOutOfBoundsException(len + " samples and "
+					+ numOutputs + " outputs do not fit into the arrays.");
+		}
+		final int numStages = m_stages.length;
+		if (numStages == 0) {
+			System.arraycopy(in, inOff, out, outOff, len);
+			return len;
+		}
+		if (numStages == 1) {
+			m_stages[0].upsample(in, inOff, len, out, outOff);
+			return len * m_factor;
+		}
+		int o = outOff;
+		for (int i = 0; i < len; i += m_chunk) {
+			int n = Math.min(m_chunk, len - i);
+			double[] src = m_buffer1;
+			double[] dst = m_buffer2;
+			m_stages[0].upsample(in, inOff + i, n, src, 0);
+			n *= m_stageFactors[0];
+			for (int s = 1; s < numStages - 1; s++) {
+				m_stages[s].upsample(src, 0, n, dst, 0);
+				n *= m_stageFactors[s];
+				double[] t = src;
+				src = dst;
+				dst = t;
+			}
+			m_stages[numStages - 1].upsample(src, 0, n, out, o);
+			o += n * m_stageFactors[numStages - 1];
+		}
+		return o - outOff;
+	}
+
+	/**
+	 * Upsamples and filters a whole array.
+	 *
+	 * @param in Input samples
+	 * @return The output samples, factor times as many as the input samples
+	 */
+	public double[] filter(double[] in) {
+		double[] out = new double[in.length * m_factor];
+		filter(in, 0, out, 0, in.length);
+		return out;
+	}
+}
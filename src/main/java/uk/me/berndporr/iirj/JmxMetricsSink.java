@@ -0,0 +1,103 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * 
+ *  Copyright (c) 2016 by Bernd Porr
+ */
+
+package uk.me.berndporr.iirj;
+
+import java.lang.management.ManagementFactory;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+/**
+ * Registers FilterMetrics as MBeans with the names
+ * domain:type=FilterMetrics,name="..." so that they can be watched
+ * with JConsole or any other JMX client. The MBeans read the live
+ * counters so that every group only needs to be published once.
+ */
+public class JmxMetricsSink implements MetricsSink {
+
+	/**
+	 * Domain of the MBeans by default
+	 */
+	public static final String DEFAULT_DOMAIN = "uk.me.berndporr.iirj";
+
+	private final MBeanServer m_server;
+	private final String m_domain;
+
+	/**
+	 * Registers the MBeans with the platform MBean server.
+	 */
+	public JmxMetricsSink() {
+		this(ManagementFactory.getPlatformMBeanServer(), DEFAULT_DOMAIN);
+	}
+
+	/**
+	 * @param server The MBean server
+	 * @param domain Domain of the names of the MBeans
+	 */
+	public JmxMetricsSink(MBeanServer server, String domain) {
+		m_server = server;
+		m_domain = domain;
+	}
+
+	/**
+	 * @param metrics The metrics of a filter or group
+	 * @return The name of its MBean
+	 */
+	public ObjectName getObjectName(FilterMetrics metrics) {
+		try {
+			return new ObjectName(m_domain + ":type=FilterMetrics,name="
+					+ ObjectName.quote(metrics.getName()));
+		} catch (JMException e) {
+			throw new IllegalArgumentException("Invalid MBean name for " + metrics.getName(), e);
+		}
+	}
+
+	@Override
+	public void publish(FilterMetrics metrics) {
+		ObjectName name = getObjectName(metrics);
+		try {
+			if (!m_server.isRegistered(name)) {
+				m_server.registerMBean(metrics, name);
+			}
+		} catch (JMException e) {
+			// registered by another thread in the meantime
+			if (!m_server.isRegistered(name)) {
+				throw new IllegalStateException("Cannot register " + name, e);
+			}
+		}
+	}
+
+	/**
+	 * Removes the MBean of metrics if it's registered.
+	 *
+	 * @param metrics The metrics of a filter or group
+	 */
+	public void unregister(FilterMetrics metrics) {
+		ObjectName name = getObjectName(metrics);
+		try {
+			if (m_server.isRegistered(name)) {
+				m_server.unregisterMBean(name);
+			}
+		} catch (JMException e) {
+			throw new IllegalStateException("Cannot unregister " + name, e);
+		}
+	}
+}
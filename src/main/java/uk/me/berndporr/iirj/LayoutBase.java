@@ -23,30 +23,53 @@ package uk.me.berndporr.iirj;
 import org.apache.commons.math3.complex.Complex;
 
 /**
- * 
- * Digital/analogue filter coefficient storage space organising the
- * storage as PoleZeroPairs so that we have as always a 2nd order filter
- *
+ * Digital or analogue filter layout as pairs of poles and zeros. They
+ * are stored as real and imaginary parts in arrays so that filters can
+ * be designed without creating any objects. An infinite pole or zero
+ * has an infinite real or imaginary part.
  */
 public class LayoutBase {
 
 	private int m_numPoles;
-	private PoleZeroPair[] m_pair;
 	private double m_normalW;
 	private double m_normalGain;
 
+	// poles and zeros: index 2*pair is the first, 2*pair+1 the second
+	// of a pair. The second ones are zero for a single pole/zero.
+	private double[] m_poleRe;
+	private double[] m_poleIm;
+	private double[] m_zeroRe;
+	private double[] m_zeroIm;
+
+	// scratch space for the transforms which write into this layout
+	final double[] m_scratch = new double[8];
+
 	public LayoutBase(PoleZeroPair[] pairs) {
+		allocate(pairs.length);
 		m_numPoles = pairs.length * 2;
-		m_pair = pairs;
+		for (int i = 0; i < pairs.length; i++) {
+			set(2 * i, pairs[i].poles.first, pairs[i].zeros.first);
+			set(2 * i + 1, pairs[i].poles.second, pairs[i].zeros.second);
+		}
 	}
 
 	public LayoutBase(int numPoles) {
 		m_numPoles = 0;
-		if ((numPoles % 2) == 1) {
-			m_pair = new PoleZeroPair[numPoles / 2 + 1];
-		} else {
-			m_pair = new PoleZeroPair[numPoles / 2];
-		}
+		allocate((numPoles + 1) / 2);
+	}
+
+	private void allocate(int numPairs) {
+		m_poleRe = new double[numPairs * 2];
+		m_poleIm = new double[numPairs * 2];
+		m_zeroRe = new double[numPairs * 2];
+		m_zeroIm = new double[numPairs * 2];
+	}
+
+	private void set(int index, Complex pole, Complex zero) {
+		m_poleRe[index] = pole.getReal();
+		m_poleIm[index] = pole.getImaginary();
+		m_zeroRe[index] = zero.getReal();
+		m_zeroIm[index] = zero.getImaginary();
 	}
 
 	public void reset() {
@@ -57,28 +80,93 @@ public class LayoutBase {
 		return m_numPoles;
 	}
 
+	// maximum number of poles this layout can hold
+	int getMaxPoles() {
+		return m_poleRe.length;
+	}
+
 	public void add(Complex pole, Complex zero) {
-		m_pair[m_numPoles / 2] = new PoleZeroPair(pole, zero);
-		++m_numPoles;
+		add(pole.getReal(), pole.getImaginary(), zero.getReal(),
+				zero.getImaginary());
 	}
 
 	public void addPoleZeroConjugatePairs(Complex pole, Complex zero) {
-		if (pole == null) System.out.println("LayoutBase addConj() pole == null");
-		if (zero == null) System.out.println("LayoutBase addConj() zero == null");
-		if (m_pair == null) System.out.println("LayoutBase addConj() m_pair == null");
-		m_pair[m_numPoles / 2] = new PoleZeroPair(pole, zero, pole.conjugate(),
-				zero.conjugate());
-		m_numPoles += 2;
+		addPoleZeroConjugatePairs(pole.getReal(), pole.getImaginary(),
+				zero.getReal(), zero.getImaginary());
 	}
 
 	public void add(ComplexPair poles, ComplexPair zeros) {
-		m_pair[m_numPoles / 2] = new PoleZeroPair(poles.first, zeros.first,
-				poles.second, zeros.second);
+		add(poles.first.getReal(), poles.first.getImaginary(),
+				zeros.first.getReal(), zeros.first.getImaginary(),
+				poles.second.getReal(), poles.second.getImaginary(),
+				zeros.second.getReal(), zeros.second.getImaginary());
+	}
+
+	// single pole and zero
+	void add(double poleRe, double poleIm, double zeroRe, double zeroIm) {
+		int i = (m_numPoles / 2) * 2;
+		m_poleRe[i] = poleRe;
+		m_poleIm[i] = poleIm;
+		m_zeroRe[i] = zeroRe;
+		m_zeroIm[i] = zeroIm;
+		m_poleRe[i + 1] = 0;
+		m_poleIm[i + 1] = 0;
+		m_zeroRe[i + 1] = 0;
+		m_zeroIm[i + 1] = 0;
+		++m_numPoles;
+	}
+
+	// pole and zero with their complex conjugates
+	void addPoleZeroConjugatePairs(double poleRe, double poleIm,
+			double zeroRe, double zeroIm) {
+		add(poleRe, poleIm, zeroRe, zeroIm, poleRe, -poleIm, zeroRe, -zeroIm);
+	}
+
+	// two poles and two zeros
+	void add(double pole1Re, double pole1Im, double zero1Re, double zero1Im,
+			double pole2Re, double pole2Im, double zero2Re, double zero2Im) {
+		int i = (m_numPoles / 2) * 2;
+		m_poleRe[i] = pole1Re;
+		m_poleIm[i] = pole1Im;
+		m_zeroRe[i] = zero1Re;
+		m_zeroIm[i] = zero1Im;
+		m_poleRe[i + 1] = pole2Re;
+		m_poleIm[i + 1] = pole2Im;
+		m_zeroRe[i + 1] = zero2Re;
+		m_zeroIm[i + 1] = zero2Im;
 		m_numPoles += 2;
 	}
 
 	public PoleZeroPair getPair(int pairIndex) {
-		return m_pair[pairIndex];
+		int i = pairIndex * 2;
+		return new PoleZeroPair(
+				new Complex(m_poleRe[i], m_poleIm[i]),
+				new Complex(m_zeroRe[i], m_zeroIm[i]),
+				new Complex(m_poleRe[i + 1], m_poleIm[i + 1]),
+				new Complex(m_zeroRe[i + 1], m_zeroIm[i + 1]));
+	}
+
+	// index is 2*pair for the first and 2*pair+1 for the second of a pair
+	double getPoleRe(int index) {
+		return m_poleRe[index];
+	}
+
+	double getPoleIm(int index) {
+		return m_poleIm[index];
+	}
+
+	double getZeroRe(int index) {
+		return m_zeroRe[index];
+	}
+
+	double getZeroIm(int index) {
+		return m_zeroIm[index];
+	}
+
+	boolean isSinglePole(int pairIndex) {
+		int i = pairIndex * 2 + 1;
+		return (m_poleRe[i] == 0) && (m_poleIm[i] == 0)
+				&& (m_zeroRe[i] == 0) && (m_zeroIm[i] == 0);
 	}
 
 	public double getNormalW() {
@@ -21,29 +21,17 @@
 
 package uk.me.berndporr.iirj;
 
-import org.apache.commons.math3.complex.Complex;
-
 /**
  * Transforms from an analogue lowpass filter to a digital lowpass filter
  */
 public class LowPassTransform {
 
-	private double f;
-
-	private Complex transform(Complex c) {
-		if (c.isInfinite())
-			return new Complex(-1, 0);
-
-		// frequency transform
-		c = c.multiply(f);
-
-		Complex one = new Complex(1, 0);
-
-		// bilinear low pass transform
-		return (one.add(c)).divide(one.subtract(c));
+	public LowPassTransform(double fc, LayoutBase digital, LayoutBase analog) {
+		transform(fc, digital, analog);
 	}
 
-	public LowPassTransform(double fc, LayoutBase digital, LayoutBase analog) {
+	// transforms the analogue prototype into the digital layout
+	static void transform(double fc, LayoutBase digital, LayoutBase analog) {
 		digital.reset();
 
 		if (fc < 0) {
@@ -55,23 +43,40 @@ public class LowPassTransform {
 		}
 
 		// prewarp
-		f = Math.tan(Math.PI * fc);
+		double f = Math.tan(Math.PI * fc);
 
+		double[] t = digital.m_scratch;
 		int numPoles = analog.getNumPoles();
 		int pairs = numPoles / 2;
 		for (int i = 0; i < pairs; ++i) {
-			PoleZeroPair pair = analog.getPair(i);
-			digital.addPoleZeroConjugatePairs(transform(pair.poles.first),
-					transform(pair.zeros.first));
+			transform(f, analog.getPoleRe(2 * i), analog.getPoleIm(2 * i), t, 0);
+			transform(f, analog.getZeroRe(2 * i), analog.getZeroIm(2 * i), t, 2);
+			digital.addPoleZeroConjugatePairs(t[0], t[1], t[2], t[3]);
 		}
 
 		if ((numPoles & 1) == 1) {
-			PoleZeroPair pair = analog.getPair(pairs);
-			digital.add(transform(pair.poles.first),
-					transform(pair.zeros.first));
+			transform(f, analog.getPoleRe(2 * pairs), analog.getPoleIm(2 * pairs), t, 0);
+			transform(f, analog.getZeroRe(2 * pairs), analog.getZeroIm(2 * pairs), t, 2);
+			digital.add(t[0], t[1], t[2], t[3]);
 		}
 
 		digital.setNormal(analog.getNormalW(), analog.getNormalGain());
 	}
 
+	private static void transform(double f, double re, double im,
+			double[] out, int off) {
+		if (MathSupplement.isInfinite(re, im)) {
+			out[off] = -1;
+			out[off + 1] = 0;
+			return;
+		}
+
+		// frequency transform
+		re = re * f;
+		im = im * f;
+
+		// bilinear low pass transform
+		MathSupplement.divide(1 + re, im, 1 - re, -im, out, off);
+	}
+
 }
@@ -0,0 +1,278 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package uk.me.berndporr.iirj;
+
+import java.io.IOException;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+
+/**
+ * Filters raw multichannel recordings of any size from one file into
+ * another (or the same one) with memory mapped files. The files are
+ * mapped window by window and every channel of a window is filtered by
+ * its own copy of the filter in parallel. The copies carry their states
+ * over from window to window so the result is the same as filtering
+ * every channel in one go. The samples of a channel are decoded into a
+ * cache sized block, filtered with the block filter and encoded again.
+ *
+ * <pre>
+ * MappedFileFilter f = new MappedFileFilter(butterworth, 8,
+ *     SampleEncoding.INT16, MappedFileFilter.INTERLEAVED);
+ * f.filter(Paths.get("raw.bin"), Paths.get("filtered.bin"));
+ * </pre>
+ */
+public class MappedFileFilter {
+
+	/**
+	 * One frame after the other with one sample of every channel.
+	 */
+	public static final int INTERLEAVED = 0;
+
+	/**
+	 * All samples of the 1st channel, then all of the 2nd and so on.
+	 */
+	public static final int PLANAR = 1;
+
+	private final Cascade m_filter;
+	private final int m_numChannels;
+	private final int m_encoding;
+	private final int m_layout;
+	private final int m_bytes;
+
+	private ByteOrder m_byteOrder = ByteOrder.LITTLE_ENDIAN;
+	private int m_blockSize = 8192;
+	private int m_windowSize = 64 * 1024 * 1024;
+	private ForkJoinPool m_pool = ForkJoinPool.commonPool();
+	private boolean m_sync = false;
+
+	/**
+	 * @param filter      The filter for every channel. It is copied so
+	 *                    that later changes of it don't matter.
+	 * @param numChannels Number of channels in the files
+	 * @param encoding    One of the constants of SampleEncoding
+	 * @param layout      INTERLEAVED or PLANAR
+	 */
+	public MappedFileFilter(Cascade filter, int numChannels, int encoding, int layout) {
+		if (numChannels < 1) {
+			throw new IllegalArgumentException("At least one channel is needed.");
+		}
+		if ((layout != INTERLEAVED) && (layout != PLANAR)) {
+			throw new IllegalArgumentException("Unknown layout: " + layout);
+		}
+		m_bytes = SampleEncoding.getBytes(encoding);
+		m_filter = new Cascade(filter);
+		m_numChannels = numChannels;
+		m_encoding = encoding;
+		m_layout = layout;
+	}
+
+	/**
+	 * @param byteOrder Byte order of the files, little endian by default
+	 */
+	public void setByteOrder(ByteOrder byteOrder) {
+		m_byteOrder = byteOrder;
+	}
+
+	/**
+	 * @param blockSize Number of samples of a channel which are filtered
+	 *                  in one go, 8192 by default so that they fit into
+	 *                  the cache.
+	 */
+	public void setBlockSize(int blockSize) {
+		if (blockSize < 1) {
+			throw new IllegalArgumentException("The block size must be positive.");
+		}
+		m_blockSize = blockSize;
+	}
+
+	/**
+	 * @param windowSize Number of bytes which are mapped at a time,
+	 *                   64 MB by default.
+	 */
+	public void setWindowSize(int windowSize) {
+		if (windowSize < m_numChannels * m_bytes) {
+			throw new IllegalArgumentException("The window needs to hold at least one frame.");
+		}
+		m_windowSize = windowSize;
+	}
+
+	/**
+	 * @param pool The pool which filters the channels in parallel
+	 */
+	public void setPool(ForkJoinPool pool) {
+		m_pool = pool;
+	}
+
+	/**
+	 * @param sync Writes every window to the storage device before the
+	 *             next one is mapped. This is off by default so that the
+	 *             operating system writes the file back when it likes.
+	 */
+	public void setSync(boolean sync) {
+		m_sync = sync;
+	}
+
+	/**
+	 * Filters a whole file. The output file is created or overwritten.
+	 * It may be the same as the input file.
+	 *
+	 * @param in  The raw input samples
+	 * @param out The raw filtered samples in the same format
+	 * @return The number of samples per channel
+	 * @throws IOException If a file can't be read or written or if its
+	 *                     size isn't a multiple of the frame size.
+	 */
+	public long filter(Path in, Path out) throws IOException {
+		final boolean inPlace = Files.exists(out) && Files.isSameFile(in, out);
+		FileChannel input = FileChannel.open(in, inPlace
+				? new StandardOpenOption[] {StandardOpenOption.READ, StandardOpenOption.WRITE}
+				: new StandardOpenOption[] {StandardOpenOption.READ});
+		try {
+			FileChannel output = inPlace ? input : FileChannel.open(out,
+					StandardOpenOption.READ, StandardOpenOption.WRITE,
+					StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING);
+			try {
+				return filter(input, output, inPlace);
+			} finally {
+				if (!inPlace) {
+					output.close();
+				}
+			}
+		} finally {
+			input.close();
+		}
+	}
+
+	private long filter(FileChannel input, FileChannel output, boolean inPlace)
+			throws IOException {
+		final long size = input.size();
+		final long frameBytes = (long) m_numChannels * m_bytes;
+		if (size % frameBytes != 0) {
+			throw new IOException("The file size of " + size
+					+ " bytes isn't a multiple of the frame size of " + frameBytes + " bytes.");
+		}
+		final long numSamples = size / frameBytes;
+
+		Worker[] workers = new Worker[m_numChannels];
+		for (int c = 0; c < m_numChannels; c++) {
+			workers[c] = new Worker(new Cascade(m_filter), m_blockSize);
+		}
+
+		// samples of a channel per window
+		final long window = Math.max(1, m_windowSize / frameBytes);
+		for (long start = 0; start < numSamples; start += window) {
+			final int len = (int) Math.min(window, numSamples - start);
+			if (m_layout == INTERLEAVED) {
+				long position = start * frameBytes;
+				long bytes = len * frameBytes;
+				MappedByteBuffer src = map(input, inPlace, position, bytes);
+				MappedByteBuffer dst = inPlace ? src : map(output, true, position, bytes);
+				for (int c = 0; c < m_numChannels; c++) {
+					workers[c].set(src, dst, c * m_bytes, (int) frameBytes, len);
+				}
+				run(workers);
+				if (m_sync) {
+					dst.force();
+				}
+			} else {
+				MappedByteBuffer[] dst = new MappedByteBuffer[m_numChannels];
+				for (int c = 0; c < m_numChannels; c++) {
+					long position = (c * numSamples + start) * m_bytes;
+					long bytes = (long) len * m_bytes;
+					MappedByteBuffer src = map(input, inPlace, position, bytes);
+					dst[c] = inPlace ? src : map(output, true, position, bytes);
+					workers[c].set(src, dst[c], 0, m_bytes, len);
+				}
+				run(workers);
+				if (m_sync) {
+					for (MappedByteBuffer b : dst) {
+						b.force();
+					}
+				}
+			}
+		}
+		return numSamples;
+	}
+
+	private MappedByteBuffer map(FileChannel channel, boolean write, long position, long bytes)
+			throws IOException {
+		MappedByteBuffer b = channel.map(write ? FileChannel.MapMode.READ_WRITE
+				: FileChannel.MapMode.READ_ONLY, position, bytes);
+		b.order(m_byteOrder);
+		return b;
+	}
+
+	private void run(Worker[] workers) {
+		if (workers.length == 1) {
+			workers[0].run();
+			return;
+		}
+		List<ForkJoinTask<?>> tasks = new ArrayList<ForkJoinTask<?>>(workers.length);
+		for (Worker worker : workers) {
+			tasks.add(m_pool.submit(worker));
+		}
+		for (ForkJoinTask<?> task : tasks) {
+			task.join();
+		}
+	}
+
+	// filters one channel of a window block by block
+	private class Worker implements Runnable {
+
+		final Cascade m_filter;
+		final double[] m_block;
+
+		MappedByteBuffer m_src;
+		MappedByteBuffer m_dst;
+		int m_index;
+		int m_stride;
+		int m_len;
+
+		Worker(Cascade filter, int blockSize) {
+			m_filter = filter;
+			m_block = new double[blockSize];
+		}
+
+		void set(MappedByteBuffer src, MappedByteBuffer dst, int index, int stride, int len) {
+			m_src = src;
+			m_dst = dst;
+			m_index = index;
+			m_stride = stride;
+			m_len = len;
+		}
+
+		public void run() {
+			for (int i = 0; i < m_len; i += m_block.length) {
+				int n = Math.min(m_block.length, m_len - i);
+				int index = m_index + i * m_stride;
+				SampleEncoding.decode(m_src, index, m_stride, m_encoding, m_block, n);
+				m_filter.filter(m_block, 0, n);
+				SampleEncoding.encode(m_block, n, m_encoding, m_dst, index, m_stride);
+			}
+		}
+	}
+}
@@ -59,6 +59,44 @@ public class MathSupplement {
 		return new Complex(n * c.getReal(), n * c.getImaginary());
 	}
 
+	// complex division (ar + j ai) / (br + j bi) into out[off], out[off+1]
+	// with Smith's algorithm as in commons math
+	static void divide(double ar, double ai, double br, double bi,
+			double[] out, int off) {
+		if (Math.abs(br) < Math.abs(bi)) {
+			double q = br / bi;
+			double d = br * q + bi;
+			out[off] = (ar * q + ai) / d;
+			out[off + 1] = (ai * q - ar) / d;
+		} else {
+			double q = bi / br;
+			double d = bi * q + br;
+			out[off] = (ai * q + ar) / d;
+			out[off + 1] = (ai - ar * q) / d;
+		}
+	}
+
+	// complex square root into out[off], out[off+1] as in commons math
+	static void sqrt(double re, double im, double[] out, int off) {
+		if ((re == 0) && (im == 0)) {
+			out[off] = 0;
+			out[off + 1] = 0;
+			return;
+		}
+		double t = Math.sqrt((Math.abs(re) + Math.hypot(re, im)) / 2);
+		if (re >= 0) {
+			out[off] = t;
+			out[off + 1] = im / (2 * t);
+		} else {
+			out[off] = Math.abs(im) / (2 * t);
+			out[off + 1] = Math.copySign(1, im) * t;
+		}
+	}
+
+	static boolean isInfinite(double re, double im) {
+		return Double.isInfinite(re) || Double.isInfinite(im);
+	}
+
 	public static double asinh(double x) {
 		return Math.log(x + Math.sqrt(x * x + 1));
 	}
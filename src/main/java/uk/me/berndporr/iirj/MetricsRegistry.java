@@ -0,0 +1,68 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * 
+ *  Copyright (c) 2016 by Bernd Porr
+ */
+
+package uk.me.berndporr.iirj;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Named groups of FilterMetrics. Every filter of a group shares its
+ * counters, for example:
+ *
+ * <pre>
+ * MetricsRegistry registry = new MetricsRegistry();
+ * butterworth.setMetrics(registry.get("ecg"));
+ * registry.publish(new JmxMetricsSink());
+ * </pre>
+ */
+public class MetricsRegistry {
+
+	private final ConcurrentMap<String, FilterMetrics> m_groups =
+			new ConcurrentHashMap<String, FilterMetrics>();
+
+	/**
+	 * Returns the metrics of a group and creates them if necessary.
+	 *
+	 * @param name Name of the group
+	 * @return The metrics of the group
+	 */
+	public FilterMetrics get(String name) {
+		FilterMetrics metrics = m_groups.get(name);
+		if (metrics == null) {
+			FilterMetrics created = new FilterMetrics(name);
+			metrics = m_groups.putIfAbsent(name, created);
+			if (metrics == null) {
+				metrics = created;
+			}
+		}
+		return metrics;
+	}
+
+	/**
+	 * Hands the metrics of every group to a sink.
+	 *
+	 * @param sink Receives the metrics
+	 */
+	public void publish(MetricsSink sink) {
+		for (FilterMetrics metrics : m_groups.values()) {
+			sink.publish(metrics);
+		}
+	}
+}
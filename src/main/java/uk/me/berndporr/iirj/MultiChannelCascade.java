@@ -0,0 +1,258 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * 
+ *  Copyright (c) 2016 by Bernd Porr
+ */
+
+
+package uk.me.berndporr.iirj;
+
+import java.util.Arrays;
+
+/**
+ * Filters many channels with the same filter design. For example
+ * for 64 EEG channels:
+ *         Butterworth butterworth = new Butterworth();
+ *         butterworth.bandPass(4,1000,50,10);
+ *         MultiChannelCascade eeg = new MultiChannelCascade(butterworth,64);
+ * and then filter interleaved frames with
+ *         eeg.filter(frames,numFrames);
+ * where frames contains ch0,ch1,...,ch63,ch0,ch1,... 
+ * The coefficients are copied once from the design and shared by all
+ * channels. The states are stored so that the same state variable of
+ * all channels is contiguous and the channel loop is the innermost one
+ * which allows the JIT to vectorise it.
+ *
+ * With Java 17 or later and the JVM option
+ * --add-modules jdk.incubator.vector the channels are processed
+ * explicitly with the vector API in double precision lanes. This can
+ * be switched off for all filters with the system property
+ * uk.me.berndporr.iirj.vector=false or per filter with
+ * setVectorised(false). There is no vector code for float data.
+ */
+public class MultiChannelCascade {
+
+	private final int m_numChannels;
+
+	private final int m_numBiquads;
+
+	private final int m_directFormType;
+
+	// b0,b1,b2,a1,a2 of every stage
+	private final double[] m_coeff;
+
+	// [stage][state variable][channel]
+	private final double[] m_state;
+
+	private final int m_statesPerStage;
+
+	// system property to switch off the vector API
+	static final String VECTOR_PROPERTY = "uk.me.berndporr.iirj.vector";
+
+	// true if the vector API is used
+	private boolean m_vectorised;
+
+	/**
+	 * Creates a multichannel filter from a filter design
+	 * 
+	 * @param design
+	 *            Any filter which has been set up, for example
+	 *            a Butterworth after calling lowPass()
+	 * @param numChannels
+	 *            The number of channels
+	 */
+	public MultiChannelCascade(Cascade design, int numChannels) {
+		if (numChannels < 1) {
+			throw new IllegalArgumentException("Number of channels must be at least one.");
+		}
+		m_numChannels = numChannels;
+		m_numBiquads = design.getNumBiquads();
+		m_directFormType = design.getDirectFormType();
+		double[] c = design.getPackedCoefficients();
+		m_coeff = (c == null) ? new double[0] : c.clone();
+		m_statesPerStage = Cascade.statesPerStage(m_directFormType);
+		m_state = new double[m_numBiquads * m_statesPerStage * numChannels];
+		m_vectorised = VectorKernel.isAvailable()
+				&& !"false".equalsIgnoreCase(System.getProperty(VECTOR_PROPERTY));
+	}
+
+	/**
+	 * Selects between the vector API and the scalar code. The vector API
+	 * is only used if it's available in this JVM.
+	 * 
+	 * @param vectorised
+	 *            true to use the vector API, false for the scalar code
+	 * @return true if the vector API is now used
+	 */
+	public boolean setVectorised(boolean vectorised) {
+		m_vectorised = vectorised && VectorKernel.isAvailable();
+		return m_vectorised;
+	}
+
+	/**
+	 * @return true if the vector API is used for filtering
+	 */
+	public boolean isVectorised() {
+		return m_vectorised;
+	}
+
+	public int getNumChannels() {
+		return m_numChannels;
+	}
+
+	public int getNumBiquads() {
+		return m_numBiquads;
+	}
+
+	/**
+	 * Resets the states of all channels
+	 */
+	public void reset() {
+		Arrays.fill(m_state, 0);
+	}
+
+	/**
+	 * Resets the states of one channel
+	 * 
+	 * @param channel
+	 *            The channel index
+	 */
+	public void reset(int channel) {
+		for (int i = channel; i < m_state.length; i += m_numChannels) {
+			m_state[i] = 0;
+		}
+	}
+
+	/**
+	 * Filters interleaved frames in place.
+	 * 
+	 * @param frames
+	 *            Interleaved samples: one sample of every channel per frame
+	 * @param numFrames
+	 *            Number of frames to filter
+	 */
+	public void filter(double[] frames, int numFrames) {
+		filter(frames, 0, frames, 0, numFrames);
+	}
+
+	/**
+	 * Filters interleaved frames. The result for every channel is
+	 * identical to filtering it with its own Cascade.
+	 * 
+	 * @param in
+	 *            Interleaved input samples
+	 * @param inOff
+	 *            Index of the first input sample
+	 * @param out
+	 *            Interleaved output samples. May be the same array as in
+	 *            if outOff == inOff, other overlaps are not allowed.
+	 * @param outOff
+	 *            Index of the first output sample
+	 * @param numFrames
+	 *            Number of frames to filter
+	 */
+	public void filter(double[] in, int inOff, double[] out, int outOff,
+			int numFrames) {
+		final int nc = m_numChannels;
+		final int len = numFrames * nc;
+		if ((numFrames < 0) || (inOff < 0) || (outOff < 0)
+				|| (inOff > in.length - len) || (outOff > out.length - len)) {
+			throw new IndexOutOfBoundsException(numFrames + " frames of " + nc
+					+ " channels do not fit into the arrays.");
+		}
+		if (m_numBiquads == 0) {
+			if ((in != out) || (inOff != outOff)) {
+				System.arraycopy(in, inOff, out, outOff, len);
+			}
+			return;
+		}
+		for (int f = 0; f < numFrames; f++) {
+			// the first stage reads from the input, the others in place
+			processFrame(0, in, inOff + f * nc, out, outOff + f * nc);
+			for (int i = 1; i < m_numBiquads; i++) {
+				processFrame(i, out, outOff + f * nc, out, outOff + f * nc);
+			}
+		}
+	}
+
+	// one stage of one frame for all channels
+	private void processFrame(int stage, double[] in, int inOff,
+			double[] out, int outOff) {
+		final int k = stage * Cascade.COEFFS_PER_STAGE;
+		final int j = stage * m_statesPerStage * m_numChannels;
+		if (m_vectorised) {
+			VectorKernel.processFrame(m_directFormType, m_coeff, k, m_state, j,
+					m_numChannels, in, inOff, out, outOff);
+		} else {
+			scalarFrame(m_directFormType, m_coeff, k, m_state, j,
+					m_numChannels, in, inOff, out, outOff);
+		}
+	}
+
+	// one stage of one frame for nc channels with the coefficients at k
+	// and the states at j, also the fallback of VectorKernel
+	static void scalarFrame(int directFormType, double[] coeff, int k,
+			double[] st, int j, int nc,
+			double[] in, int inOff, double[] out, int outOff) {
+		final double b0 = coeff[k];
+		final double b1 = coeff[k + 1];
+		final double b2 = coeff[k + 2];
+		final double a1 = coeff[k + 3];
+		final double a2 = coeff[k + 4];
+		switch (directFormType) {
+		case DirectFormAbstract.DIRECT_FORM_I: {
+			final int x1 = j;
+			final int x2 = j + nc;
+			final int y1 = j + 2 * nc;
+			final int y2 = j + 3 * nc;
+			for (int ch = 0; ch < nc; ch++) {
+				double x = in[inOff + ch];
+				double y = b0 * x + b1 * st[x1 + ch] + b2 * st[x2 + ch]
+						- a1 * st[y1 + ch] - a2 * st[y2 + ch];
+				st[x2 + ch] = st[x1 + ch];
+				st[y2 + ch] = st[y1 + ch];
+				st[x1 + ch] = x;
+				st[y1 + ch] = y;
+				out[outOff + ch] = y;
+			}
+			break;
+		}
+		case DirectFormAbstract.DIRECT_FORM_II_TRANSPOSED: {
+			final int s1 = j;
+			final int s2 = j + nc;
+			for (int ch = 0; ch < nc; ch++) {
+				double x = in[inOff + ch];
+				double y = b0 * x + st[s1 + ch];
+				st[s1 + ch] = b1 * x - a1 * y + st[s2 + ch];
+				st[s2 + ch] = b2 * x - a2 * y;
+				out[outOff + ch] = y;
+			}
+			break;
+		}
+		default: {
+			final int v1 = j;
+			final int v2 = j + nc;
+			for (int ch = 0; ch < nc; ch++) {
+				double w = in[inOff + ch] - a1 * st[v1 + ch] - a2 * st[v2 + ch];
+				out[outOff + ch] = b0 * w + b1 * st[v1 + ch] + b2 * st[v2 + ch];
+				st[v2 + ch] = st[v1 + ch];
+				st[v1 + ch] = w;
+			}
+			break;
+		}
+		}
+	}
+}
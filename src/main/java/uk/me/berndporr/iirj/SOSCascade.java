@@ -42,10 +42,11 @@ public class SOSCascade extends Cascade {
 	 * excatly how the scipy python design functions
 	 * output the sos coeffcients: 
          * [b0,b1,b2,a0,a1,a2],[b0,b1,b2,a0,a1,a2],...
-	 * The filter type can be either DirectFormAbstract.DIRECT_FORM_II
-	 * or DirectFormAbstract.DIRECT_FORM_I.
+	 * The filter type can be either DirectFormAbstract.DIRECT_FORM_II,
+	 * DirectFormAbstract.DIRECT_FORM_I or
+	 * DirectFormAbstract.DIRECT_FORM_II_TRANSPOSED.
 	 * @param sosCoefficients SOS coefficients
-	 * @param directFormType Direct form type (I or II).
+	 * @param directFormType Direct form type (I, II or transposed II).
 	 **/
 	public void setup(final double[][] sosCoefficients,
 			  final int directFormType) {
@@ -0,0 +1,132 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package uk.me.berndporr.iirj;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Encodings of the samples in a ByteBuffer for
+ * Cascade.filter(ByteBuffer, ...). The byte order is the one
+ * of the buffer. Integer samples are filtered as they are
+ * (not scaled to +/-1) and are rounded and clipped to their
+ * range when written back.
+ */
+public final class SampleEncoding {
+
+	/**
+	 * Signed 16 bit integer
+	 */
+	public static final int INT16 = 0;
+
+	/**
+	 * Signed 32 bit integer
+	 */
+	public static final int INT32 = 1;
+
+	/**
+	 * 32 bit IEEE float
+	 */
+	public static final int FLOAT32 = 2;
+
+	/**
+	 * 64 bit IEEE double
+	 */
+	public static final int FLOAT64 = 3;
+
+	private SampleEncoding() {
+	}
+
+	/**
+	 * Size of a sample.
+	 *
+	 * @param encoding One of the encodings above
+	 * @return Number of bytes of one sample
+	 */
+	public static int getBytes(int encoding) {
+		switch (encoding) {
+		case INT16:
+			return 2;
+		case INT32:
+		case FLOAT32:
+			return 4;
+		case FLOAT64:
+			return 8;
+		default:
+			throw new IllegalArgumentException("Unknown sample encoding: " + encoding);
+		}
+	}
+
+	// reads len samples starting at a byte index
+	static void decode(ByteBuffer b, int index, int stride, int encoding,
+			double[] dst, int len) {
+		int p = index;
+		switch (encoding) {
+		case INT16:
+			for (int i = 0; i < len; i++, p += stride) {
+				dst[i] = b.getShort(p);
+			}
+			break;
+		case INT32:
+			for (int i = 0; i < len; i++, p += stride) {
+				dst[i] = b.getInt(p);
+			}
+			break;
+		case FLOAT32:
+			for (int i = 0; i < len; i++, p += stride) {
+				dst[i] = b.getFloat(p);
+			}
+			break;
+		default:
+			for (int i = 0; i < len; i++, p += stride) {
+				dst[i] = b.getDouble(p);
+			}
+			break;
+		}
+	}
+
+	// writes len samples starting at a byte index, integers are rounded and clipped
+	static void encode(double[] src, int len, int encoding,
+			ByteBuffer b, int index, int stride) {
+		int q = index;
+		switch (encoding) {
+		case INT16:
+			for (int i = 0; i < len; i++, q += stride) {
+				double y = Math.rint(src[i]);
+				b.putShort(q, (short) Math.max(Short.MIN_VALUE, Math.min(Short.MAX_VALUE, y)));
+			}
+			break;
+		case INT32:
+			for (int i = 0; i < len; i++, q += stride) {
+				// the cast clips to the int range
+				b.putInt(q, (int) Math.rint(src[i]));
+			}
+			break;
+		case FLOAT32:
+			for (int i = 0; i < len; i++, q += stride) {
+				b.putFloat(q, (float) src[i]);
+			}
+			break;
+		default:
+			for (int i = 0; i < len; i++, q += stride) {
+				b.putDouble(q, src[i]);
+			}
+			break;
+		}
+	}
+}
@@ -0,0 +1,47 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * 
+ *  Copyright (c) 2016 by Bernd Porr
+ */
+
+package uk.me.berndporr.iirj;
+
+/**
+ * Vectorised processing of one stage of a MultiChannelCascade.
+ * This Java 8 version is never available and falls back to the
+ * scalar code. The multi-release jar contains a version for Java 17
+ * and later under META-INF/versions/17 which uses the
+ * jdk.incubator.vector API.
+ */
+final class VectorKernel {
+
+	private VectorKernel() {
+	}
+
+	/**
+	 * @return true if the vector API can be used in this JVM
+	 */
+	static boolean isAvailable() {
+		return false;
+	}
+
+	static void processFrame(int directFormType, double[] coeff, int k,
+			double[] state, int j, int numChannels,
+			double[] in, int inOff, double[] out, int outOff) {
+		MultiChannelCascade.scalarFrame(directFormType, coeff, k, state, j,
+				numChannels, in, inOff, out, outOff);
+	}
+}
@@ -0,0 +1,128 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * 
+ *  Copyright (c) 2016 by Bernd Porr
+ */
+
+package uk.me.berndporr.iirj;
+
+import jdk.incubator.vector.DoubleVector;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * One biquad stage of one frame for all channels of a
+ * MultiChannelCascade where the channels are the vector lanes.
+ * The operations are done in the same order as in the scalar code
+ * so that the results are identical. The remaining channels which
+ * do not fill a whole vector are processed with scalar code.
+ */
+final class DoubleVectorKernel {
+
+	private static final VectorSpecies<Double> SPECIES = DoubleVector.SPECIES_PREFERRED;
+
+	private DoubleVectorKernel() {
+	}
+
+	static void processFrame(int directFormType, double[] coeff, int k,
+			double[] st, int j, int nc,
+			double[] in, int inOff, double[] out, int outOff) {
+		final double b0 = coeff[k];
+		final double b1 = coeff[k + 1];
+		final double b2 = coeff[k + 2];
+		final double a1 = coeff[k + 3];
+		final double a2 = coeff[k + 4];
+		final int upper = SPECIES.loopBound(nc);
+		int ch = 0;
+		switch (directFormType) {
+		case DirectFormAbstract.DIRECT_FORM_I: {
+			final int x1 = j;
+			final int x2 = j + nc;
+			final int y1 = j + 2 * nc;
+			final int y2 = j + 3 * nc;
+			for (; ch < upper; ch += SPECIES.length()) {
+				DoubleVector x = DoubleVector.fromArray(SPECIES, in, inOff + ch);
+				DoubleVector vx1 = DoubleVector.fromArray(SPECIES, st, x1 + ch);
+				DoubleVector vy1 = DoubleVector.fromArray(SPECIES, st, y1 + ch);
+				DoubleVector y = x.mul(b0)
+						.add(vx1.mul(b1))
+						.add(DoubleVector.fromArray(SPECIES, st, x2 + ch).mul(b2))
+						.sub(vy1.mul(a1))
+						.sub(DoubleVector.fromArray(SPECIES, st, y2 + ch).mul(a2));
+				vx1.intoArray(st, x2 + ch);
+				vy1.intoArray(st, y2 + ch);
+				x.intoArray(st, x1 + ch);
+				y.intoArray(st, y1 + ch);
+				y.intoArray(out, outOff + ch);
+			}
+			for (; ch < nc; ch++) {
+				double x = in[inOff + ch];
+				double y = b0 * x + b1 * st[x1 + ch] + b2 * st[x2 + ch]
+						- a1 * st[y1 + ch] - a2 * st[y2 + ch];
+				st[x2 + ch] = st[x1 + ch];
+				st[y2 + ch] = st[y1 + ch];
+				st[x1 + ch] = x;
+				st[y1 + ch] = y;
+				out[outOff + ch] = y;
+			}
+			break;
+		}
+		case DirectFormAbstract.DIRECT_FORM_II_TRANSPOSED: {
+			final int s1 = j;
+			final int s2 = j + nc;
+			for (; ch < upper; ch += SPECIES.length()) {
+				DoubleVector x = DoubleVector.fromArray(SPECIES, in, inOff + ch);
+				DoubleVector y = x.mul(b0)
+						.add(DoubleVector.fromArray(SPECIES, st, s1 + ch));
+				x.mul(b1).sub(y.mul(a1))
+						.add(DoubleVector.fromArray(SPECIES, st, s2 + ch))
+						.intoArray(st, s1 + ch);
+				x.mul(b2).sub(y.mul(a2)).intoArray(st, s2 + ch);
+				y.intoArray(out, outOff + ch);
+			}
+			for (; ch < nc; ch++) {
+				double x = in[inOff + ch];
+				double y = b0 * x + st[s1 + ch];
+				st[s1 + ch] = b1 * x - a1 * y + st[s2 + ch];
+				st[s2 + ch] = b2 * x - a2 * y;
+				out[outOff + ch] = y;
+			}
+			break;
+		}
+		default: {
+			final int v1 = j;
+			final int v2 = j + nc;
+			for (; ch < upper; ch += SPECIES.length()) {
+				DoubleVector vv1 = DoubleVector.fromArray(SPECIES, st, v1 + ch);
+				DoubleVector vv2 = DoubleVector.fromArray(SPECIES, st, v2 + ch);
+				DoubleVector w = DoubleVector.fromArray(SPECIES, in, inOff + ch)
+						.sub(vv1.mul(a1))
+						.sub(vv2.mul(a2));
+				w.mul(b0).add(vv1.mul(b1)).add(vv2.mul(b2))
+						.intoArray(out, outOff + ch);
+				vv1.intoArray(st, v2 + ch);
+				w.intoArray(st, v1 + ch);
+			}
+			for (; ch < nc; ch++) {
+				double w = in[inOff + ch] - a1 * st[v1 + ch] - a2 * st[v2 + ch];
+				out[outOff + ch] = b0 * w + b1 * st[v1 + ch] + b2 * st[v2 + ch];
+				st[v2 + ch] = st[v1 + ch];
+				st[v1 + ch] = w;
+			}
+			break;
+		}
+		}
+	}
+}
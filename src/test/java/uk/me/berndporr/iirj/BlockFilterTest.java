@@ -0,0 +1,174 @@
+package uk.me.berndporr.iirj;
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+import java.util.Random;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+// Checks that the block processing gives exactly the same
+// output as filtering sample by sample.
+public class BlockFilterTest {
+
+	static double fs = 250;
+	static double fc = 10;
+	static int order = 6;
+	static int nSteps = 1000;
+
+	double[] createSignal() {
+		Random r = new Random(42);
+		double[] x = new double[nSteps];
+		for (int i = 0; i < nSteps; i++) {
+			x[i] = r.nextGaussian();
+		}
+		return x;
+	}
+
+	void compare(Cascade ref, Cascade block) {
+		double[] x = createSignal();
+		double[] y = new double[nSteps + 3];
+		// odd sized blocks to check the states are carried over
+		int n = 0;
+		int blockSize = 1;
+		while (n < nSteps) {
+			int len = Math.min(blockSize, nSteps - n);
+			block.filter(x, n, y, n + 3, len);
+			n += len;
+			blockSize = blockSize * 2 + 1;
+		}
+		for (int i = 0; i < nSteps; i++) {
+			Assert.assertEquals(ref.filter(x[i]), y[i + 3], 0);
+		}
+	}
+
+	@Test
+	public void butterworthTest() {
+		for (int type = 0; type < 3; type++) {
+			Butterworth ref = new Butterworth();
+			ref.bandPass(order, fs, fc, fc / 4, type);
+			Butterworth block = new Butterworth();
+			block.bandPass(order, fs, fc, fc / 4, type);
+			compare(ref, block);
+		}
+	}
+
+	@Test
+	public void chebyshevITest() {
+		for (int type = 0; type < 3; type++) {
+			ChebyshevI ref = new ChebyshevI();
+			ref.lowPass(order, fs, fc, 1, type);
+			ChebyshevI block = new ChebyshevI();
+			block.lowPass(order, fs, fc, 1, type);
+			compare(ref, block);
+		}
+	}
+
+	@Test
+	public void chebyshevIITest() {
+		for (int type = 0; type < 3; type++) {
+			ChebyshevII ref = new ChebyshevII();
+			ref.highPass(order, fs, fc, 20, type);
+			ChebyshevII block = new ChebyshevII();
+			block.highPass(order, fs, fc, 20, type);
+			compare(ref, block);
+		}
+	}
+
+	@Test
+	public void besselTest() {
+		for (int type = 0; type < 3; type++) {
+			Bessel ref = new Bessel();
+			ref.bandStop(order, fs, fc, fc / 4, type);
+			Bessel block = new Bessel();
+			block.bandStop(order, fs, fc, fc / 4, type);
+			compare(ref, block);
+		}
+	}
+
+	@Test
+	public void inPlaceTest() {
+		double[][] coeff = {
+			{1.78260999e-03, 3.56521998e-03, 1.78260999e-03,
+			 1.00000000e+00, -1.25544047e+00, 4.09013783e-01},
+			{1.00000000e+00, 2.00000000e+00, 1.00000000e+00,
+			 1.00000000e+00, -1.51824184e+00, 7.03962657e-01}};
+		SOSCascade ref = new SOSCascade();
+		ref.setup(coeff);
+		SOSCascade block = new SOSCascade();
+		block.setup(coeff);
+		double[] x = createSignal();
+		double[] y = x.clone();
+		block.filter(y);
+		for (int i = 0; i < nSteps; i++) {
+			Assert.assertEquals(ref.filter(x[i]), y[i], 0);
+		}
+	}
+
+	@Test
+	public void directFormObjectsTest() {
+		// the packed cascade computes the same as the state objects
+		for (int type = 0; type < 3; type++) {
+			ChebyshevI cascade = new ChebyshevI();
+			cascade.bandPass(order, fs, fc, fc / 4, 1, type);
+			DirectFormAbstract[] states = new DirectFormAbstract[cascade.getNumBiquads()];
+			for (int j = 0; j < states.length; j++) {
+				switch (type) {
+				case DirectFormAbstract.DIRECT_FORM_I:
+					states[j] = new DirectFormI();
+					break;
+				case DirectFormAbstract.DIRECT_FORM_II:
+					states[j] = new DirectFormII();
+					break;
+				default:
+					states[j] = new DirectFormIITransposed();
+					break;
+				}
+			}
+			double[] x = createSignal();
+			for (int i = 0; i < nSteps; i++) {
+				double v = x[i];
+				for (int j = 0; j < states.length; j++) {
+					v = states[j].process1(v, cascade.getBiquad(j));
+				}
+				Assert.assertEquals(v, cascade.filter(x[i]), 0);
+			}
+		}
+	}
+
+	@Test
+	public void biquadViewTest() {
+		// changing the coefficients via getBiquad() changes the filter
+		Butterworth ref = new Butterworth();
+		ref.lowPass(order, fs, fc);
+		Butterworth scaled = new Butterworth();
+		scaled.lowPass(order, fs, fc);
+		scaled.getBiquad(1).applyScale(2);
+		double[] x = createSignal();
+		for (int i = 0; i < nSteps; i++) {
+			Assert.assertEquals(2 * ref.filter(x[i]), scaled.filter(x[i]), 1E-12);
+		}
+	}
+
+	@Test(expected = IndexOutOfBoundsException.class)
+	public void outOfBoundsTest() {
+		Butterworth butterworth = new Butterworth();
+		butterworth.lowPass(order, fs, fc);
+		butterworth.filter(new double[10], 5, 10);
+	}
+}
@@ -0,0 +1,141 @@
+package uk.me.berndporr.iirj;
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.DoubleBuffer;
+import java.nio.FloatBuffer;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+// Filters samples in NIO buffers and compares them with arrays
+public class BufferTest {
+
+	static final int n = 1000;
+
+	static Butterworth filter() {
+		Butterworth butterworth = new Butterworth();
+		butterworth.lowPass(4, 1000, 100);
+		return butterworth;
+	}
+
+	static double x(int i) {
+		return 10000 * Math.sin(i * 0.1) + ((i % 50 == 0) ? 5000 : 0);
+	}
+
+	static double[] reference() {
+		double[] y = new double[n];
+		for (int i = 0; i < n; i++) {
+			y[i] = x(i);
+		}
+		filter().filter(y);
+		return y;
+	}
+
+	@Test
+	public void doubleBuffer() {
+		DoubleBuffer b = ByteBuffer.allocateDirect(n * 8).asDoubleBuffer();
+		for (int i = 0; i < n; i++) {
+			b.put(i, x(i));
+		}
+		filter().filter(b);
+		double[] y = reference();
+		for (int i = 0; i < n; i++) {
+			Assert.assertEquals(y[i], b.get(i), 0);
+		}
+	}
+
+	@Test
+	public void floatBufferStride() {
+		// two interleaved channels, only the 2nd one is filtered
+		FloatBuffer in = FloatBuffer.allocate(2 * n);
+		FloatBuffer out = FloatBuffer.allocate(2 * n);
+		for (int i = 0; i < n; i++) {
+			in.put(2 * i, 1);
+			in.put(2 * i + 1, (float) x(i));
+		}
+		filter().filter(in, 1, out, 1, n, 2);
+		Butterworth ref = filter();
+		for (int i = 0; i < n; i++) {
+			Assert.assertEquals(0, out.get(2 * i), 0);
+			Assert.assertEquals((float) ref.filter((float) x(i)), out.get(2 * i + 1), 0);
+		}
+	}
+
+	@Test
+	public void int16() {
+		// little endian 16 bit stereo in place
+		ByteBuffer b = ByteBuffer.allocateDirect(4 * n).order(ByteOrder.LITTLE_ENDIAN);
+		for (int i = 0; i < n; i++) {
+			b.putShort(4 * i, (short) Math.round(x(i)));
+			b.putShort(4 * i + 2, (short) -Math.round(x(i)));
+		}
+		filter().filter(b, 0, b, 0, n, 4, SampleEncoding.INT16);
+		filter().filter(b, 2, b, 2, n, 4, SampleEncoding.INT16);
+		Butterworth ref = filter();
+		for (int i = 0; i < n; i++) {
+			double y = ref.filter(Math.round(x(i)));
+			Assert.assertEquals(Math.rint(y), b.getShort(4 * i), 0);
+			Assert.assertEquals(-Math.rint(y), b.getShort(4 * i + 2), 0);
+		}
+	}
+
+	@Test
+	public void clipping() {
+		ByteBuffer b = ByteBuffer.allocate(2 * n).order(ByteOrder.LITTLE_ENDIAN);
+		for (int i = 0; i < n; i++) {
+			b.putShort(2 * i, (i % 20 < 10) ? Short.MAX_VALUE : Short.MIN_VALUE);
+		}
+		// the overshoot of the lowpass is clipped instead of wrapping around
+		filter().filter(b, SampleEncoding.INT16);
+		Butterworth ref = filter();
+		for (int i = 0; i < n; i++) {
+			double y = ref.filter((i % 20 < 10) ? Short.MAX_VALUE : Short.MIN_VALUE);
+			double clipped = Math.max(Short.MIN_VALUE, Math.min(Short.MAX_VALUE, Math.rint(y)));
+			Assert.assertEquals(clipped, b.getShort(2 * i), 0);
+		}
+	}
+
+	@Test
+	public void int32AndFloat32() {
+		ByteBuffer i32 = ByteBuffer.allocateDirect(4 * n).order(ByteOrder.BIG_ENDIAN);
+		ByteBuffer f32 = ByteBuffer.allocateDirect(4 * n).order(ByteOrder.LITTLE_ENDIAN);
+		ByteBuffer out = ByteBuffer.allocateDirect(4 * n).order(ByteOrder.LITTLE_ENDIAN);
+		for (int i = 0; i < n; i++) {
+			i32.putInt(4 * i, (int) Math.round(x(i) * 1000));
+			f32.putFloat(4 * i, (float) x(i));
+		}
+		filter().filter(i32, SampleEncoding.INT32);
+		filter().filter(f32, 0, out, 0, n, 4, SampleEncoding.FLOAT32);
+		Butterworth refInt = filter();
+		Butterworth refFloat = filter();
+		for (int i = 0; i < n; i++) {
+			Assert.assertEquals(Math.rint(refInt.filter(Math.round(x(i) * 1000))), i32.getInt(4 * i), 0);
+			Assert.assertEquals((float) refFloat.filter((float) x(i)), out.getFloat(4 * i), 0);
+		}
+	}
+
+	@Test(expected = IndexOutOfBoundsException.class)
+	public void outOfBounds() {
+		ByteBuffer b = ByteBuffer.allocate(4 * n);
+		filter().filter(b, 4, b, 4, n, 4, SampleEncoding.INT16);
+	}
+
+}
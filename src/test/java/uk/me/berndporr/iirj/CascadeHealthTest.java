@@ -0,0 +1,108 @@
+package uk.me.berndporr.iirj;
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+import org.junit.Assert;
+import org.junit.Test;
+
+// Monitors the states of every stage for NaN, infinity and their peaks
+public class CascadeHealthTest {
+
+	static final double fs = 1000;
+
+	ChebyshevI create() {
+		ChebyshevI c = new ChebyshevI();
+		c.bandPass(8, fs, 100, 20, 1);
+		return c;
+	}
+
+	@Test
+	public void offByDefault() {
+		ChebyshevI c = create();
+		Assert.assertNull(c.getHealth());
+		c.setHealthMonitoring(true);
+		Assert.assertNotNull(c.getHealth());
+		c.setHealthMonitoring(false);
+		Assert.assertNull(c.getHealth());
+	}
+
+	@Test
+	public void firstFault() {
+		ChebyshevI c = create();
+		c.setHealthMonitoring(true);
+		CascadeHealth health = c.getHealth();
+		for (int i = 0; i < 200; i++) {
+			c.filter((i == 100) ? Double.NaN : Math.sin(i));
+		}
+		Assert.assertEquals(200, health.getNumSamples());
+		Assert.assertEquals(c.getNumBiquads(), health.getNumStages());
+		Assert.assertFalse(health.isHealthy());
+		Assert.assertEquals(100, health.getFirstFault());
+		for (int s = 0; s < health.getNumStages(); s++) {
+			// NaN never leaves an IIR filter
+			Assert.assertEquals(100, health.getFirstFault(s));
+			Assert.assertEquals(100, health.getNumFaults(s));
+			Assert.assertTrue(health.getPeakState(s) > 0);
+		}
+		health.reset();
+		Assert.assertTrue(health.isHealthy());
+		Assert.assertEquals(0, health.getNumSamples());
+	}
+
+	@Test
+	public void blockEqualsSampleBySample() {
+		ChebyshevI bySample = create();
+		bySample.setHealthMonitoring(true);
+		ChebyshevI byBlock = create();
+		byBlock.setHealthMonitoring(true);
+		ChebyshevI plain = create();
+		double[] x = new double[500];
+		for (int i = 0; i < x.length; i++) {
+			x[i] = Math.sin(0.6 * i) * 1E308;
+		}
+		double[] y = x.clone();
+		byBlock.filter(y);
+		double[] expected = x.clone();
+		plain.filter(expected);
+		Assert.assertArrayEquals(expected, y, 0);
+		for (int i = 0; i < x.length; i++) {
+			Assert.assertEquals(bySample.filter(x[i]), y[i], 0);
+		}
+		CascadeHealth a = bySample.getHealth();
+		CascadeHealth b = byBlock.getHealth();
+		Assert.assertEquals(a.getFirstFault(), b.getFirstFault());
+		for (int s = 0; s < a.getNumStages(); s++) {
+			Assert.assertEquals(a.getPeakState(s), b.getPeakState(s), 0);
+			Assert.assertEquals(a.getNumFaults(s), b.getNumFaults(s));
+		}
+		// the gain of the passband overflows the states
+		Assert.assertTrue(a.getFirstFault() >= 0);
+		Assert.assertTrue(a.getPeakState(0) > 1E307);
+	}
+
+	@Test
+	public void redesign() {
+		ChebyshevI c = create();
+		c.setHealthMonitoring(true);
+		c.filter(1);
+		c.lowPass(2, fs, 100, 1);
+		c.filter(1);
+		Assert.assertEquals(1, c.getHealth().getNumStages());
+	}
+
+}
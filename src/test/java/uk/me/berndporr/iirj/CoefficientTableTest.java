@@ -0,0 +1,160 @@
+package uk.me.berndporr.iirj;
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+import org.junit.Assert;
+import org.junit.Test;
+
+// Retunes filters from tables of precomputed coefficients
+public class CoefficientTableTest {
+
+	static final double fs = 48000;
+
+	static CoefficientTable butterworth(int numPoints) {
+		final Butterworth b = new Butterworth();
+		return new CoefficientTable(fs, 20, 20000, numPoints,
+				new CoefficientTable.Design() {
+					public Cascade design(double cutoff) {
+						b.lowPass(4, fs, cutoff);
+						return b;
+					}
+				});
+	}
+
+	static double responseError(Cascade a, Cascade b) {
+		double[] ma = new double[512];
+		double[] mb = new double[512];
+		a.response(0, 0.5 / 511, ma, null);
+		b.response(0, 0.5 / 511, mb, null);
+		double e = 0;
+		for (int i = 0; i < ma.length; i++) {
+			e = Math.max(e, Math.abs(ma[i] - mb[i]));
+		}
+		return e;
+	}
+
+	@Test
+	public void gridPoints() {
+		CoefficientTable table = butterworth(64);
+		Cascade voice = table.newFilter(DirectFormAbstract.DIRECT_FORM_II);
+		Butterworth exact = new Butterworth();
+		exact.lowPass(4, fs, 20000);
+		table.retune(voice, 20000);
+		Assert.assertArrayEquals(exact.getPackedCoefficients(),
+				voice.getPackedCoefficients(), 1E-12);
+		exact.lowPass(4, fs, 20);
+		table.retune(voice, 10);
+		Assert.assertArrayEquals(exact.getPackedCoefficients(),
+				voice.getPackedCoefficients(), 0);
+	}
+
+	@Test
+	public void maxError() {
+		CoefficientTable coarse = butterworth(32);
+		CoefficientTable fine = butterworth(256);
+		System.out.println("Interpolation error with 32 points: " + coarse.getMaxError()
+				+ ", with 256 points: " + fine.getMaxError());
+		Assert.assertTrue(fine.getMaxError() < coarse.getMaxError());
+		Assert.assertTrue(fine.getMaxError() < 1E-2);
+
+		// random cutoffs are close to the exact design as well
+		Cascade voice = fine.newFilter(DirectFormAbstract.DIRECT_FORM_I);
+		Butterworth exact = new Butterworth();
+		java.util.Random random = new java.util.Random(1);
+		for (int i = 0; i < 50; i++) {
+			double f = 20 * Math.pow(1000, random.nextDouble());
+			fine.retune(voice, f);
+			exact.lowPass(4, fs, f);
+			Assert.assertTrue(responseError(exact, voice) <= 2 * fine.getMaxError());
+		}
+	}
+
+	@Test
+	public void chebyshevI() {
+		final ChebyshevI c = new ChebyshevI();
+		CoefficientTable table = new CoefficientTable(fs, 100, 10000, 128,
+				new CoefficientTable.Design() {
+					public Cascade design(double cutoff) {
+						c.highPass(5, fs, cutoff, 1);
+						return c;
+					}
+				});
+		Assert.assertEquals(3, table.getNumBiquads());
+		Assert.assertTrue(table.getMaxError() < 1E-2);
+
+		// filtering while the cutoff is modulated every 32 samples
+		Cascade voice = table.newFilter(DirectFormAbstract.DIRECT_FORM_I);
+		double[] block = new double[32];
+		for (int b = 0; b < 1000; b++) {
+			table.retune(voice, 1000 + 900 * Math.sin(b * 0.1));
+			for (int i = 0; i < block.length; i++) {
+				block[i] = Math.sin((b * 32 + i) * 0.2);
+			}
+			voice.filter(block);
+			for (double y : block) {
+				Assert.assertTrue(Math.abs(y) < 10);
+			}
+		}
+	}
+
+	@Test
+	public void interpolatedPolesAreStable() {
+		// a sharp highpass has its poles close to the unit circle at low cutoffs
+		final ChebyshevI c = new ChebyshevI();
+		CoefficientTable table = new CoefficientTable(fs, 10, 20000, 16,
+				new CoefficientTable.Design() {
+					public Cascade design(double cutoff) {
+						c.highPass(8, fs, cutoff, 0.1);
+						return c;
+					}
+				});
+		Cascade voice = table.newFilter(DirectFormAbstract.DIRECT_FORM_II);
+		for (int i = 0; i <= 10000; i++) {
+			table.retune(voice, 10 * Math.pow(2000, i / 10000.0));
+			double[] p = voice.getPackedCoefficients();
+			for (int k = 0; k < p.length; k += Cascade.COEFFS_PER_STAGE) {
+				Assert.assertTrue(Math.abs(p[k + 4]) < 1);
+				Assert.assertTrue(Math.abs(p[k + 3]) < 1 + p[k + 4]);
+			}
+		}
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void unstableDesign() {
+		// the poles leave the unit circle above 1 kHz
+		final SOSCascade s = new SOSCascade();
+		new CoefficientTable(fs, 100, 10000, 16, new CoefficientTable.Design() {
+			public Cascade design(double cutoff) {
+				s.setup(new double[][] { { 1, 0, 0, 1, 0, cutoff / 1000 } });
+				return s;
+			}
+		});
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void aboveNyquist() {
+		final Bessel b = new Bessel();
+		new CoefficientTable(fs, 20, 30000, 16, new CoefficientTable.Design() {
+			public Cascade design(double cutoff) {
+				b.lowPass(4, fs, cutoff);
+				return b;
+			}
+		});
+	}
+
+}
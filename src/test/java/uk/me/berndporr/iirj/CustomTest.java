@@ -111,6 +111,30 @@ public class CustomTest {
 		
 	}
 
+	@Test
+	public void test5() throws Exception {
+
+		SOSCascade cust = new SOSCascade();
+		cust.setup(coeff1,DirectFormAbstract.DIRECT_FORM_II_TRANSPOSED);
+		int i = 0;
+		for(double v:input1) {
+			Assert.assertEquals(cust.filter(v),result1[i++],delta);
+		}
+		
+	}
+
+	@Test
+	public void test6() throws Exception {
+
+		SOSCascade cust = new SOSCascade();
+		cust.setup(coeff2,DirectFormAbstract.DIRECT_FORM_II_TRANSPOSED);
+		int i = 0;
+		for(double v:input2) {
+			Assert.assertEquals(cust.filter(v),result2[i++],delta);
+		}
+		
+	}
+
 	@Test
 	public void lowPassTest() throws Exception {
 		SOSCascade cust = new SOSCascade();
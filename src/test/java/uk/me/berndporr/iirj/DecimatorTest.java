@@ -0,0 +1,112 @@
+package uk.me.berndporr.iirj;
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+import org.junit.Assert;
+import org.junit.Test;
+
+// Downsamples by integer factors in one or more stages
+public class DecimatorTest {
+
+	static final double fs = 10000;
+
+	double[] sine(double f, int n) {
+		double[] x = new double[n];
+		for (int i = 0; i < n; i++) {
+			x[i] = Math.sin(2 * Math.PI * f / fs * i);
+		}
+		return x;
+	}
+
+	double peak(double[] y, int from) {
+		double p = 0;
+		for (int i = from; i < y.length; i++) {
+			p = Math.max(p, Math.abs(y[i]));
+		}
+		return p;
+	}
+
+	@Test
+	public void stages() {
+		Assert.assertArrayEquals(new int[] { 8, 5 }, new Decimator(40).getStageFactors());
+		Assert.assertArrayEquals(new int[] { 8, 5, 5, 5 }, new Decimator(1000).getStageFactors());
+		Assert.assertArrayEquals(new int[] { 13 }, new Decimator(13).getStageFactors());
+		Assert.assertArrayEquals(new int[] { 6 }, new Decimator(6).getStageFactors());
+		Assert.assertArrayEquals(new int[0], new Decimator(1).getStageFactors());
+	}
+
+	@Test
+	public void singleStage() {
+		double[] x = sine(300, 1000);
+		Decimator decimator = new Decimator(4);
+		double[] y = decimator.filter(x);
+		Assert.assertEquals(250, y.length);
+		ChebyshevI reference = new ChebyshevI();
+		reference.lowPass(Decimator.DEFAULT_ORDER, 1, 0.1, FilterFamily.RIPPLE_DB,
+				DirectFormAbstract.DIRECT_FORM_II_TRANSPOSED);
+		reference.filter(x);
+		for (int i = 0; i < y.length; i++) {
+			Assert.assertEquals(x[i * 4], y[i], 0);
+		}
+	}
+
+	@Test
+	public void anyBlockSize() {
+		double[] x = sine(30, 5003);
+		double[] expected = new Decimator(40).filter(x);
+		Decimator decimator = new Decimator(40);
+		double[] y = new double[expected.length];
+		int n = 0;
+		for (int i = 0, len = 1; i < x.length; i += len, len = (len * 7 + 3) % 300) {
+			len = Math.min(len, x.length - i);
+			int outputs = decimator.getOutputLength(len);
+			Assert.assertEquals(outputs, decimator.filter(x, i, y, n, len));
+			n += outputs;
+		}
+		Assert.assertEquals(expected.length, n);
+		Assert.assertArrayEquals(expected, y, 0);
+	}
+
+	@Test
+	public void antiAliasing() {
+		// 10 kHz to 250 Hz: 20 Hz passes, 1010 Hz would alias to 10 Hz
+		for (int family = FilterFamily.CHEBYSHEV_I; family <= FilterFamily.BUTTERWORTH; family++) {
+			double[] pass = new Decimator(40, family, 8).filter(sine(20, 40000));
+			Assert.assertEquals(1, peak(pass, 200), 0.02);
+			double[] stop = new Decimator(40, family, 8).filter(sine(1010, 40000));
+			Assert.assertTrue(peak(stop, 200) < 1E-3);
+		}
+	}
+
+	@Test
+	public void noFilterForFactorOne() {
+		double[] x = sine(100, 100);
+		Assert.assertArrayEquals(x, new Decimator(1).filter(x), 0);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void invalidFactor() {
+		new Decimator(0);
+	}
+
+	@Test(expected = IndexOutOfBoundsException.class)
+	public void outputTooShort() {
+		new Decimator(4).filter(new double[100], 0, new double[24], 0, 100);
+	}
+
+}
@@ -0,0 +1,118 @@
+package uk.me.berndporr.iirj;
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+import org.junit.Assert;
+import org.junit.Test;
+
+// Keeps the states of a silent filter out of the subnormal range
+public class DenormalProtectionTest {
+
+	static final double fs = 1000;
+
+	Butterworth create(int mode, int directFormType) {
+		Butterworth b = new Butterworth();
+		b.bandPass(2, fs, 200, 100, directFormType);
+		b.setDenormalProtection(mode);
+		return b;
+	}
+
+	// number of samples after an impulse at which a state was subnormal
+	int subnormalSamples(Butterworth b) {
+		int count = 0;
+		b.filter(1);
+		for (int i = 0; i < 5000; i++) {
+			b.filter(0);
+			double[] s = b.snapshotState();
+			for (int k = 2; k < s.length; k++) {
+				if ((s[k] != 0) && (Math.abs(s[k]) < Double.MIN_NORMAL)) {
+					count++;
+					break;
+				}
+			}
+		}
+		return count;
+	}
+
+	@Test
+	public void noSubnormalStates() {
+		for (int type = DirectFormAbstract.DIRECT_FORM_I;
+				type <= DirectFormAbstract.DIRECT_FORM_II_TRANSPOSED; type++) {
+			Assert.assertTrue(subnormalSamples(create(DenormalProtection.NONE, type)) > 0);
+			Assert.assertEquals(0, subnormalSamples(create(DenormalProtection.NOISE, type)));
+			Assert.assertEquals(0, subnormalSamples(create(DenormalProtection.FLUSH, type)));
+		}
+	}
+
+	void blockEqualsSampleBySample(int mode, int type) {
+		Butterworth bySample = create(mode, type);
+		Butterworth byBlock = create(mode, type);
+		double[] x = new double[1000];
+		x[0] = 1;
+		double[] y = x.clone();
+		for (int i = 0; i < y.length; i += 37) {
+			byBlock.filter(y, i, Math.min(37, y.length - i));
+		}
+		for (int i = 0; i < x.length; i++) {
+			Assert.assertEquals(bySample.filter(x[i]), y[i], 0);
+		}
+	}
+
+	@Test
+	public void blockEqualsSampleBySample() {
+		for (int type = DirectFormAbstract.DIRECT_FORM_I;
+				type <= DirectFormAbstract.DIRECT_FORM_II_TRANSPOSED; type++) {
+			blockEqualsSampleBySample(DenormalProtection.NOISE, type);
+			blockEqualsSampleBySample(DenormalProtection.FLUSH, type);
+		}
+	}
+
+	@Test
+	public void signalIsNotChanged() {
+		Butterworth plain = create(DenormalProtection.NONE, DirectFormAbstract.DIRECT_FORM_II);
+		Butterworth noise = create(DenormalProtection.NOISE, DirectFormAbstract.DIRECT_FORM_II);
+		Butterworth flush = create(DenormalProtection.FLUSH, DirectFormAbstract.DIRECT_FORM_II);
+		for (int i = 0; i < 1000; i++) {
+			double x = Math.sin(0.5 * i);
+			double y = plain.filter(x);
+			Assert.assertEquals(y, noise.filter(x), 1E-18);
+			Assert.assertEquals(y, flush.filter(x), 0);
+		}
+	}
+
+	@Test
+	public void activeStagesAreNotFlushed() {
+		// every other input is tiny so that single states are below the
+		// threshold while the stages are still busy with the others
+		for (int type = DirectFormAbstract.DIRECT_FORM_I;
+				type <= DirectFormAbstract.DIRECT_FORM_II_TRANSPOSED; type++) {
+			Butterworth plain = create(DenormalProtection.NONE, type);
+			Butterworth flush = create(DenormalProtection.FLUSH, type);
+			for (int i = 0; i < 1000; i++) {
+				double x = (i % 2 == 0) ? 1E-15 * Math.sin(1.3 * i) : 1E-25;
+				Assert.assertEquals(plain.filter(x), flush.filter(x), 0);
+			}
+		}
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void unknownMode() {
+		new Butterworth().setDenormalProtection(3);
+	}
+
+}
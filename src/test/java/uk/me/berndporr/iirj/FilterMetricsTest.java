@@ -0,0 +1,107 @@
+package uk.me.berndporr.iirj;
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+import javax.management.MBeanServer;
+import javax.management.MBeanServerFactory;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+// Counts the samples, blocks and designs of filters and groups of filters
+public class FilterMetricsTest {
+
+	static final double fs = 1000;
+
+	@Test
+	public void countsBlocksAndDesigns() {
+		FilterMetrics metrics = new FilterMetrics("bandpass");
+		Butterworth b = new Butterworth();
+		b.setMetrics(metrics);
+		b.bandPass(4, fs, 100, 20);
+		b.bandPass(4, fs, 120, 20);
+		double[] x = new double[100];
+		b.filter(x);
+		b.filter(x, 10, 50);
+		// sample by sample isn't counted
+		b.filter(1);
+		Assert.assertEquals(150, metrics.getSamples());
+		Assert.assertEquals(2, metrics.getBlocks());
+		Assert.assertEquals(2, metrics.getDesigns());
+		Assert.assertTrue(metrics.getDesignNanos() > 0);
+
+		SOSCascade sos = new SOSCascade();
+		sos.setMetrics(metrics);
+		sos.setup(new double[][] { { 1, 0, 0, 1, 0, 0 } });
+		Assert.assertEquals(3, metrics.getDesigns());
+
+		metrics.reset();
+		Assert.assertEquals(0, metrics.getSamples());
+		b.setMetrics(null);
+		b.filter(x);
+		Assert.assertEquals(0, metrics.getBlocks());
+	}
+
+	@Test
+	public void sharedByThreads() throws InterruptedException {
+		final MetricsRegistry registry = new MetricsRegistry();
+		Assert.assertSame(registry.get("group"), registry.get("group"));
+		Thread[] threads = new Thread[4];
+		for (int t = 0; t < threads.length; t++) {
+			threads[t] = new Thread(new Runnable() {
+				public void run() {
+					Butterworth b = new Butterworth();
+					b.setMetrics(registry.get("group"));
+					b.lowPass(2, fs, 50);
+					double[] x = new double[64];
+					for (int i = 0; i < 1000; i++) {
+						b.filter(x);
+					}
+				}
+			});
+			threads[t].start();
+		}
+		for (Thread t : threads) {
+			t.join();
+		}
+		FilterMetrics metrics = registry.get("group");
+		Assert.assertEquals(4 * 1000, metrics.getBlocks());
+		Assert.assertEquals(4 * 1000 * 64, metrics.getSamples());
+		Assert.assertEquals(4, metrics.getDesigns());
+	}
+
+	@Test
+	public void publishedToJmx() throws Exception {
+		MBeanServer server = MBeanServerFactory.newMBeanServer();
+		JmxMetricsSink sink = new JmxMetricsSink(server, "test");
+		MetricsRegistry registry = new MetricsRegistry();
+		Butterworth b = new Butterworth();
+		b.setMetrics(registry.get("ecg, lowpass"));
+		b.lowPass(4, fs, 50);
+		registry.publish(sink);
+		// a second publish is harmless
+		registry.publish(sink);
+		b.filter(new double[10]);
+		FilterMetrics metrics = registry.get("ecg, lowpass");
+		Assert.assertEquals(10L, server.getAttribute(sink.getObjectName(metrics), "Samples"));
+		Assert.assertEquals(1L, server.getAttribute(sink.getObjectName(metrics), "Designs"));
+		sink.unregister(metrics);
+		Assert.assertFalse(server.isRegistered(sink.getObjectName(metrics)));
+	}
+
+}
@@ -0,0 +1,244 @@
+package uk.me.berndporr.iirj;
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+import javax.sound.sampled.AudioFormat;
+import javax.sound.sampled.AudioInputStream;
+import javax.sound.sampled.AudioSystem;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+// Filters PCM audio of different formats while it's read and compares
+// the result against filtering the decoded samples
+public class FilteredAudioInputStreamTest {
+
+	static final float fs = 8000;
+	static final int frames = 1000;
+
+	Butterworth design() {
+		Butterworth b = new Butterworth();
+		b.lowPass(4, fs, 500);
+		return b;
+	}
+
+	// a test signal within the range of the format
+	double sample(int i, int c, double amplitude) {
+		return amplitude * 0.4 * (Math.sin(0.3 * i + c) + Math.sin(0.01 * i));
+	}
+
+	byte[] readAll(AudioInputStream in, int chunk) throws IOException {
+		byte[] data = new byte[(int) (in.getFrameLength() * in.getFormat().getFrameSize())];
+		int n = 0;
+		int r;
+		while ((r = in.read(data, n, Math.min(chunk, data.length - n))) > 0) {
+			n += r;
+		}
+		Assert.assertEquals(data.length, n);
+		return data;
+	}
+
+	void checkInteger(int bits, boolean signed, boolean bigEndian, int channels) throws IOException {
+		AudioFormat format = new AudioFormat(fs, bits, channels, signed, bigEndian);
+		int bytes = bits / 8;
+		long half = 1L << (bits - 1);
+		double[][] x = new double[channels][frames];
+		byte[] data = new byte[frames * channels * bytes];
+		for (int i = 0, p = 0; i < frames; i++) {
+			for (int c = 0; c < channels; c++, p += bytes) {
+				long v = Math.round(sample(i, c, half - 1));
+				x[c][i] = v;
+				long u = signed ? v : v + half;
+				for (int k = 0; k < bytes; k++) {
+					int shift = 8 * (bigEndian ? bytes - 1 - k : k);
+					data[p + k] = (byte) (u >> shift);
+				}
+			}
+		}
+		AudioInputStream in = new AudioInputStream(new ByteArrayInputStream(data), format, frames);
+		// odd chunks to split frames between reads
+		byte[] y = readAll(new FilteredAudioInputStream(in, design()), 7 * channels * bytes + 1);
+
+		for (int c = 0; c < channels; c++) {
+			Butterworth reference = design();
+			reference.filter(x[c]);
+			for (int i = 0; i < frames; i++) {
+				int p = (i * channels + c) * bytes;
+				long u = 0;
+				for (int k = 0; k < bytes; k++) {
+					int shift = 8 * (bigEndian ? bytes - 1 - k : k);
+					u |= (long) (y[p + k] & 0xff) << shift;
+				}
+				long v = signed ? (u << (64 - bits)) >> (64 - bits) : u - half;
+				long expected = Math.max(-half, Math.min(half - 1, (long) Math.rint(x[c][i])));
+				Assert.assertEquals(expected, v);
+			}
+		}
+	}
+
+	@Test
+	public void integerFormats() throws IOException {
+		checkInteger(16, true, false, 2);
+		checkInteger(16, true, true, 1);
+		checkInteger(8, false, false, 1);
+		checkInteger(8, true, false, 3);
+		checkInteger(24, true, true, 2);
+		checkInteger(24, false, false, 1);
+		checkInteger(32, true, false, 2);
+		checkInteger(16, false, true, 2);
+	}
+
+	void checkFloat(int bits, boolean bigEndian) throws IOException {
+		final int channels = 2;
+		int bytes = bits / 8;
+		AudioFormat format = new AudioFormat(AudioFormat.Encoding.PCM_FLOAT, fs, bits,
+				channels, channels * bytes, fs, bigEndian);
+		ByteBuffer buffer = ByteBuffer.allocate(frames * channels * bytes);
+		buffer.order(bigEndian ? ByteOrder.BIG_ENDIAN : ByteOrder.LITTLE_ENDIAN);
+		double[][] x = new double[channels][frames];
+		for (int i = 0; i < frames; i++) {
+			for (int c = 0; c < channels; c++) {
+				x[c][i] = (bits == 32) ? (float) sample(i, c, 1) : sample(i, c, 1);
+				if (bits == 32) {
+					buffer.putFloat((float) x[c][i]);
+				} else {
+					buffer.putDouble(x[c][i]);
+				}
+			}
+		}
+		AudioInputStream in = new AudioInputStream(
+				new ByteArrayInputStream(buffer.array()), format, frames);
+		ByteBuffer y = ByteBuffer.wrap(readAll(new FilteredAudioInputStream(in, design()), 100));
+		y.order(buffer.order());
+		for (int c = 0; c < channels; c++) {
+			Butterworth reference = design();
+			reference.filter(x[c]);
+			for (int i = 0; i < frames; i++) {
+				int p = (i * channels + c) * bytes;
+				if (bits == 32) {
+					Assert.assertEquals((float) x[c][i], y.getFloat(p), 0);
+				} else {
+					Assert.assertEquals(x[c][i], y.getDouble(p), 0);
+				}
+			}
+		}
+	}
+
+	@Test
+	public void floatFormats() throws IOException {
+		checkFloat(32, false);
+		checkFloat(32, true);
+		checkFloat(64, false);
+	}
+
+	@Test
+	public void separateFilters() throws IOException {
+		// the second channel is only passed through a filter with b0 = 1
+		AudioFormat format = new AudioFormat(fs, 16, 2, true, false);
+		byte[] data = new byte[frames * 4];
+		for (int i = 0; i < data.length; i++) {
+			data[i] = (byte) (i * 31);
+		}
+		AudioInputStream in = new AudioInputStream(new ByteArrayInputStream(data.clone()), format, frames);
+		SOSCascade identity = new SOSCascade();
+		identity.setup(new double[][] { { 1, 0, 0, 1, 0, 0 } });
+		byte[] y = readAll(new FilteredAudioInputStream(in, new Cascade[] { design(), identity }), 64);
+		for (int i = 0; i < frames; i++) {
+			Assert.assertEquals(data[i * 4 + 2], y[i * 4 + 2]);
+			Assert.assertEquals(data[i * 4 + 3], y[i * 4 + 3]);
+		}
+	}
+
+	@Test
+	public void independentOfSource() throws IOException {
+		// redesigning the filter passed in doesn't change the stream
+		AudioFormat format = new AudioFormat(AudioFormat.Encoding.PCM_FLOAT, fs, 64,
+				1, 8, fs, false);
+		ByteBuffer buffer = ByteBuffer.allocate(frames * 8).order(ByteOrder.LITTLE_ENDIAN);
+		double[] x = new double[frames];
+		for (int i = 0; i < frames; i++) {
+			x[i] = sample(i, 0, 1);
+			buffer.putDouble(x[i]);
+		}
+		AudioInputStream in = new AudioInputStream(
+				new ByteArrayInputStream(buffer.array()), format, frames);
+		Butterworth source = design();
+		FilteredAudioInputStream filtered = new FilteredAudioInputStream(in, source);
+		byte[] first = new byte[frames * 4];
+		Assert.assertEquals(first.length, filtered.read(first));
+		source.lowPass(4, fs, 20);
+		byte[] all = new byte[frames * 8];
+		System.arraycopy(first, 0, all, 0, first.length);
+		Assert.assertEquals(first.length, filtered.read(all, first.length, first.length));
+		ByteBuffer y = ByteBuffer.wrap(all).order(ByteOrder.LITTLE_ENDIAN);
+		Butterworth reference = design();
+		reference.filter(x);
+		for (int i = 0; i < frames; i++) {
+			Assert.assertEquals(x[i], y.getDouble(8 * i), 0);
+		}
+	}
+
+	@Test
+	public void roundsHalfToEven() throws IOException {
+		// halving odd samples gives x.5 which is rounded like SampleEncoding does
+		AudioFormat format = new AudioFormat(fs, 16, 1, true, false);
+		short[] x = { 3, 5, -3, -5, 7 };
+		short[] expected = { 2, 2, -2, -2, 4 };
+		ByteBuffer data = ByteBuffer.allocate(2 * x.length).order(ByteOrder.LITTLE_ENDIAN);
+		for (short v : x) {
+			data.putShort(v);
+		}
+		AudioInputStream in = new AudioInputStream(
+				new ByteArrayInputStream(data.array()), format, x.length);
+		SOSCascade half = new SOSCascade();
+		half.setup(new double[][] { { 0.5, 0, 0, 1, 0, 0 } });
+		ByteBuffer y = ByteBuffer.wrap(readAll(new FilteredAudioInputStream(in, half), 2))
+				.order(ByteOrder.LITTLE_ENDIAN);
+		for (int i = 0; i < x.length; i++) {
+			Assert.assertEquals(expected[i], y.getShort(2 * i));
+		}
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void unspecifiedFrameSize() {
+		AudioFormat format = new AudioFormat(AudioFormat.Encoding.PCM_SIGNED, fs, 16, 2,
+				AudioSystem.NOT_SPECIFIED, fs, false);
+		AudioInputStream in = new AudioInputStream(new ByteArrayInputStream(new byte[4]), format, 1);
+		new FilteredAudioInputStream(in, design());
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void wrongNumberOfFilters() {
+		AudioFormat format = new AudioFormat(fs, 16, 2, true, false);
+		AudioInputStream in = new AudioInputStream(new ByteArrayInputStream(new byte[4]), format, 1);
+		new FilteredAudioInputStream(in, new Cascade[] { design() });
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void unsupportedFormat() {
+		AudioFormat format = new AudioFormat(AudioFormat.Encoding.ULAW, fs, 8, 1, 1, fs, false);
+		AudioInputStream in = new AudioInputStream(new ByteArrayInputStream(new byte[4]), format, 4);
+		new FilteredAudioInputStream(in, design());
+	}
+
+}
@@ -0,0 +1,239 @@
+package uk.me.berndporr.iirj;
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Scanner;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+// Zero phase filtering
+public class FiltfiltTest {
+
+	static double fs = 250;
+	static int nSteps = 2000;
+
+	@Test
+	public void steadyStateTest() {
+		// a constant input must not create any transient
+		for (int type = 0; type < 3; type++) {
+			Butterworth butterworth = new Butterworth();
+			butterworth.lowPass(4, fs, 10, type);
+			double[] x = new double[nSteps];
+			Arrays.fill(x, 3);
+			butterworth.filtfilt(x);
+			for (int i = 0; i < nSteps; i++) {
+				Assert.assertEquals(3, x[i], 1E-9);
+			}
+		}
+	}
+
+	@Test
+	public void zeroPhaseTest() {
+		// a sine wave in the passband is neither delayed nor attenuated
+		ChebyshevI cheby = new ChebyshevI();
+		cheby.bandPass(4, fs, 20, 10, 0.1);
+		double[] x = new double[nSteps];
+		for (int i = 0; i < nSteps; i++) {
+			x[i] = Math.sin(2 * Math.PI * 20 * i / fs);
+		}
+		double[] y = x.clone();
+		cheby.filtfilt(y);
+		for (int i = 500; i < nSteps - 500; i++) {
+			Assert.assertEquals(x[i], y[i], 0.03);
+		}
+	}
+
+	@Test
+	public void directFormsTest() {
+		double[][] y = new double[3][];
+		for (int type = 0; type < 3; type++) {
+			Bessel bessel = new Bessel();
+			bessel.highPass(5, fs, 5, type);
+			y[type] = readEcg();
+			bessel.filtfilt(y[type]);
+		}
+		Assert.assertArrayEquals(y[0], y[1], 1E-9);
+		Assert.assertArrayEquals(y[0], y[2], 1E-9);
+	}
+
+	@Test
+	public void multiChannelTest() {
+		Butterworth butterworth = new Butterworth();
+		butterworth.bandStop(2, fs, 50, 5);
+		double[][] channels = new double[8][];
+		double[][] expected = new double[8][];
+		for (int ch = 0; ch < channels.length; ch++) {
+			channels[ch] = readEcg();
+			for (int i = 0; i < channels[ch].length; i++) {
+				channels[ch][i] *= ch + 1;
+			}
+			expected[ch] = channels[ch].clone();
+			butterworth.filtfilt(expected[ch]);
+		}
+		butterworth.filtfilt(channels);
+		for (int ch = 0; ch < channels.length; ch++) {
+			Assert.assertArrayEquals(expected[ch], channels[ch], 0);
+		}
+	}
+
+	@Test
+	public void publishedBeforeChannelsTest() {
+		// the channels are filtered with published coefficients
+		// once any ramp towards them has finished
+		Butterworth live = new Butterworth();
+		live.lowPass(4, fs, 10);
+		live.setSmoothing(100);
+		Butterworth design = new Butterworth();
+		design.lowPass(4, fs, 30);
+		live.publish(design);
+		double[][] channels = new double[4][];
+		double[] expected = readEcg();
+		design.filtfilt(expected);
+		for (int ch = 0; ch < channels.length; ch++) {
+			channels[ch] = readEcg();
+		}
+		live.filtfilt(channels);
+		for (int ch = 0; ch < channels.length; ch++) {
+			Assert.assertArrayEquals(expected, channels[ch], 0);
+		}
+	}
+
+	@Test
+	public void copyTest() {
+		// the copies for the channels don't change with the original
+		Butterworth original = new Butterworth();
+		original.lowPass(4, fs, 10);
+		Cascade copy = new Cascade(original);
+		double[] coeff = original.getPackedCoefficients().clone();
+		double b0 = original.getBiquad(0).getB0();
+		original.lowPass(4, fs, 30);
+		original.setSmoothing(10);
+		Butterworth design = new Butterworth();
+		design.lowPass(4, fs, 50);
+		original.publish(design);
+		original.filter(new double[20]);
+		Assert.assertArrayEquals(coeff, copy.getPackedCoefficients(), 0);
+		Assert.assertEquals(b0, copy.getBiquad(0).getB0(), 0);
+		Butterworth expected = new Butterworth();
+		expected.lowPass(4, fs, 10);
+		double[] x = readEcg();
+		double[] y = x.clone();
+		expected.filtfilt(x);
+		copy.filtfilt(y);
+		Assert.assertArrayEquals(x, y, 0);
+	}
+
+	@Test
+	public void healthMonitoringTest() {
+		// both passes are monitored without changing the result
+		Butterworth butterworth = new Butterworth();
+		butterworth.highPass(4, fs, 1);
+		double[] expected = readEcg();
+		butterworth.filtfilt(expected);
+		butterworth.setHealthMonitoring(true);
+		double[] y = readEcg();
+		butterworth.filtfilt(y);
+		Assert.assertArrayEquals(expected, y, 0);
+		// the backward pass ends with the data
+		Assert.assertEquals(2 * y.length + 3 * butterworth.getFiltfiltPadding(),
+				butterworth.getHealth().getNumSamples());
+	}
+
+	// sosfiltfilt of scipy, see scipy/FiltfiltTest.py
+	void compareWithScipy(Cascade filter, String name, int len) {
+		double[] x = Arrays.copyOf(readScipy("signal.txt"), len);
+		double[] expected = readScipy("butterworth-filtfilt-" + name + ".csv");
+		Assert.assertEquals(len, expected.length);
+		filter.filtfilt(x);
+		Assert.assertArrayEquals(name, expected, x, 1E-8);
+	}
+
+	@Test
+	public void scipyTest() {
+		final int len = 2000;
+		Butterworth butterworth = new Butterworth();
+		butterworth.lowPass(4, 2000, 300);
+		Assert.assertEquals(15, butterworth.getFiltfiltPadding());
+		compareWithScipy(butterworth, "lowpass-Order_4", len);
+		// the first order stage shortens the extension
+		butterworth.highPass(5, 2000, 200);
+		Assert.assertEquals(18, butterworth.getFiltfiltPadding());
+		compareWithScipy(butterworth, "highpass-Order_5", len);
+		butterworth.bandPass(2, 2000, 250, 100);
+		compareWithScipy(butterworth, "bandpass-Order_2", len);
+	}
+
+	@Test
+	public void scipyShortTest() {
+		// the shortest data which is longer than the extension
+		Butterworth butterworth = new Butterworth();
+		butterworth.lowPass(4, 2000, 300);
+		compareWithScipy(butterworth, "lowpass-Order_4-short",
+				butterworth.getFiltfiltPadding() + 1);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void tooShortTest() {
+		Butterworth butterworth = new Butterworth();
+		butterworth.lowPass(4, fs, 10);
+		butterworth.filtfilt(new double[butterworth.getFiltfiltPadding()]);
+	}
+
+	double[] readScipy(String name) {
+		List<Double> values = new ArrayList<Double>();
+		Scanner is = new Scanner(Thread.currentThread().getContextClassLoader()
+				.getResourceAsStream("scipy/" + name));
+		// header
+		is.nextLine();
+		while (is.hasNextLine()) {
+			String line = is.nextLine();
+			if (!line.isEmpty()) {
+				values.add(Double.parseDouble(line.split(";")[1]));
+			}
+		}
+		is.close();
+		double[] x = new double[values.size()];
+		for (int i = 0; i < x.length; i++) {
+			x[i] = values.get(i);
+		}
+		return x;
+	}
+
+	double[] readEcg() {
+		List<Double> values = new ArrayList<Double>();
+		try {
+			Scanner is = new Scanner(new File("src/test/resources/ecg.dat"));
+			while (is.hasNextLine()) {
+				values.add(Double.parseDouble(is.nextLine()));
+			}
+			is.close();
+		} catch (Exception e) {
+			Assert.fail("Could not read the ECG: " + e.getMessage());
+		}
+		double[] x = new double[values.size()];
+		for (int i = 0; i < x.length; i++) {
+			x[i] = values.get(i);
+		}
+		return x;
+	}
+}
@@ -0,0 +1,116 @@
+package uk.me.berndporr.iirj;
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+import org.junit.Assert;
+import org.junit.Test;
+
+// Compares the fixed point filters with the double precision ones.
+public class FixedPointCascadeTest {
+
+	static double fs = 8000;
+	static double fc = 500;
+	static int order = 4;
+	static int nSteps = 4000;
+
+	@Test
+	public void q15Test() {
+		Butterworth design = new Butterworth();
+		design.lowPass(order, fs, fc);
+		FixedPointCascade fixed = new FixedPointCascade(design, FixedPointCascade.Q15);
+		fixed.setNoiseStatistics(true);
+		Assert.assertTrue(fixed.getCoefficientError() < 1E-2);
+		short[] x = new short[nSteps];
+		for (int i = 0; i < nSteps; i++) {
+			x[i] = (short) Math.round(10000 * Math.sin(2 * Math.PI * 200 * i / fs));
+		}
+		short[] y = x.clone();
+		fixed.filter(y, 0, nSteps);
+		for (int i = 0; i < nSteps; i++) {
+			double ref = design.filter(x[i]);
+			Assert.assertEquals(ref, y[i], 10);
+		}
+		Assert.assertEquals(0, fixed.getOverflowCount());
+		double noise = fixed.getQuantisationNoisePower();
+		Assert.assertTrue(noise > 0);
+		Assert.assertTrue(noise < 1);
+	}
+
+	@Test
+	public void q31Test() {
+		ChebyshevI design = new ChebyshevI();
+		design.bandPass(order, fs, 1000, 200, 1);
+		FixedPointCascade fixed = new FixedPointCascade(design, FixedPointCascade.Q31);
+		Assert.assertTrue(fixed.getCoefficientError() < 1E-5);
+		int[] x = new int[nSteps];
+		for (int i = 0; i < nSteps; i++) {
+			x[i] = (int) Math.round(1E9 * Math.sin(2 * Math.PI * 1000 * i / fs));
+		}
+		int[] y = new int[nSteps];
+		fixed.filter(x, 0, y, 0, nSteps);
+		for (int i = 0; i < nSteps; i++) {
+			double ref = design.filter(x[i]);
+			Assert.assertEquals(ref, y[i], 1E9 * 1E-5);
+		}
+		Assert.assertEquals(0, fixed.getOverflowCount());
+		// the rounding error isn't measured by default
+		Assert.assertEquals(0, fixed.getQuantisationNoisePower(), 0);
+	}
+
+	@Test
+	public void blockOutsideShorts() {
+		// rejected before any sample is written
+		Butterworth design = new Butterworth();
+		design.lowPass(order, fs, fc);
+		FixedPointCascade fixed = new FixedPointCascade(design, FixedPointCascade.Q15);
+		short[] in = new short[10];
+		java.util.Arrays.fill(in, (short) 1000);
+		short[] out = new short[10];
+		try {
+			fixed.filter(in, 5, out, 0, 6);
+			Assert.fail();
+		} catch (IndexOutOfBoundsException e) {
+			Assert.assertArrayEquals(new short[10], out);
+		}
+	}
+
+	@Test(expected = IndexOutOfBoundsException.class)
+	public void blockOutsideInts() {
+		Butterworth design = new Butterworth();
+		design.lowPass(order, fs, fc);
+		FixedPointCascade fixed = new FixedPointCascade(design, FixedPointCascade.Q31);
+		fixed.filter(new int[10], -1, 5);
+	}
+
+	@Test
+	public void saturationTest() {
+		Butterworth design = new Butterworth();
+		design.lowPass(order, fs, fc);
+		FixedPointCascade fixed = new FixedPointCascade(design, FixedPointCascade.Q15, 0);
+		int v = 0;
+		for (int i = 0; i < nSteps; i++) {
+			// a full scale step overshoots
+			v = fixed.filter((i / 100) % 2 == 0 ? Short.MAX_VALUE : Short.MIN_VALUE);
+			Assert.assertTrue(v <= Short.MAX_VALUE);
+			Assert.assertTrue(v >= Short.MIN_VALUE);
+		}
+		Assert.assertTrue(fixed.getOverflowCount() > 0);
+		fixed.resetStatistics();
+		Assert.assertEquals(0, fixed.getOverflowCount());
+	}
+}
@@ -0,0 +1,70 @@
+package uk.me.berndporr.iirj;
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+import java.util.Random;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+// Compares the single precision filter with the double precision one
+// and the sample by sample processing with the block processing.
+public class FloatCascadeTest {
+
+	static double fs = 48000;
+	static double fc = 1000;
+	static int order = 4;
+	static int nSteps = 2000;
+
+	float[] createSignal() {
+		Random r = new Random(3);
+		float[] x = new float[nSteps];
+		for (int i = 0; i < nSteps; i++) {
+			x[i] = (float) r.nextGaussian();
+		}
+		return x;
+	}
+
+	void compare(boolean doubleAccumulation, double delta) {
+		for (int type = 0; type < 3; type++) {
+			Butterworth design = new Butterworth();
+			design.lowPass(order, fs, fc, type);
+			FloatCascade single = new FloatCascade(design, doubleAccumulation);
+			FloatCascade block = new FloatCascade(design, doubleAccumulation);
+			float[] x = createSignal();
+			float[] y = x.clone();
+			block.filter(y, 0, 777);
+			block.filter(y, 777, nSteps - 777);
+			for (int i = 0; i < nSteps; i++) {
+				float v = single.filter(x[i]);
+				Assert.assertEquals(v, y[i], 0);
+				Assert.assertEquals(design.filter(x[i]), v, delta);
+			}
+		}
+	}
+
+	@Test
+	public void singlePrecisionTest() {
+		compare(false, 1E-3);
+	}
+
+	@Test
+	public void doubleAccumulationTest() {
+		compare(true, 1E-5);
+	}
+}
@@ -0,0 +1,143 @@
+package uk.me.berndporr.iirj;
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+import org.junit.Assert;
+import org.junit.Test;
+
+// Polyphase half-band filters compared against filtering at the high rate
+public class HalfBandTest {
+
+	static final double attenuation = 96;
+	static final double transition = 0.01;
+
+	// H(z) = 0.5 * (A0(z^2) + z^-1 * A1(z^2)) at the high rate
+	double[] fullRate(double[] c, double[] x) {
+		double[][] branch = new double[2][];
+		for (int b = 0; b < 2; b++) {
+			double[] v = x.clone();
+			for (int k = b; k < c.length; k += 2) {
+				double[] y = new double[v.length];
+				for (int n = 0; n < v.length; n++) {
+					double x2 = (n >= 2) ? v[n - 2] : 0;
+					double y2 = (n >= 2) ? y[n - 2] : 0;
+					y[n] = c[k] * (v[n] - y2) + x2;
+				}
+				v = y;
+			}
+			branch[b] = v;
+		}
+		double[] y = new double[x.length];
+		for (int n = 0; n < x.length; n++) {
+			y[n] = 0.5 * (branch[0][n] + ((n >= 1) ? branch[1][n - 1] : 0));
+		}
+		return y;
+	}
+
+	double[] sine(double f, int n) {
+		double[] x = new double[n];
+		for (int i = 0; i < n; i++) {
+			x[i] = Math.sin(2 * Math.PI * f * i + 0.3);
+		}
+		return x;
+	}
+
+	@Test
+	public void design() {
+		double[] c = HalfBand.design(attenuation, transition);
+		Assert.assertEquals(12, c.length);
+		for (double f = 0; f < 0.25 - transition / 2; f += 1E-4) {
+			Assert.assertEquals(1, HalfBand.response(c, f), 1E-6);
+		}
+		double limit = Math.pow(10, -attenuation / 20);
+		for (double f = 0.25 + transition / 2; f <= 0.5; f += 1E-4) {
+			Assert.assertTrue(HalfBand.response(c, f) < limit);
+		}
+		Assert.assertEquals(1, HalfBand.design(40, 0.2).length / 2);
+	}
+
+	@Test
+	public void decimatorKeepsOnlyOnePhase() {
+		double[] x = sine(0.05, 1001);
+		for (int i = 0; i < x.length; i += 7) {
+			x[i] += 1;
+		}
+		HalfBandDecimator decimator = new HalfBandDecimator(attenuation, transition);
+		double[] y = new double[500];
+		Assert.assertEquals(500, decimator.filter(x, 0, y, 0, x.length));
+		double[] reference = fullRate(decimator.getCoefficients(), x);
+		for (int m = 0; m < y.length; m++) {
+			Assert.assertEquals(reference[2 * m + 1], y[m], 1E-12);
+		}
+	}
+
+	@Test
+	public void decimatorAnyBlockSize() {
+		double[] x = sine(0.1, 2001);
+		HalfBandDecimator decimator = new HalfBandDecimator(70, 0.1);
+		double[] expected = new double[1000];
+		decimator.filter(x, 0, expected, 0, x.length);
+		decimator.reset();
+		double[] y = new double[1000];
+		int n = 0;
+		for (int i = 0, len = 1; i < x.length; i += len, len = (len * 5 + 2) % 37) {
+			len = Math.min(len, x.length - i);
+			n += decimator.filter(x, i, y, n, len);
+		}
+		Assert.assertEquals(1000, n);
+		Assert.assertArrayEquals(expected, y, 0);
+	}
+
+	@Test
+	public void decimatorRemovesAliases() {
+		HalfBandDecimator decimator = new HalfBandDecimator(attenuation, transition);
+		double[] y = new double[2000];
+		decimator.filter(sine(0.3, 4000), 0, y, 0, 4000);
+		for (int m = 1000; m < y.length; m++) {
+			Assert.assertEquals(0, y[m], 2E-5);
+		}
+		decimator.reset();
+		decimator.filter(sine(0.1, 4000), 0, y, 0, 4000);
+		// whole periods of 5 samples
+		double power = 0;
+		for (int m = 1000; m < y.length; m++) {
+			power += y[m] * y[m];
+		}
+		Assert.assertEquals(1, Math.sqrt(2 * power / 1000), 1E-3);
+	}
+
+	@Test
+	public void interpolatorSameAsZeroStuffing() {
+		double[] x = sine(0.13, 500);
+		HalfBandInterpolator interpolator = new HalfBandInterpolator(attenuation, transition);
+		double[] y = new double[1000];
+		Assert.assertEquals(1000, interpolator.filter(x, 0, y, 0, x.length));
+		double[] stuffed = new double[1000];
+		for (int i = 0; i < x.length; i++) {
+			stuffed[2 * i] = 2 * x[i];
+		}
+		double[] reference = fullRate(interpolator.getCoefficients(), stuffed);
+		Assert.assertArrayEquals(reference, y, 1E-12);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void invalidTransition() {
+		HalfBand.design(96, 0.5);
+	}
+
+}
@@ -0,0 +1,139 @@
+package uk.me.berndporr.iirj;
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+import java.util.Arrays;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+// Publishes coefficients to a filter which is running in another thread
+public class HotSwapTest {
+
+	static final double fs = 1000;
+
+	@Test
+	public void statesArePreserved() {
+		Butterworth live = new Butterworth();
+		live.bandPass(4, fs, 100, 20);
+		Butterworth reference = new Butterworth();
+		reference.bandPass(4, fs, 100, 20);
+		Butterworth design = new Butterworth();
+		design.bandPass(4, fs, 100, 20);
+
+		for (int i = 0; i < 500; i++) {
+			double x = Math.sin(i * 0.3);
+			if (i % 50 == 0) {
+				// identical coefficients: nothing may change
+				live.publish(design);
+			}
+			Assert.assertEquals(reference.filter(x), live.filter(x), 0);
+		}
+	}
+
+	@Test
+	public void newCoefficientsArePickedUp() {
+		Butterworth live = new Butterworth();
+		live.lowPass(4, fs, 100);
+		Butterworth design = new Butterworth();
+		design.lowPass(4, fs, 200);
+		live.publish(design);
+		// nothing happens until the next sample
+		Assert.assertNotEquals(design.getBiquad(0).getB0(),
+				live.getBiquad(0).getB0(), 0);
+		live.filter(0);
+		for (int i = 0; i < live.getNumBiquads(); i++) {
+			Assert.assertEquals(design.getBiquad(i).getB0(), live.getBiquad(i).getB0(), 1E-15);
+			Assert.assertEquals(design.getBiquad(i).getA1(), live.getBiquad(i).getA1(), 1E-15);
+			Assert.assertEquals(design.getBiquad(i).getA2(), live.getBiquad(i).getA2(), 1E-15);
+		}
+		Assert.assertEquals(design.response(0.2).abs(), live.response(0.2).abs(), 1E-12);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void differentOrder() {
+		Butterworth live = new Butterworth();
+		live.lowPass(4, fs, 100);
+		Butterworth design = new Butterworth();
+		design.lowPass(6, fs, 100);
+		live.publish(design);
+	}
+
+	void publishAcrossRedesign(int before, int after) {
+		Butterworth live = new Butterworth();
+		live.lowPass(before, fs, 100);
+		Butterworth design = new Butterworth();
+		design.lowPass(before, fs, 200);
+		// one bank is picked up and retired, another one stays pending
+		live.publish(design);
+		live.filter(0);
+		live.publish(design);
+
+		live.lowPass(after, fs, 100);
+		// the pending coefficients of the old order are dropped
+		live.filter(0);
+		Butterworth reference = new Butterworth();
+		reference.lowPass(after, fs, 100);
+		Assert.assertArrayEquals(reference.getPackedCoefficients(), live.getPackedCoefficients(), 0);
+
+		Butterworth newDesign = new Butterworth();
+		newDesign.lowPass(after, fs, 300);
+		live.publish(newDesign);
+		live.filter(0);
+		Assert.assertArrayEquals(newDesign.getPackedCoefficients(), live.getPackedCoefficients(), 0);
+	}
+
+	@Test
+	public void publishAfterChangeOfOrder() {
+		publishAcrossRedesign(4, 8);
+		publishAcrossRedesign(8, 4);
+	}
+
+	@Test
+	public void noTornCoefficients() throws InterruptedException {
+		final Butterworth live = new Butterworth();
+		live.bandStop(6, fs, 100, 20);
+		final Butterworth designA = new Butterworth();
+		designA.bandStop(6, fs, 100, 20);
+		final Butterworth designB = new Butterworth();
+		designB.bandStop(6, fs, 300, 50);
+		final double[] a = designA.getPackedCoefficients().clone();
+		final double[] b = designB.getPackedCoefficients().clone();
+
+		Thread control = new Thread(new Runnable() {
+			public void run() {
+				for (int i = 0; i < 20000; i++) {
+					live.publish(((i & 1) == 0) ? designB : designA);
+				}
+			}
+		});
+		control.start();
+		double[] block = new double[16];
+		int torn = 0;
+		while (control.isAlive()) {
+			live.filter(block);
+			double[] c = live.getPackedCoefficients();
+			if (!Arrays.equals(c, a) && !Arrays.equals(c, b)) {
+				torn++;
+			}
+		}
+		control.join();
+		Assert.assertEquals(0, torn);
+	}
+
+}
@@ -0,0 +1,90 @@
+package uk.me.berndporr.iirj;
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+import org.junit.Assert;
+import org.junit.Test;
+
+// Upsamples by integer factors in one or more stages
+public class InterpolatorTest {
+
+	double[] sine(double f, int n) {
+		double[] x = new double[n];
+		for (int i = 0; i < n; i++) {
+			x[i] = Math.sin(2 * Math.PI * f * i);
+		}
+		return x;
+	}
+
+	@Test
+	public void sameAsZeroStuffing() {
+		final int factor = 4;
+		double[] x = sine(0.02, 500);
+		double[] y = new Interpolator(factor).filter(x);
+		Assert.assertEquals(x.length * factor, y.length);
+		double[] stuffed = new double[y.length];
+		for (int i = 0; i < x.length; i++) {
+			stuffed[i * factor] = x[i] * factor;
+		}
+		ChebyshevI reference = new ChebyshevI();
+		reference.lowPass(Decimator.DEFAULT_ORDER, 1, 0.4 / factor, FilterFamily.RIPPLE_DB,
+				DirectFormAbstract.DIRECT_FORM_II_TRANSPOSED);
+		reference.filter(stuffed);
+		Assert.assertArrayEquals(stuffed, y, 1E-12);
+	}
+
+	@Test
+	public void stages() {
+		Assert.assertArrayEquals(new int[] { 5, 8 }, new Interpolator(40).getStageFactors());
+		Assert.assertArrayEquals(new int[] { 5, 5, 5, 8 }, new Interpolator(1000).getStageFactors());
+	}
+
+	@Test
+	public void anyBlockSize() {
+		double[] x = sine(0.01, 1001);
+		double[] expected = new Interpolator(40).filter(x);
+		Interpolator interpolator = new Interpolator(40);
+		double[] y = new double[expected.length];
+		for (int i = 0, len = 1; i < x.length; i += len, len = (len * 7 + 3) % 100) {
+			len = Math.min(len, x.length - i);
+			Assert.assertEquals(len * 40, interpolator.filter(x, i, y, i * 40, len));
+		}
+		Assert.assertArrayEquals(expected, y, 0);
+	}
+
+	@Test
+	public void amplitudeIsKept() {
+		// 250 Hz to 10 kHz
+		double[] y = new Interpolator(40).filter(sine(10.0 / 250, 1000));
+		double peak = 0;
+		for (int i = y.length / 2; i < y.length; i++) {
+			peak = Math.max(peak, Math.abs(y[i]));
+		}
+		Assert.assertEquals(1, peak, 0.02);
+		// the images are removed: the output is smooth
+		for (int i = y.length / 2; i < y.length; i++) {
+			Assert.assertEquals(y[i - 1], y[i], 2 * Math.PI * 10 / 10000 * 1.05);
+		}
+	}
+
+	@Test(expected = IndexOutOfBoundsException.class)
+	public void outputTooShort() {
+		new Interpolator(4).filter(new double[100], 0, new double[399], 0, 100);
+	}
+
+}
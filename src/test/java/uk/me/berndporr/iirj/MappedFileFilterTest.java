@@ -0,0 +1,175 @@
+package uk.me.berndporr.iirj;
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+// Filters raw recordings in files and compares them with arrays
+public class MappedFileFilterTest {
+
+	static final int nChannels = 3;
+	static final int nSamples = 10007;
+
+	static double x(int channel, int i) {
+		return 8000 * Math.sin(i * 0.05 * (channel + 1)) + ((i % 100 == 0) ? 4000 : 0);
+	}
+
+	static Butterworth filter() {
+		Butterworth butterworth = new Butterworth();
+		butterworth.lowPass(4, 1000, 100);
+		return butterworth;
+	}
+
+	// expected output of a channel rounded to the encoding
+	static double[] expected(int channel, int encoding) {
+		double[] y = new double[nSamples];
+		for (int i = 0; i < nSamples; i++) {
+			y[i] = encoding == SampleEncoding.INT16 ? Math.round(x(channel, i))
+					: (encoding == SampleEncoding.FLOAT32 ? (float) x(channel, i) : x(channel, i));
+		}
+		filter().filter(y);
+		for (int i = 0; i < nSamples; i++) {
+			y[i] = encoding == SampleEncoding.INT16 ? Math.rint(y[i])
+					: (encoding == SampleEncoding.FLOAT32 ? (float) y[i] : y[i]);
+		}
+		return y;
+	}
+
+	static int index(int layout, int encoding, int channel, int i) {
+		int bytes = SampleEncoding.getBytes(encoding);
+		if (layout == MappedFileFilter.INTERLEAVED) {
+			return (i * nChannels + channel) * bytes;
+		}
+		return (channel * nSamples + i) * bytes;
+	}
+
+	static Path write(int layout, int encoding, ByteOrder order) throws IOException {
+		ByteBuffer b = ByteBuffer.allocate(nChannels * nSamples
+				* SampleEncoding.getBytes(encoding)).order(order);
+		for (int c = 0; c < nChannels; c++) {
+			for (int i = 0; i < nSamples; i++) {
+				int p = index(layout, encoding, c, i);
+				if (encoding == SampleEncoding.INT16) {
+					b.putShort(p, (short) Math.round(x(c, i)));
+				} else if (encoding == SampleEncoding.FLOAT32) {
+					b.putFloat(p, (float) x(c, i));
+				} else {
+					b.putDouble(p, x(c, i));
+				}
+			}
+		}
+		Path file = Files.createTempFile("iirj", ".bin");
+		Files.write(file, b.array());
+		return file;
+	}
+
+	static void check(Path file, int layout, int encoding, ByteOrder order) throws IOException {
+		ByteBuffer b = ByteBuffer.wrap(Files.readAllBytes(file)).order(order);
+		Assert.assertEquals(nChannels * nSamples * SampleEncoding.getBytes(encoding), b.capacity());
+		for (int c = 0; c < nChannels; c++) {
+			double[] y = expected(c, encoding);
+			for (int i = 0; i < nSamples; i++) {
+				int p = index(layout, encoding, c, i);
+				double v;
+				if (encoding == SampleEncoding.INT16) {
+					v = b.getShort(p);
+				} else if (encoding == SampleEncoding.FLOAT32) {
+					v = b.getFloat(p);
+				} else {
+					v = b.getDouble(p);
+				}
+				Assert.assertEquals(y[i], v, 0);
+			}
+		}
+	}
+
+	void run(int layout, int encoding, ByteOrder order, boolean inPlace) throws IOException {
+		Path in = write(layout, encoding, order);
+		Path out = inPlace ? in : Files.createTempFile("iirj", ".bin");
+		try {
+			MappedFileFilter f = new MappedFileFilter(filter(), nChannels, encoding, layout);
+			f.setByteOrder(order);
+			// small windows and blocks so that the states are carried over a lot
+			f.setWindowSize(1000);
+			f.setBlockSize(77);
+			Assert.assertEquals(nSamples, f.filter(in, out));
+			check(out, layout, encoding, order);
+		} finally {
+			Files.deleteIfExists(in);
+			Files.deleteIfExists(out);
+		}
+	}
+
+	@Test
+	public void interleavedInt16() throws IOException {
+		run(MappedFileFilter.INTERLEAVED, SampleEncoding.INT16, ByteOrder.LITTLE_ENDIAN, false);
+	}
+
+	@Test
+	public void planarFloat32() throws IOException {
+		run(MappedFileFilter.PLANAR, SampleEncoding.FLOAT32, ByteOrder.BIG_ENDIAN, false);
+	}
+
+	@Test
+	public void inPlace() throws IOException {
+		run(MappedFileFilter.INTERLEAVED, SampleEncoding.FLOAT64, ByteOrder.LITTLE_ENDIAN, true);
+		run(MappedFileFilter.PLANAR, SampleEncoding.INT16, ByteOrder.LITTLE_ENDIAN, true);
+	}
+
+	@Test
+	public void independentOfSource() throws IOException {
+		// redesigning the filter passed in doesn't change the result
+		Path in = write(MappedFileFilter.INTERLEAVED, SampleEncoding.FLOAT64, ByteOrder.LITTLE_ENDIAN);
+		Path out = Files.createTempFile("iirj", ".bin");
+		try {
+			Butterworth source = filter();
+			MappedFileFilter f = new MappedFileFilter(source, nChannels,
+					SampleEncoding.FLOAT64, MappedFileFilter.INTERLEAVED);
+			f.setSync(true);
+			f.setWindowSize(1000);
+			source.lowPass(4, 1000, 10);
+			Assert.assertEquals(nSamples, f.filter(in, out));
+			check(out, MappedFileFilter.INTERLEAVED, SampleEncoding.FLOAT64, ByteOrder.LITTLE_ENDIAN);
+		} finally {
+			Files.deleteIfExists(in);
+			Files.deleteIfExists(out);
+		}
+	}
+
+	@Test(expected = IOException.class)
+	public void truncatedFile() throws IOException {
+		Path in = Files.createTempFile("iirj", ".bin");
+		Path out = Files.createTempFile("iirj", ".bin");
+		try {
+			Files.write(in, new byte[7]);
+			new MappedFileFilter(filter(), 2, SampleEncoding.INT16,
+					MappedFileFilter.INTERLEAVED).filter(in, out);
+		} finally {
+			Files.deleteIfExists(in);
+			Files.deleteIfExists(out);
+		}
+	}
+
+}
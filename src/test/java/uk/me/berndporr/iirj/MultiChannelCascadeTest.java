@@ -0,0 +1,135 @@
+package uk.me.berndporr.iirj;
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+import java.util.Random;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+// Compares the multichannel filter with one Cascade per channel.
+public class MultiChannelCascadeTest {
+
+	static double fs = 1000;
+	static double fc = 50;
+	static int order = 4;
+	static int nChannels = 17;
+	static int nFrames = 500;
+
+	@Test
+	public void compareTest() {
+		for (int type = 0; type < 3; type++) {
+			Butterworth design = new Butterworth();
+			design.bandPass(order, fs, fc, 10, type);
+			MultiChannelCascade multi = new MultiChannelCascade(design, nChannels);
+			Butterworth[] single = new Butterworth[nChannels];
+			for (int ch = 0; ch < nChannels; ch++) {
+				single[ch] = new Butterworth();
+				single[ch].bandPass(order, fs, fc, 10, type);
+			}
+
+			Random r = new Random(1);
+			double[] frames = new double[nFrames * nChannels];
+			for (int i = 0; i < frames.length; i++) {
+				frames[i] = r.nextGaussian();
+			}
+			double[] x = frames.clone();
+			// two blocks to check that the states are carried over
+			multi.filter(frames, 0, frames, 0, 100);
+			multi.filter(frames, 100 * nChannels, frames, 100 * nChannels,
+					nFrames - 100);
+			for (int f = 0; f < nFrames; f++) {
+				for (int ch = 0; ch < nChannels; ch++) {
+					int i = f * nChannels + ch;
+					Assert.assertEquals(single[ch].filter(x[i]), frames[i], 0);
+				}
+			}
+		}
+	}
+
+	// set by the test run on Java 17 with the vector API
+	static final String EXPECT_VECTOR_PROPERTY = "uk.me.berndporr.iirj.test.vector";
+
+	@Test
+	public void scalarFallbackTest() {
+		// scalar and (if available) vector code give the same result
+		for (int type = 0; type < 3; type++) {
+			Butterworth design = new Butterworth();
+			design.lowPass(order, fs, fc, type);
+			MultiChannelCascade scalar = new MultiChannelCascade(design, nChannels);
+			Assert.assertFalse(scalar.setVectorised(false));
+			MultiChannelCascade vector = new MultiChannelCascade(design, nChannels);
+			vector.setVectorised(true);
+			if (Boolean.getBoolean(EXPECT_VECTOR_PROPERTY)) {
+				Assert.assertTrue(vector.isVectorised());
+			}
+			Random r = new Random(2);
+			double[] x = new double[nFrames * nChannels];
+			for (int i = 0; i < x.length; i++) {
+				x[i] = r.nextGaussian();
+			}
+			double[] y = x.clone();
+			scalar.filter(x, nFrames);
+			vector.filter(y, nFrames);
+			Assert.assertArrayEquals(x, y, 0);
+		}
+	}
+
+	@Test
+	public void vectorKernelTest() {
+		// one stage of one frame with random states, also for
+		// numbers of channels which don't fill whole vectors
+		Random r = new Random(3);
+		double[] coeff = { 0.3, -0.2, 0.1, -0.5, 0.25 };
+		for (int type = 0; type < 3; type++) {
+			final int perStage = Cascade.statesPerStage(type);
+			for (int nc = 1; nc <= nChannels; nc++) {
+				double[] in = new double[nc];
+				double[] stScalar = new double[perStage * nc];
+				for (int i = 0; i < in.length; i++) {
+					in[i] = r.nextGaussian();
+				}
+				for (int i = 0; i < stScalar.length; i++) {
+					stScalar[i] = r.nextGaussian();
+				}
+				double[] stVector = stScalar.clone();
+				double[] outScalar = new double[nc];
+				double[] outVector = new double[nc];
+				MultiChannelCascade.scalarFrame(type, coeff, 0, stScalar, 0, nc,
+						in, 0, outScalar, 0);
+				VectorKernel.processFrame(type, coeff, 0, stVector, 0, nc,
+						in, 0, outVector, 0);
+				Assert.assertArrayEquals(outScalar, outVector, 0);
+				Assert.assertArrayEquals(stScalar, stVector, 0);
+			}
+		}
+	}
+
+	@Test
+	public void resetChannelTest() {
+		Butterworth design = new Butterworth();
+		design.lowPass(order, fs, fc);
+		MultiChannelCascade multi = new MultiChannelCascade(design, 2);
+		double[] frames = {1, 1, 0, 0};
+		multi.filter(frames, 1);
+		multi.reset(1);
+		multi.filter(frames, 2, frames, 2, 1);
+		Assert.assertTrue(frames[2] != 0);
+		Assert.assertEquals(0, frames[3], 0);
+	}
+}
@@ -0,0 +1,123 @@
+package uk.me.berndporr.iirj;
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+import java.lang.management.ManagementFactory;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+// Redesigning a filter in place must give the same coefficients as a
+// fresh design and must not allocate when the order stays the same
+public class RedesignTest {
+
+	static final double fs = 1000;
+
+	void assertSameCoefficients(Cascade expected, Cascade actual) {
+		Assert.assertEquals(expected.getNumBiquads(), actual.getNumBiquads());
+		for (int i = 0; i < expected.getNumBiquads(); i++) {
+			Biquad e = expected.getBiquad(i);
+			Biquad a = actual.getBiquad(i);
+			Assert.assertEquals(e.getB0(), a.getB0(), 1E-15);
+			Assert.assertEquals(e.getB1(), a.getB1(), 1E-15);
+			Assert.assertEquals(e.getB2(), a.getB2(), 1E-15);
+			Assert.assertEquals(e.getA1(), a.getA1(), 1E-15);
+			Assert.assertEquals(e.getA2(), a.getA2(), 1E-15);
+		}
+	}
+
+	@Test
+	public void redesignMatchesFreshDesign() {
+		Butterworth butterworth = new Butterworth();
+		butterworth.lowPass(4, fs, 100);
+		for (int i = 0; i < 100; i++) {
+			butterworth.filter(1);
+		}
+		butterworth.bandPass(2, fs, 200, 50);
+		Butterworth fresh = new Butterworth();
+		fresh.bandPass(2, fs, 200, 50);
+		assertSameCoefficients(fresh, butterworth);
+		// the states have been cleared by the redesign
+		for (int i = 0; i < 100; i++) {
+			Assert.assertEquals(fresh.filter(i % 7), butterworth.filter(i % 7), 0);
+		}
+
+		ChebyshevI chebyshevI = new ChebyshevI();
+		chebyshevI.highPass(5, fs, 30, 1);
+		chebyshevI.highPass(5, fs, 60, 1);
+		ChebyshevI freshChebyshevI = new ChebyshevI();
+		freshChebyshevI.highPass(5, fs, 60, 1);
+		assertSameCoefficients(freshChebyshevI, chebyshevI);
+
+		ChebyshevII chebyshevII = new ChebyshevII();
+		chebyshevII.bandStop(3, fs, 100, 20, 40);
+		chebyshevII.lowPass(6, fs, 100, 40);
+		ChebyshevII freshChebyshevII = new ChebyshevII();
+		freshChebyshevII.lowPass(6, fs, 100, 40);
+		assertSameCoefficients(freshChebyshevII, chebyshevII);
+
+		Bessel bessel = new Bessel();
+		bessel.lowPass(7, fs, 100);
+		bessel.bandStop(7, fs, 200, 40);
+		Bessel freshBessel = new Bessel();
+		freshBessel.bandStop(7, fs, 200, 40);
+		assertSameCoefficients(freshBessel, bessel);
+	}
+
+	@Test
+	public void redesignDoesNotAllocate() {
+		java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+		if (!(bean instanceof com.sun.management.ThreadMXBean)) {
+			System.out.println("Allocation counter not available, skipping.");
+			return;
+		}
+		com.sun.management.ThreadMXBean mx = (com.sun.management.ThreadMXBean) bean;
+		if (!mx.isThreadAllocatedMemorySupported()) {
+			System.out.println("Allocation counter not supported, skipping.");
+			return;
+		}
+		mx.setThreadAllocatedMemoryEnabled(true);
+		long id = Thread.currentThread().getId();
+
+		Butterworth butterworth = new Butterworth();
+		ChebyshevI chebyshevI = new ChebyshevI();
+		ChebyshevII chebyshevII = new ChebyshevII();
+		Bessel bessel = new Bessel();
+		// first designs allocate the layouts and the biquads
+		butterworth.bandPass(4, fs, 100, 20);
+		chebyshevI.lowPass(4, fs, 100, 1);
+		chebyshevII.highPass(4, fs, 100, 40);
+		bessel.bandStop(4, fs, 100, 20);
+
+		final int n = 1000;
+		long before = mx.getThreadAllocatedBytes(id);
+		for (int i = 0; i < n; i++) {
+			double fc = 50 + (i % 100);
+			butterworth.bandPass(4, fs, fc, 20);
+			chebyshevI.lowPass(4, fs, fc, 1);
+			chebyshevII.highPass(4, fs, fc, 40);
+			bessel.bandStop(4, fs, fc, 20);
+		}
+		long allocated = mx.getThreadAllocatedBytes(id) - before;
+		System.out.println("Bytes allocated by " + (4 * n) + " redesigns: " + allocated);
+		// the JVM itself may allocate a few bytes now and then while
+		// compiling but a single allocation per redesign would be 4*n*16
+		Assert.assertTrue(allocated < n);
+	}
+
+}
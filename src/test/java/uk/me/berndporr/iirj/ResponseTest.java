@@ -0,0 +1,72 @@
+package uk.me.berndporr.iirj;
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+import org.apache.commons.math3.complex.Complex;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+// Compares the batched frequency responses with the complex one
+public class ResponseTest {
+
+	static int nPoints = 4096;
+
+	void compare(Cascade cascade, double[] f, double[] mag, double[] phase) {
+		for (int i = 0; i < f.length; i++) {
+			Complex h = cascade.response(f[i]);
+			Assert.assertEquals(h.abs(), mag[i], 1E-9 * Math.max(1, h.abs()));
+			if (h.abs() > 1E-6) {
+				double d = Math.abs(h.getArgument() - phase[i]);
+				// the phase may wrap around at +/-pi
+				Assert.assertTrue(Math.min(d, Math.abs(d - 2 * Math.PI)) < 1E-6);
+			}
+		}
+	}
+
+	@Test
+	public void frequenciesTest() {
+		ChebyshevI cheby = new ChebyshevI();
+		cheby.bandPass(8, 1000, 100, 20, 1);
+		double[] f = {0, 0.01, 0.09, 0.1, 0.11, 0.25, 0.4999};
+		double[] mag = new double[f.length];
+		double[] phase = new double[f.length];
+		cheby.response(f, mag, phase);
+		compare(cheby, f, mag, phase);
+	}
+
+	@Test
+	public void uniformTest() {
+		Butterworth butterworth = new Butterworth();
+		butterworth.bandStop(6, 1000, 50, 10);
+		double df = 0.5 / nPoints;
+		double[] mag = new double[nPoints];
+		double[] phase = new double[nPoints];
+		butterworth.response(0, df, mag, phase);
+		double[] f = new double[nPoints];
+		for (int i = 0; i < nPoints; i++) {
+			f[i] = i * df;
+		}
+		compare(butterworth, f, mag, phase);
+
+		// without phase
+		double[] mag2 = new double[nPoints];
+		butterworth.response(0, df, mag2, null);
+		Assert.assertArrayEquals(mag, mag2, 0);
+	}
+}
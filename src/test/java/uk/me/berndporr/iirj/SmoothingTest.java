@@ -0,0 +1,153 @@
+package uk.me.berndporr.iirj;
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+import org.junit.Assert;
+import org.junit.Test;
+
+// Ramps the coefficients of a running filter to new ones
+public class SmoothingTest {
+
+	static final double fs = 1000;
+	static final int ramp = 100;
+
+	void assertStable(double[] c) {
+		for (int k = 0; k < c.length; k += Cascade.COEFFS_PER_STAGE) {
+			double a1 = c[k + 3];
+			double a2 = c[k + 4];
+			Assert.assertTrue(Math.abs(a2) < 1);
+			Assert.assertTrue(Math.abs(a1) < 1 + a2);
+		}
+	}
+
+	void blockEqualsSampleBySample(int directFormType) {
+		ChebyshevI bySample = new ChebyshevI();
+		bySample.lowPass(5, fs, 50, 1, directFormType);
+		bySample.setSmoothing(ramp);
+		ChebyshevI byBlock = new ChebyshevI();
+		byBlock.lowPass(5, fs, 50, 1, directFormType);
+		byBlock.setSmoothing(ramp);
+		ChebyshevI design = new ChebyshevI();
+
+		double[] x = new double[37];
+		int n = 0;
+		for (int b = 0; b < 30; b++) {
+			if (b % 4 == 0) {
+				design.lowPass(5, fs, 50 + 10 * b, 1);
+				bySample.publish(design);
+				byBlock.publish(design);
+			}
+			for (int i = 0; i < x.length; i++) {
+				x[i] = Math.sin(0.05 * n++);
+			}
+			double[] y = x.clone();
+			byBlock.filter(y);
+			for (int i = 0; i < x.length; i++) {
+				Assert.assertEquals(bySample.filter(x[i]), y[i], 0);
+			}
+			assertStable(byBlock.getPackedCoefficients());
+		}
+	}
+
+	@Test
+	public void blockEqualsSampleBySample() {
+		blockEqualsSampleBySample(DirectFormAbstract.DIRECT_FORM_I);
+		blockEqualsSampleBySample(DirectFormAbstract.DIRECT_FORM_II);
+		blockEqualsSampleBySample(DirectFormAbstract.DIRECT_FORM_II_TRANSPOSED);
+	}
+
+	@Test
+	public void rampEndsOnTarget() {
+		Butterworth live = new Butterworth();
+		live.bandPass(4, fs, 100, 20);
+		live.setSmoothing(ramp);
+		Butterworth design = new Butterworth();
+		design.bandPass(4, fs, 300, 50);
+		live.publish(design);
+
+		double[] c0 = live.getPackedCoefficients().clone();
+		double[] target = design.getPackedCoefficients();
+		for (int i = 0; i < ramp / 2; i++) {
+			live.filter(1);
+		}
+		// half way
+		double[] c = live.getPackedCoefficients();
+		for (int k = 0; k < c.length; k++) {
+			Assert.assertEquals((c0[k] + target[k]) / 2, c[k], 1E-12);
+		}
+		assertStable(c);
+		for (int i = ramp / 2; i < ramp; i++) {
+			live.filter(1);
+		}
+		Assert.assertArrayEquals(target, live.getPackedCoefficients(), 0);
+		Assert.assertEquals(design.getBiquad(0).getB0(), live.getBiquad(0).getB0(), 1E-15);
+	}
+
+	@Test
+	public void lessZipperNoise() {
+		// sweeping the cutoff by redesigning every block causes kinks in
+		// the output at the block boundaries which the ramp smoothes out
+		final int block = 64;
+		double[] kinks = new double[2];
+		for (int m = 0; m < 2; m++) {
+			ChebyshevI live = new ChebyshevI();
+			live.lowPass(4, fs, 20, 1, DirectFormAbstract.DIRECT_FORM_I);
+			live.setSmoothing(m * block);
+			ChebyshevI design = new ChebyshevI();
+			double[] y = new double[block * 60];
+			for (int b = 0, n = 0; b < 60; b++) {
+				design.lowPass(4, fs, 20 + 5 * b, 1);
+				live.publish(design);
+				for (int i = 0; i < block; i++, n++) {
+					y[n] = Math.sin(0.3 * n);
+				}
+				live.filter(y, b * block, block);
+			}
+			for (int i = 200; i < y.length; i++) {
+				double d3 = y[i] - 3 * y[i - 1] + 3 * y[i - 2] - y[i - 3];
+				kinks[m] = Math.max(kinks[m], Math.abs(d3));
+			}
+		}
+		Assert.assertTrue(kinks[1] < kinks[0] * 0.7);
+	}
+
+	@Test
+	public void unstablePublished() {
+		// a pole on the unit circle is rejected and the filter carries on
+		Butterworth live = new Butterworth();
+		live.lowPass(2, fs, 50);
+		live.setSmoothing(ramp);
+		double[] coeff = live.getPackedCoefficients().clone();
+		SOSCascade unstable = new SOSCascade();
+		unstable.setup(new double[][] { { 1, 0, 0, 1, -1.5, 1 } });
+		try {
+			live.publish(unstable);
+			Assert.fail();
+		} catch (IllegalArgumentException e) {
+			// expected
+		}
+		live.filter(new double[2 * ramp]);
+		Assert.assertArrayEquals(coeff, live.getPackedCoefficients(), 0);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void negativeSmoothing() {
+		new Butterworth().setSmoothing(-1);
+	}
+
+}
@@ -0,0 +1,154 @@
+package uk.me.berndporr.iirj;
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+// Restores the states of a filter so that it continues as if it had
+// never been interrupted
+public class StateSnapshotTest {
+
+	static final double fs = 1000;
+
+	double input(int i) {
+		return Math.sin(0.1 * i) + ((i % 17 == 0) ? 1 : 0);
+	}
+
+	void continuesSeamlessly(int directFormType) {
+		Butterworth uninterrupted = new Butterworth();
+		uninterrupted.bandPass(4, fs, 100, 20, directFormType);
+		Butterworth before = new Butterworth();
+		before.bandPass(4, fs, 100, 20, directFormType);
+		for (int i = 0; i < 500; i++) {
+			uninterrupted.filter(input(i));
+			before.filter(input(i));
+		}
+		double[] snapshot = before.snapshotState();
+		Assert.assertEquals(before.getSnapshotSize(), snapshot.length);
+
+		Butterworth after = new Butterworth();
+		after.bandPass(4, fs, 100, 20, directFormType);
+		after.restoreState(snapshot);
+		for (int i = 500; i < 1000; i++) {
+			Assert.assertEquals(uninterrupted.filter(input(i)), after.filter(input(i)), 0);
+		}
+	}
+
+	@Test
+	public void continuesSeamlessly() {
+		continuesSeamlessly(DirectFormAbstract.DIRECT_FORM_I);
+		continuesSeamlessly(DirectFormAbstract.DIRECT_FORM_II);
+		continuesSeamlessly(DirectFormAbstract.DIRECT_FORM_II_TRANSPOSED);
+	}
+
+	@Test
+	public void binaryEncoding() {
+		final int numFilters = 100000;
+		Butterworth[] filters = new Butterworth[numFilters];
+		for (int f = 0; f < numFilters; f++) {
+			filters[f] = new Butterworth();
+			filters[f].lowPass(4, fs, 50);
+			filters[f].filter(f);
+		}
+		ByteBuffer buffer = ByteBuffer.allocateDirect(numFilters * filters[0].getEncodedStateSize());
+		buffer.order(ByteOrder.LITTLE_ENDIAN);
+		long t0 = System.nanoTime();
+		for (int f = 0; f < numFilters; f++) {
+			filters[f].writeState(buffer);
+		}
+		Assert.assertFalse(buffer.hasRemaining());
+		long t1 = System.nanoTime();
+		buffer.flip();
+		Butterworth restored = new Butterworth();
+		restored.lowPass(4, fs, 50);
+		for (int f = 0; f < numFilters; f++) {
+			restored.readState(buffer);
+			if (f % 997 == 0) {
+				Assert.assertArrayEquals(filters[f].snapshotState(), restored.snapshotState(), 0);
+			}
+		}
+		long t2 = System.nanoTime();
+		System.out.println("States of " + numFilters + " filters written in "
+				+ (t1 - t0) / 1000000 + " ms, read in " + (t2 - t1) / 1000000 + " ms");
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void differentOrder() {
+		Butterworth a = new Butterworth();
+		a.lowPass(4, fs, 50);
+		Butterworth b = new Butterworth();
+		b.lowPass(6, fs, 50);
+		b.restoreState(a.snapshotState());
+	}
+
+	@Test
+	public void differentTopologyIsRejected() {
+		// two DF-I biquads have as many states as four DF-II biquads
+		Butterworth a = new Butterworth();
+		a.lowPass(4, fs, 50, DirectFormAbstract.DIRECT_FORM_I);
+		Butterworth b = new Butterworth();
+		b.lowPass(8, fs, 50);
+		ByteBuffer buffer = ByteBuffer.allocate(a.getEncodedStateSize());
+		a.writeState(buffer);
+		buffer.flip();
+		try {
+			b.readState(buffer);
+			Assert.fail();
+		} catch (IllegalArgumentException e) {
+			Assert.assertEquals(0, buffer.position());
+		}
+	}
+
+	@Test
+	public void notDesigned() {
+		// only the header, also in the binary encoding
+		Butterworth a = new Butterworth();
+		double[] snapshot = a.snapshotState();
+		Assert.assertEquals(2, snapshot.length);
+		new Butterworth().restoreState(snapshot);
+		ByteBuffer buffer = ByteBuffer.allocate(a.getEncodedStateSize());
+		a.writeState(buffer);
+		buffer.flip();
+		new Butterworth().readState(buffer);
+		Assert.assertEquals(0, buffer.remaining());
+
+		// a designed filter doesn't take it
+		Butterworth b = new Butterworth();
+		b.lowPass(4, fs, 50);
+		try {
+			b.restoreState(snapshot);
+			Assert.fail();
+		} catch (IllegalArgumentException e) {
+			// expected
+		}
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void invalidStates() {
+		Butterworth a = new Butterworth();
+		a.lowPass(4, fs, 50);
+		double[] snapshot = a.snapshotState();
+		snapshot[snapshot.length - 1] = Double.NaN;
+		a.restoreState(snapshot);
+	}
+
+}
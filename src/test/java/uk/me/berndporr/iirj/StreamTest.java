@@ -0,0 +1,121 @@
+package uk.me.berndporr.iirj;
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+import java.util.function.IntFunction;
+import java.util.function.IntToDoubleFunction;
+import java.util.stream.Collector;
+import java.util.stream.DoubleStream;
+import java.util.stream.IntStream;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+// Filters java.util.stream streams
+public class StreamTest {
+
+	static final int n = 10000;
+
+	static double x(int i) {
+		return Math.sin(i * 0.01) + ((i % 17 == 0) ? 1 : 0);
+	}
+
+	static double[] reference(double gain) {
+		Butterworth butterworth = new Butterworth();
+		butterworth.lowPass(4, 1000, 50);
+		double[] y = new double[n];
+		for (int i = 0; i < n; i++) {
+			y[i] = butterworth.filter(x(i) * gain);
+		}
+		return y;
+	}
+
+	static DoubleStream input() {
+		return IntStream.range(0, n).mapToDouble(new IntToDoubleFunction() {
+			public double applyAsDouble(int i) {
+				return x(i);
+			}
+		});
+	}
+
+	@Test
+	public void unaryOperator() {
+		Butterworth butterworth = new Butterworth();
+		butterworth.lowPass(4, 1000, 50);
+		double[] y = input().map(butterworth).toArray();
+		Assert.assertArrayEquals(reference(1), y, 0);
+	}
+
+	@Test
+	public void spliterator() {
+		Butterworth butterworth = new Butterworth();
+		butterworth.lowPass(4, 1000, 50);
+		// even a parallel source is filtered in order
+		double[] y = butterworth.filter(input().parallel()).toArray();
+		Assert.assertArrayEquals(reference(1), y, 0);
+
+		// lazy: only as many samples as consumed are filtered
+		butterworth.reset();
+		double[] head = butterworth.filter(input()).limit(100).toArray();
+		Assert.assertEquals(100, head.length);
+		Assert.assertEquals(reference(1)[100], butterworth.filter(x(100)), 0);
+	}
+
+	@Test
+	public void channels() {
+		final int nChannels = 5;
+		Butterworth butterworth = new Butterworth();
+		butterworth.lowPass(4, 1000, 50);
+		for (boolean parallel : new boolean[] {false, true}) {
+			IntStream frames = IntStream.range(0, n);
+			if (parallel) {
+				frames = frames.parallel();
+			}
+			double[][] y = frames.mapToObj(new IntFunction<double[]>() {
+				public double[] apply(int i) {
+					double[] frame = new double[nChannels];
+					for (int c = 0; c < nChannels; c++) {
+						frame[c] = x(i) * (c + 1);
+					}
+					return frame;
+				}
+			}).collect(butterworth.toChannels());
+			Assert.assertEquals(nChannels, y.length);
+			for (int c = 0; c < nChannels; c++) {
+				Assert.assertArrayEquals(reference(c + 1), y[c], 0);
+			}
+		}
+	}
+
+	@Test
+	public void channelsIndependentOfFilter() {
+		// the filter is changed while the frames are collected
+		Butterworth butterworth = new Butterworth();
+		butterworth.lowPass(4, 1000, 50);
+		Collector<double[], ?, double[][]> collector = butterworth.toChannels();
+		butterworth.lowPass(4, 1000, 200);
+		double[][] y = IntStream.range(0, n).parallel().mapToObj(new IntFunction<double[]>() {
+			public double[] apply(int i) {
+				return new double[] { x(i), 2 * x(i) };
+			}
+		}).collect(collector);
+		Assert.assertArrayEquals(reference(1), y[0], 0);
+		Assert.assertArrayEquals(reference(2), y[1], 0);
+	}
+
+}
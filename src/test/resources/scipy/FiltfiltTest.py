@@ -0,0 +1,38 @@
+# Reference output of sosfiltfilt for FiltfiltTest: zero phase
+# filtering with the default odd extension of 3 * ntaps samples
+# at both ends and the shortest input which can be filtered.
+import numpy as np
+from scipy.signal import butter, sosfiltfilt
+
+
+def export_to_csv(time, filtered_signal, path):
+    with open(path, 'w') as file:
+        file.write('time;signal\n')
+        for t, s in zip(time, filtered_signal):
+            file.write(f'{t:.4f};{s:.10f}\n')
+
+
+def readData(filename):
+    data = np.loadtxt(fname=filename, delimiter=';', skiprows=1)
+    return data[:, 0], data[:, 1]
+
+
+def padlen(sos):
+    # the same as in sosfiltfilt
+    ntaps = 2 * len(sos) + 1
+    ntaps -= min((sos[:, 2] == 0).sum(), (sos[:, 5] == 0).sum())
+    return 3 * ntaps
+
+
+time, signal = readData('signal.txt')
+sample_rate = 1 / (time[1] - time[0])
+
+cases = [('lowpass', 300, 4), ('highpass', 200, 5), ('bandpass', [200, 300], 2)]
+
+for btype, Wn, order in cases:
+    sos = butter(N=order, Wn=Wn, fs=sample_rate, btype=btype, output='sos')
+    filename = 'butterworth-filtfilt-' + btype + '-Order_' + str(order)
+    export_to_csv(time, sosfiltfilt(sos, signal), filename + '.csv')
+    if btype == 'lowpass':
+        n = padlen(sos) + 1
+        export_to_csv(time[:n], sosfiltfilt(sos, signal[:n]), filename + '-short.csv')